@@ -0,0 +1,84 @@
+package com.surveys.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.surveys.dto.BatchResponse;
+import com.surveys.dto.FeatureResponse;
+import com.surveys.dto.RawJson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer stage cost per batch: {@code BatchResponse} JSON serialization, building the SSE event
+ * around it, and the binary frame alternative, across batch sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int batchSize;
+
+    // Configured like the application's ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<FeatureResponse> fovBatch;
+    private List<BinaryFrames.Feature> binaryBatch;
+    private byte[] serializedBatch;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        fovBatch = new ArrayList<>(batchSize);
+        binaryBatch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            fovBatch.add(new FeatureResponse(BenchmarkData.SESSION_ID, "geometry",
+                RawJson.of(BenchmarkData.polygonJson(random, BenchmarkData.FOV_VERTICES))));
+            binaryBatch.add(new BinaryFrames.Feature(BenchmarkData.SESSION_ID,
+                BenchmarkData.twkb(random, BenchmarkData.FOV_VERTICES)));
+        }
+        serializedBatch = objectMapper.writeValueAsBytes(new BatchResponse<>(fovBatch, batchSize));
+    }
+
+    @Benchmark
+    public byte[] serializeJsonBatch() throws IOException {
+        return objectMapper.writeValueAsBytes(new BatchResponse<>(fovBatch, batchSize));
+    }
+
+    @Benchmark
+    public Object buildSseFrame() {
+        return SseEmitter.event().data(serializedBatch).build();
+    }
+
+    @Benchmark
+    public Object serializeAndBuildSseFrame() throws IOException {
+        return SseEmitter.event()
+            .data(objectMapper.writeValueAsBytes(new BatchResponse<>(fovBatch, batchSize)))
+            .build();
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryBatch() {
+        return BinaryFrames.batch(binaryBatch, batchSize);
+    }
+}
@@ -0,0 +1,75 @@
+package com.surveys.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Synthetic features shaped like the survey layers: FOV and LISA features are polygons, breadcrumb
+ * features are points, all in EPSG:4326 with the coordinate precision {@code ST_AsGeoJSON} emits.
+ */
+final class BenchmarkData {
+
+    static final String SESSION_ID = "3f2b8c1e-6d4a-4e7b-9a0c-5e8f1d2c7b6a";
+
+    // Vertex counts of typical features
+    static final int FOV_VERTICES = 40;
+    static final int LISA_VERTICES = 24;
+
+    private BenchmarkData() {
+    }
+
+    static byte[] polygonJson(Random random, int vertices) {
+        double[] ring = polygon(random, vertices);
+        StringBuilder json = new StringBuilder("{\"type\":\"Polygon\",\"coordinates\":[[");
+        for (int i = 0; i < ring.length; i += 2) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendPosition(json, ring[i], ring[i + 1]);
+        }
+        return json.append("]]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Closed ring of {@code vertices + 1} positions as {@code lon0, lat0, lon1, lat1, ...}
+     */
+    static double[] polygon(Random random, int vertices) {
+        double centerLon = -121.9 + random.nextDouble() * 0.1;
+        double centerLat = 37.4 + random.nextDouble() * 0.1;
+        double radius = 0.0005 + random.nextDouble() * 0.002;
+
+        double[] ring = new double[(vertices + 1) * 2];
+        for (int i = 0; i <= vertices; i++) {
+            double angle = 2 * Math.PI * (i % vertices) / vertices;
+            double r = radius * (0.6 + 0.4 * random.nextDouble());
+            ring[2 * i] = centerLon + r * Math.cos(angle);
+            ring[2 * i + 1] = centerLat + r * Math.sin(angle);
+        }
+        return ring;
+    }
+
+    static byte[] pointJson(Random random) {
+        StringBuilder json = new StringBuilder("{\"type\":\"Point\",\"coordinates\":");
+        appendPosition(json, -121.9 + random.nextDouble() * 0.1, 37.4 + random.nextDouble() * 0.1);
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Approximate TWKB size of a geometry: a few header bytes plus two zigzag varints per vertex
+     * of a delta against the previous vertex at 6 decimal places.
+     */
+    static byte[] twkb(Random random, int vertices) {
+        byte[] twkb = new byte[4 + vertices * 2 * 2];
+        random.nextBytes(twkb);
+        return twkb;
+    }
+
+    private static void appendPosition(StringBuilder json, double lon, double lat) {
+        json.append('[')
+            .append(String.format(Locale.ROOT, "%.9f", lon))
+            .append(',')
+            .append(String.format(Locale.ROOT, "%.9f", lat))
+            .append(']');
+    }
+}
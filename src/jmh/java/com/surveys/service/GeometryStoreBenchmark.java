@@ -0,0 +1,160 @@
+package com.surveys.service;
+
+import com.surveys.geo.EncodedColumn;
+import com.surveys.geo.GeometryColumns;
+import com.surveys.geo.GeometryWriters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of keeping a large survey session loaded, as an object model (one coordinate array and one
+ * pre-encoded GeoJSON array per feature) against {@link GeometryColumns}, with GeoJSON either
+ * encoded from the columns on read ({@code columns}) or pre-encoded into an {@link EncodedColumn}
+ * ({@code encoded}). The session has a million breadcrumb points and 100k FOV wedges.
+ * {@code fullGc} times a full collection with the session live, which is the pause that tracing
+ * and compacting the session adds; {@code streamSession} reads every FOV feature as GeoJSON, as a
+ * stream does. Retained heap and off-heap bytes are printed after setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class GeometryStoreBenchmark {
+
+    private static final int BREADCRUMB_POINTS = 1_000_000;
+    private static final int FOV_FEATURES = 100_000;
+    private static final int FOV_VERTICES = 14;
+
+    @Param({"objects", "columns", "encoded"})
+    public String model;
+
+    private double[][] breadcrumbObjects;
+    private byte[][] breadcrumbGeoJson;
+    private double[][] fovObjects;
+    private byte[][] fovGeoJson;
+    private GeometryColumns breadcrumbColumns;
+    private GeometryColumns fovColumns;
+    private EncodedColumn fovGeoJsonColumn;
+
+    @Setup
+    public void setup() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        Random random = new Random(42);
+        boolean objects = model.equals("objects");
+        if (objects) {
+            breadcrumbObjects = new double[BREADCRUMB_POINTS][];
+            breadcrumbGeoJson = new byte[BREADCRUMB_POINTS][];
+            fovObjects = new double[FOV_FEATURES][];
+            fovGeoJson = new byte[FOV_FEATURES][];
+        }
+        GeometryColumns.Builder breadcrumbs = GeometryColumns.builder(1e-9);
+        GeometryColumns.Builder fovs = GeometryColumns.builder(1e-9);
+
+        double lon = -121.97;
+        double lat = 37.39;
+        for (int i = 0; i < BREADCRUMB_POINTS; i++) {
+            lon += (random.nextDouble() - 0.5) * 0.0001;
+            lat += (random.nextDouble() - 0.5) * 0.0001;
+            double[] point = {lon, lat};
+            if (objects) {
+                breadcrumbObjects[i] = point;
+                breadcrumbGeoJson[i] = GeometryWriters.geoJson(GeometryWriters.Type.POINT, point);
+            } else {
+                breadcrumbs.add(point);
+            }
+            if (i % (BREADCRUMB_POINTS / FOV_FEATURES) == 0) {
+                double[] wedge = wedge(random, lon, lat);
+                int feature = i / (BREADCRUMB_POINTS / FOV_FEATURES);
+                if (objects) {
+                    fovObjects[feature] = wedge;
+                    fovGeoJson[feature] = GeometryWriters.geoJson(GeometryWriters.Type.POLYGON, wedge);
+                } else {
+                    fovs.add(wedge);
+                }
+            }
+        }
+        long offHeap = 0;
+        if (!objects) {
+            breadcrumbColumns = breadcrumbs.build();
+            fovColumns = fovs.build();
+            offHeap = breadcrumbColumns.offHeapBytes() + fovColumns.offHeapBytes();
+        }
+        if (model.equals("encoded")) {
+            EncodedColumn.Builder encoded = EncodedColumn.builder();
+            double[] scratch = new double[FOV_VERTICES * 2];
+            for (int i = 0; i < fovColumns.size(); i++) {
+                int vertexCount = fovColumns.copyCoordinates(i, scratch);
+                encoded.add(GeometryWriters.geoJson(GeometryWriters.Type.POLYGON, scratch, vertexCount));
+            }
+            fovGeoJsonColumn = encoded.build();
+            offHeap += fovGeoJsonColumn.offHeapBytes();
+        }
+        breadcrumbs = null;
+        fovs = null;
+
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed() - heapBefore;
+        System.out.printf("%n%s: retained heap %.1f MB, off-heap %.1f MB%n", model, retained / 1e6, offHeap / 1e6);
+    }
+
+    @Benchmark
+    public void fullGc() {
+        System.gc();
+    }
+
+    @Benchmark
+    public long streamSession() {
+        long bytes = 0;
+        if (model.equals("objects")) {
+            for (byte[] geometry : fovGeoJson) {
+                bytes += geometry.length;
+            }
+        } else if (model.equals("encoded")) {
+            for (int i = 0; i < fovGeoJsonColumn.size(); i++) {
+                bytes += fovGeoJsonColumn.get(i).length;
+            }
+        } else {
+            double[] scratch = new double[FOV_VERTICES * 2];
+            for (int i = 0; i < fovColumns.size(); i++) {
+                int vertexCount = fovColumns.copyCoordinates(i, scratch);
+                bytes += GeometryWriters.geoJson(GeometryWriters.Type.POLYGON, scratch, vertexCount).length;
+            }
+        }
+        return bytes;
+    }
+
+    private static double[] wedge(Random random, double lon, double lat) {
+        double heading = random.nextDouble() * 2 * Math.PI;
+        double radius = 0.0005 + random.nextDouble() * 0.001;
+        double[] ring = new double[FOV_VERTICES * 2];
+        ring[0] = lon;
+        ring[1] = lat;
+        for (int v = 1; v < FOV_VERTICES - 1; v++) {
+            double angle = heading - 0.5 + (v - 1) / (double) (FOV_VERTICES - 3);
+            ring[2 * v] = lon + radius * Math.cos(angle);
+            ring[2 * v + 1] = lat + radius * Math.sin(angle);
+        }
+        ring[ring.length - 2] = lon;
+        ring[ring.length - 1] = lat;
+        return ring;
+    }
+}
@@ -0,0 +1,67 @@
+package com.surveys.service;
+
+import com.surveys.config.LayerDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row mapping cost per layer: what the stream reader stage spends per feature after the layer
+ * repository has read it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    private final LayerDefinition fov = layer("fov", "geometry");
+    private final LayerDefinition breadcrumb = layer("breadcrumb", "coordinates");
+    private final LayerDefinition lisa = layer("lisa", "geometry");
+
+    private byte[] fovGeometry;
+    private byte[] breadcrumbGeometry;
+    private byte[] lisaGeometry;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        fovGeometry = BenchmarkData.polygonJson(random, BenchmarkData.FOV_VERTICES);
+        breadcrumbGeometry = BenchmarkData.pointJson(random);
+        lisaGeometry = BenchmarkData.polygonJson(random, BenchmarkData.LISA_VERTICES);
+    }
+
+    @Benchmark
+    public Object mapFovRow() {
+        return StreamingService.mapFeatureRow(fov, BenchmarkData.SESSION_ID, fovGeometry);
+    }
+
+    @Benchmark
+    public Object mapBreadcrumbRow() {
+        return StreamingService.mapFeatureRow(breadcrumb, BenchmarkData.SESSION_ID, breadcrumbGeometry);
+    }
+
+    @Benchmark
+    public Object mapLisaRow() {
+        return StreamingService.mapFeatureRow(lisa, BenchmarkData.SESSION_ID, lisaGeometry);
+    }
+
+    private static LayerDefinition layer(String name, String geometryField) {
+        LayerDefinition layer = new LayerDefinition();
+        layer.setName(name);
+        layer.setGeometryField(geometryField);
+        return layer;
+    }
+}
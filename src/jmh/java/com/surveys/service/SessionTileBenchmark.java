@@ -0,0 +1,148 @@
+package com.surveys.service;
+
+import com.surveys.config.LayerDefinition;
+import com.surveys.geo.GeometryParts;
+import com.surveys.geo.GeometryWriters;
+import com.surveys.geo.TileProjection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tile latency of the Java tile engine for a hot session (geometries held by
+ * {@link SessionTileEngine}) against generating each tile from the session's raw EPSG:4326
+ * features, which re-reads and re-projects every feature per tile the way the SQL path does (minus
+ * the database round trip). The session is shaped like a synthetic survey: 5000 FOV polygons and
+ * breadcrumb segments between 20000 GPS fixes along a route. At zoom 10 the tile holds the whole
+ * session, generalized, which bounds the cost of low-zoom tiles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionTileBenchmark {
+
+    private static final double CENTER_LON = -121.97;
+    private static final double CENTER_LAT = 37.39;
+
+    @Param({"10", "13", "16"})
+    public int zoom;
+
+    private final LayerDefinition fov = layer("fov", GeometryWriters.Type.POLYGON, LayerDefinition.Generalization.SIMPLIFY);
+    private final LayerDefinition breadcrumb = layer("breadcrumb", GeometryWriters.Type.LINESTRING, LayerDefinition.Generalization.SIMPLIFY);
+    private final LayerGeometries.TileGeneralization generalization = new LayerGeometries.TileGeneralization(13, 1.0, 13, 64);
+
+    private double[][] fovFeatures;
+    private double[][] breadcrumbFeatures;
+    private LayerGeometries fovGeometries;
+    private LayerGeometries breadcrumbGeometries;
+    private int tileX;
+    private int tileY;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        double[][] route = new double[20000][];
+        double lon = CENTER_LON;
+        double lat = CENTER_LAT;
+        for (int i = 0; i < route.length; i++) {
+            lon += (random.nextDouble() - 0.5) * 0.0004;
+            lat += (random.nextDouble() - 0.5) * 0.0004;
+            route[i] = new double[]{lon, lat};
+        }
+        breadcrumbFeatures = new double[route.length - 1][];
+        for (int i = 0; i < breadcrumbFeatures.length; i++) {
+            breadcrumbFeatures[i] = new double[]{route[i][0], route[i][1], route[i + 1][0], route[i + 1][1]};
+        }
+        fovFeatures = new double[5000][];
+        for (int i = 0; i < fovFeatures.length; i++) {
+            fovFeatures[i] = wedge(random, route[i * 4]);
+        }
+        fovGeometries = load(fov, fovFeatures);
+        breadcrumbGeometries = load(breadcrumb, breadcrumbFeatures);
+
+        double n = 1L << zoom;
+        tileX = (int) ((CENTER_LON + 180) / 360 * n);
+        double sin = Math.sin(Math.toRadians(CENTER_LAT));
+        tileY = (int) ((0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * n);
+    }
+
+    @Benchmark
+    public byte[] fovTileFromSessionCache() {
+        return fovGeometries.encodeTile(fov, generalization, zoom, tileX, tileY);
+    }
+
+    @Benchmark
+    public byte[] fovTileReprojectingSession() {
+        return load(fov, fovFeatures).encodeTile(fov, generalization, zoom, tileX, tileY);
+    }
+
+    @Benchmark
+    public byte[] breadcrumbTileFromSessionCache() {
+        return breadcrumbGeometries.encodeTile(breadcrumb, generalization, zoom, tileX, tileY);
+    }
+
+    @Benchmark
+    public byte[] breadcrumbTileReprojectingSession() {
+        return load(breadcrumb, breadcrumbFeatures).encodeTile(breadcrumb, generalization, zoom, tileX, tileY);
+    }
+
+    private static LayerGeometries load(LayerDefinition layer, double[][] features) {
+        LayerGeometries.Builder builder = LayerGeometries.builder(layer.getGeometryType(), layer.getAttributes());
+        Object[] attributes = {BenchmarkData.SESSION_ID};
+        for (double[] feature : features) {
+            double[] projected = new double[feature.length];
+            for (int v = 0; v < feature.length; v += 2) {
+                projected[v] = TileProjection.mercatorX(feature[v]);
+                projected[v + 1] = TileProjection.mercatorY(feature[v + 1]);
+            }
+            builder.accept(GeometryParts.single(projected), attributes);
+        }
+        return builder.build();
+    }
+
+    /**
+     * A closed field-of-view wedge of {@link BenchmarkData#FOV_VERTICES} vertices opening from
+     * {@code apex}.
+     */
+    private static double[] wedge(Random random, double[] apex) {
+        int arcVertices = BenchmarkData.FOV_VERTICES - 2;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        double radius = 0.0005 + random.nextDouble() * 0.001;
+        double[] ring = new double[(arcVertices + 2) * 2];
+        ring[0] = apex[0];
+        ring[1] = apex[1];
+        for (int i = 0; i < arcVertices; i++) {
+            double angle = heading - 0.5 + i / (double) (arcVertices - 1);
+            ring[2 + 2 * i] = apex[0] + radius * Math.cos(angle);
+            ring[3 + 2 * i] = apex[1] + radius * Math.sin(angle);
+        }
+        ring[ring.length - 2] = apex[0];
+        ring[ring.length - 1] = apex[1];
+        return ring;
+    }
+
+    private static LayerDefinition layer(String name, GeometryWriters.Type type,
+                                         LayerDefinition.Generalization generalization) {
+        LayerDefinition layer = new LayerDefinition();
+        layer.setName(name);
+        layer.setGeometryType(type);
+        layer.setGeneralization(generalization);
+        layer.setAttributes(List.of("surveySessionId"));
+        return layer;
+    }
+}
@@ -0,0 +1,203 @@
+package com.surveys.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.surveys.dto.BatchResponse;
+import com.surveys.dto.FeatureResponse;
+import com.surveys.dto.RawJson;
+import com.surveys.geo.GeometryWriters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to the first SSE batch and total time of streaming one session's FOV features, through one
+ * server-side cursor (the current {@code readFeatures}) against the former loop of
+ * {@code ORDER BY ctid LIMIT 1000 OFFSET ?} queries.
+ *
+ * <p>There is no database in the benchmark, so the table is modelled in memory with the work
+ * PostgreSQL does for each query shape: every page of the paging loop sorts the session by ctid
+ * and produces ({@code ST_AsGeoJSON}) all rows before its offset only to discard them, while the
+ * cursor reads the session once in key order from the {@code (surveySessionId, id)} index. Both
+ * then map rows and write SSE batch frames of 100 features with the application's code. Absolute
+ * numbers leave out the database's I/O; the shape of the curves over session size is the point.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamPagingBenchmark {
+
+    // Page size of the former paging loop, and fetch size of the cursor
+    private static final int PAGE_SIZE = 1000;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"10000", "50000"})
+    private int rows;
+
+    // Configured like the application's ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private double[][] geometries;
+    // Physical position of each row in key order, as (ctid << 32) | row
+    private long[] ctids;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        geometries = new double[rows][];
+        for (int i = 0; i < rows; i++) {
+            geometries[i] = BenchmarkData.polygon(random, BenchmarkData.FOV_VERTICES);
+        }
+        // Rows of a session end up scattered over the heap among other sessions' rows
+        int[] positions = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            positions[i] = i;
+        }
+        for (int i = rows - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = positions[i];
+            positions[i] = positions[j];
+            positions[j] = swap;
+        }
+        ctids = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            ctids[row] = ((long) positions[row] << 32) | row;
+        }
+    }
+
+    @Benchmark
+    public Object firstBatchCursor(Blackhole blackhole) throws IOException {
+        return cursor(new Batches(true), blackhole);
+    }
+
+    @Benchmark
+    public Object firstBatchOffsetPaging(Blackhole blackhole) throws IOException {
+        return offsetPaging(new Batches(true), blackhole);
+    }
+
+    @Benchmark
+    public Object allBatchesCursor(Blackhole blackhole) throws IOException {
+        return cursor(new Batches(false), blackhole);
+    }
+
+    @Benchmark
+    public Object allBatchesOffsetPaging(Blackhole blackhole) throws IOException {
+        return offsetPaging(new Batches(false), blackhole);
+    }
+
+    private Object cursor(Batches batches, Blackhole blackhole) throws IOException {
+        // Each fetch arrives whole before the application sees its first row
+        byte[][] fetched = new byte[PAGE_SIZE][];
+        for (int fetchStart = 0; fetchStart < rows; fetchStart += PAGE_SIZE) {
+            int count = Math.min(rows - fetchStart, PAGE_SIZE);
+            for (int i = 0; i < count; i++) {
+                fetched[i] = produce(fetchStart + i);
+            }
+            if (batches.addAll(fetched, count)) {
+                blackhole.consume(batches);
+                return batches.first;
+            }
+        }
+        return batches.finish();
+    }
+
+    private Object offsetPaging(Batches batches, Blackhole blackhole) throws IOException {
+        for (int offset = 0; offset < rows; offset += PAGE_SIZE) {
+            long[] ordered = ctids.clone();
+            Arrays.sort(ordered);
+            // OFFSET rows are produced by the plan and thrown away by the Limit node
+            for (int i = 0; i < offset; i++) {
+                blackhole.consume(produce((int) ordered[i]));
+            }
+            int count = Math.min(rows - offset, PAGE_SIZE);
+            byte[][] page = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                page[i] = produce((int) ordered[offset + i]);
+            }
+            if (batches.addAll(page, count)) {
+                blackhole.consume(batches);
+                return batches.first;
+            }
+        }
+        return batches.finish();
+    }
+
+    /**
+     * A row as the query returns it: the geometry as {@code ST_AsGeoJSON} text.
+     */
+    private byte[] produce(int row) {
+        double[] geometry = geometries[row];
+        return GeometryWriters.geoJson(GeometryWriters.Type.POLYGON, geometry, geometry.length / 2);
+    }
+
+    /**
+     * Maps rows and writes SSE batch frames like the JSON stream.
+     */
+    private final class Batches {
+
+        final boolean firstOnly;
+        final List<FeatureResponse> batch = new ArrayList<>(BATCH_SIZE);
+        Object first;
+        int frames;
+        int total;
+
+        Batches(boolean firstOnly) {
+            this.firstOnly = firstOnly;
+        }
+
+        /**
+         * @return true once the first frame is written, if only that is wanted
+         */
+        boolean addAll(byte[][] geometries, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                batch.add(new FeatureResponse(BenchmarkData.SESSION_ID, "geometry", RawJson.of(geometries[i])));
+                total++;
+                if (batch.size() == BATCH_SIZE) {
+                    flush();
+                    if (firstOnly) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        Object finish() throws IOException {
+            if (!batch.isEmpty()) {
+                flush();
+            }
+            return frames;
+        }
+
+        private void flush() throws IOException {
+            Object frame = SseEmitter.event()
+                .data(objectMapper.writeValueAsBytes(new BatchResponse<>(batch, total)))
+                .build();
+            if (first == null) {
+                first = frame;
+            }
+            frames++;
+            batch.clear();
+        }
+    }
+}
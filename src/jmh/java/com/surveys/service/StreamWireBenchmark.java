@@ -0,0 +1,296 @@
+package com.surveys.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.surveys.SurveysApplication;
+import com.surveys.config.LayerDefinition;
+import com.surveys.config.LayerRegistry;
+import com.surveys.dto.BatchResponse;
+import com.surveys.dto.FeatureResponse;
+import com.surveys.repository.FeatureFilter;
+import com.surveys.repository.FeatureQuery;
+import com.surveys.repository.GeometryEncoding;
+import com.surveys.repository.LayerRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bytes on the wire and client decode time of one synthetic session's layer stream, as
+ * GeoJSON-over-SSE against the binary TWKB stream ({@link BinaryFrames}). Both responses are
+ * built once from the synthetic backend's features with the application's encoders and batch size:
+ * SSE {@code data:} events of {@code BatchResponse} JSON, and binary batch frames followed by the
+ * end frame.
+ *
+ * <p>Each benchmark decodes the whole response into per-feature coordinate arrays, the way a
+ * client gets to drawable geometry: the SSE stream by splitting events and parsing their JSON, the
+ * binary stream by reading frames and decoding TWKB. The response sizes are reported as secondary
+ * results, {@code wireBytes} as written and {@code gzipWireBytes} after the response compression,
+ * which flushes gzip once per frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamWireBenchmark {
+
+    private static final String SESSION_ID = "benchmark-session";
+
+    @Param({"fov", "breadcrumb", "lisa"})
+    private String layer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String geometryField;
+    private byte[] sseResponse;
+    private byte[] binaryResponse;
+    private long sseGzipBytes;
+    private long binaryGzipBytes;
+
+    /**
+     * Sizes of the decoded response; assigned rather than summed, so they read as bytes per stream.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Wire {
+        public long wireBytes;
+        public long gzipWireBytes;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        ConfigurableApplicationContext context = SpringApplication.run(SurveysApplication.class,
+            "--spring.main.web-application-type=none",
+            "--spring.main.banner-mode=off",
+            "--layers.backend=synthetic",
+            "--tiles.store.enabled=false",
+            "--logging.level.root=WARN");
+        try {
+            LayerRepository repository = context.getBean(LayerRepository.class);
+            LayerDefinition definition = context.getBean(LayerRegistry.class).get(layer);
+            int batchSize = definition.getDefaultBatchSize();
+            geometryField = definition.getGeometryField();
+            int precision = context.getEnvironment().getProperty("streams.binary.precision", Integer.class, 6);
+            ObjectMapper applicationMapper = context.getBean(ObjectMapper.class);
+
+            List<byte[]> sseFrames = new ArrayList<>();
+            List<FeatureResponse> jsonBatch = new ArrayList<>(batchSize);
+            int[] total = {0};
+            repository.readFeatures(new FeatureQuery(layer, SESSION_ID, null, FeatureFilter.NONE, Integer.MAX_VALUE,
+                GeometryEncoding.GEOJSON, 0), (surveySessionId, key, geometry) -> {
+                    jsonBatch.add(StreamingService.mapFeatureRow(definition, surveySessionId, geometry));
+                    total[0]++;
+                    if (jsonBatch.size() == batchSize) {
+                        sseFrames.add(sseEvent(applicationMapper, jsonBatch, total[0]));
+                        jsonBatch.clear();
+                    }
+                    return true;
+                });
+            if (!jsonBatch.isEmpty()) {
+                sseFrames.add(sseEvent(applicationMapper, jsonBatch, total[0]));
+            }
+
+            List<byte[]> binaryFrames = new ArrayList<>();
+            List<BinaryFrames.Feature> binaryBatch = new ArrayList<>(batchSize);
+            total[0] = 0;
+            repository.readFeatures(new FeatureQuery(layer, SESSION_ID, null, FeatureFilter.NONE, Integer.MAX_VALUE,
+                GeometryEncoding.TWKB, precision), (surveySessionId, key, geometry) -> {
+                    binaryBatch.add(StreamingService.mapBinaryRow(surveySessionId, geometry));
+                    total[0]++;
+                    if (binaryBatch.size() == batchSize) {
+                        binaryFrames.add(BinaryFrames.batch(binaryBatch, total[0]));
+                        binaryBatch.clear();
+                    }
+                    return true;
+                });
+            if (!binaryBatch.isEmpty()) {
+                binaryFrames.add(BinaryFrames.batch(binaryBatch, total[0]));
+            }
+            binaryFrames.add(BinaryFrames.end(total[0]));
+
+            sseResponse = concat(sseFrames);
+            binaryResponse = concat(binaryFrames);
+            sseGzipBytes = gzipSize(sseFrames);
+            binaryGzipBytes = gzipSize(binaryFrames);
+        } finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int decodeSseJson(Wire wire, Blackhole blackhole) throws IOException {
+        wire.wireBytes = sseResponse.length;
+        wire.gzipWireBytes = sseGzipBytes;
+        String text = new String(sseResponse, StandardCharsets.UTF_8);
+        int features = 0;
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf("\n\n", start);
+            JsonNode batch = objectMapper.readTree(text.substring(start + "data:".length(), end));
+            for (JsonNode feature : batch.get("results")) {
+                blackhole.consume(feature.get("surveySessionId").asText());
+                blackhole.consume(coordinates(feature.get(geometryField)));
+                features++;
+            }
+            start = end + 2;
+        }
+        return features;
+    }
+
+    @Benchmark
+    public int decodeBinary(Wire wire, Blackhole blackhole) {
+        wire.wireBytes = binaryResponse.length;
+        wire.gzipWireBytes = binaryGzipBytes;
+        ByteBuffer buffer = ByteBuffer.wrap(binaryResponse);
+        int features = 0;
+        while (buffer.hasRemaining()) {
+            byte type = buffer.get();
+            int length = buffer.getInt();
+            if (type != BinaryFrames.BATCH) {
+                buffer.position(buffer.position() + length);
+                continue;
+            }
+            buffer.getInt(); // totalProcessed
+            int count = buffer.getInt();
+            String surveySessionId = null;
+            for (int i = 0; i < count; i++) {
+                int idLength = (int) readVarint(buffer);
+                if (idLength > 0) {
+                    surveySessionId = new String(binaryResponse, buffer.position(), idLength, StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + idLength);
+                }
+                int geometryLength = (int) readVarint(buffer);
+                int geometryEnd = buffer.position() + geometryLength;
+                blackhole.consume(surveySessionId);
+                blackhole.consume(twkbCoordinates(buffer));
+                buffer.position(geometryEnd);
+                features++;
+            }
+        }
+        return features;
+    }
+
+    private static byte[] sseEvent(ObjectMapper objectMapper, List<FeatureResponse> batch, int totalProcessed) {
+        // What SseEmitter writes for SseEmitter.event().data(json)
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(new BatchResponse<>(batch, totalProcessed));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteArrayOutputStream event = new ByteArrayOutputStream(json.length + 7);
+        event.writeBytes("data:".getBytes(StandardCharsets.UTF_8));
+        event.writeBytes(json);
+        event.writeBytes("\n\n".getBytes(StandardCharsets.UTF_8));
+        return event.toByteArray();
+    }
+
+    private static byte[] concat(List<byte[]> frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        frames.forEach(out::writeBytes);
+        return out.toByteArray();
+    }
+
+    private static long gzipSize(List<byte[]> frames) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, true)) {
+            for (byte[] frame : frames) {
+                gzip.write(frame);
+                gzip.flush();
+            }
+        }
+        return out.size();
+    }
+
+    /**
+     * @return Flat {@code lon, lat} array of a GeoJSON point, line string or single-ring polygon
+     */
+    private static double[] coordinates(JsonNode geometry) {
+        JsonNode positions = geometry.get("coordinates");
+        if (positions.get(0).isNumber()) {
+            return new double[]{positions.get(0).asDouble(), positions.get(1).asDouble()};
+        }
+        if (positions.get(0).get(0).isArray()) {
+            positions = positions.get(0);
+        }
+        double[] coordinates = new double[positions.size() * 2];
+        for (int i = 0; i < positions.size(); i++) {
+            coordinates[2 * i] = positions.get(i).get(0).asDouble();
+            coordinates[2 * i + 1] = positions.get(i).get(1).asDouble();
+        }
+        return coordinates;
+    }
+
+    /**
+     * @return Flat {@code lon, lat} array of a TWKB point, line string or single-ring polygon as
+     *         {@link com.surveys.geo.GeometryWriters#twkb} writes them
+     */
+    private static double[] twkbCoordinates(ByteBuffer buffer) {
+        int header = buffer.get();
+        int type = header & 0x0F;
+        int precision = unzigzag((header & 0xF0) >>> 4);
+        buffer.get(); // metadata
+        double scale = Math.pow(10, -precision);
+        int count = 1;
+        if (type == 3) {
+            readVarint(buffer); // rings
+        }
+        if (type != 1) {
+            count = (int) readVarint(buffer);
+        }
+        double[] coordinates = new double[count * 2];
+        long x = 0;
+        long y = 0;
+        for (int i = 0; i < count; i++) {
+            x += unzigzag(readVarint(buffer));
+            y += unzigzag(readVarint(buffer));
+            coordinates[2 * i] = x * scale;
+            coordinates[2 * i + 1] = y * scale;
+        }
+        return coordinates;
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
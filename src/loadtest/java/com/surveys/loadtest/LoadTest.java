@@ -0,0 +1,397 @@
+package com.surveys.loadtest;
+
+import com.surveys.SurveysApplication;
+import com.surveys.service.StreamingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reproducible load test of the full HTTP stack against the synthetic layer backend. Boots the
+ * application on a random port with {@code layers.backend=synthetic} and the on-disk tile store
+ * disabled, then drives it over HTTP with a fixed number of concurrent clients:
+ *
+ * <ul>
+ *   <li>every map tile covering each session at one zoom, first cold (generated) and then warm
+ *       (served from the in-memory cache), loaded once as three concurrent per-layer requests the
+ *       way the viewer loads them and once as one combined {@code fov,breadcrumb,lisa} request;
+ *       latency is per map tile, until its last response is read. The two paths use different
+ *       sessions of the same shape, so neither warms the cache of the other</li>
+ *   <li>full SSE streams of each layer</li>
+ *   <li>full session streams multiplexing all layers on one connection</li>
+ *   <li>full binary TWKB streams of each layer</li>
+ *   <li>over-admission: {@code 2 * (streams.max-concurrent + streams.max-queued)} streams opened at
+ *       once (or {@code loadtest.overload-clients} if set above 0), while cold tiles are requested alongside</li>
+ * </ul>
+ *
+ * <p>Prints p50/p90/p99/max latencies and throughput per scenario and writes the same report to
+ * {@code loadtest.report}. The over-admission scenario must degrade gracefully, or the load test
+ * fails after writing its report: streams beyond the admission limits are answered 503 with a
+ * Retry-After header, every other stream and every tile succeeds, the database connections held
+ * at once (sampled from {@code surveys.db.connections.active}) stay within the Hikari pool size,
+ * and Hikari records no connection timeouts. Run with {@code mvn -Ploadtest verify}; settings are system properties
+ * ({@code -Dloadtest.concurrency=32}) defaulted in the {@code loadtest} profile of the pom.
+ */
+public final class LoadTest {
+
+    private static final List<String> LAYERS = List.of("fov", "breadcrumb", "lisa");
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int concurrency;
+
+    private LoadTest(String baseUrl, int concurrency) {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+        this.client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = Integer.getInteger("loadtest.sessions", 4);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        int zoom = Integer.getInteger("loadtest.zoom", 16);
+        int streamRounds = Integer.getInteger("loadtest.stream-rounds", 4);
+        Path reportFile = Path.of(System.getProperty("loadtest.report", "target/loadtest-report.txt"));
+
+        ConfigurableApplicationContext context = SpringApplication.run(SurveysApplication.class,
+            "--server.port=0",
+            "--layers.backend=synthetic",
+            "--tiles.store.enabled=false",
+            "--logging.level.com.surveys=INFO");
+        try {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            LoadTest loadTest = new LoadTest("http://localhost:" + port, concurrency);
+            StreamingService streamingService = context.getBean(StreamingService.class);
+
+            List<String> sessionIds = new ArrayList<>();
+            List<List<String>> separateTiles = new ArrayList<>();
+            List<List<String>> combinedTiles = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                String sessionId = "loadtest-session-" + i;
+                sessionIds.add(sessionId);
+                String combinedSessionId = "loadtest-combined-session-" + i;
+                for (int[] tile : tiles(streamingService.getSessionExtent(sessionId), zoom)) {
+                    List<String> paths = new ArrayList<>();
+                    for (String layer : LAYERS) {
+                        paths.add(tilePath(layer, zoom, tile, sessionId));
+                    }
+                    separateTiles.add(paths);
+                }
+                for (int[] tile : tiles(streamingService.getSessionExtent(combinedSessionId), zoom)) {
+                    combinedTiles.add(List.of(tilePath(String.join(",", LAYERS), zoom, tile, combinedSessionId)));
+                }
+            }
+
+            List<String> ssePaths = new ArrayList<>();
+            List<String> binaryPaths = new ArrayList<>();
+            List<String> sessionPaths = new ArrayList<>();
+            for (int round = 0; round < streamRounds; round++) {
+                for (String sessionId : sessionIds) {
+                    sessionPaths.add("/api/session/" + sessionId + "/stream");
+                    for (String layer : LAYERS) {
+                        ssePaths.add("/api/" + layer + "?surveySessionId=" + sessionId);
+                        binaryPaths.add("/api/" + layer + "?format=binary&surveySessionId=" + sessionId);
+                    }
+                }
+            }
+
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.ROOT,
+                "Surveys load test - sessions: %d, concurrency: %d, zoom: %d, stream rounds: %d%n%n",
+                sessions, concurrency, zoom, streamRounds));
+            report.append(String.format(Locale.ROOT, "%-20s %8s %7s %12s %9s %9s %9s %9s %10s%n",
+                "scenario", "requests", "errors", "bytes", "p50 ms", "p90 ms", "p99 ms", "max ms", "req/s"));
+
+            String mvt = "application/vnd.mapbox-vector-tile";
+            report.append(loadTest.run("tiles-separate-cold", separateTiles, mvt)).append('\n');
+            report.append(loadTest.run("tiles-combined-cold", combinedTiles, mvt)).append('\n');
+            report.append(loadTest.run("tiles-separate-warm", separateTiles, mvt)).append('\n');
+            report.append(loadTest.run("tiles-combined-warm", combinedTiles, mvt)).append('\n');
+            report.append(loadTest.run("sse-streams", single(ssePaths), "text/event-stream")).append('\n');
+            report.append(loadTest.run("session-streams", single(sessionPaths), "text/event-stream")).append('\n');
+            report.append(loadTest.run("binary-streams", single(binaryPaths), "application/vnd.surveys.twkb-stream")).append('\n');
+
+            List<String> failures = loadTest.overload(context, sessionIds, zoom, report);
+
+            System.out.println();
+            System.out.println(report);
+            Files.createDirectories(reportFile.toAbsolutePath().getParent());
+            Files.writeString(reportFile, report, StandardCharsets.UTF_8);
+            System.out.println("Report written to " + reportFile.toAbsolutePath());
+            if (!failures.isEmpty()) {
+                throw new IllegalStateException("Over-admission did not degrade gracefully: " + failures);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Opens more streams at once than admission control lets run or wait, with cold tile requests
+     * alongside, and appends the scenario to {@code report}.
+     *
+     * @return Violations of graceful degradation; empty if there are none
+     */
+    private List<String> overload(ConfigurableApplicationContext context, List<String> sessionIds, int zoom,
+                                  StringBuilder report) throws Exception {
+        int maxConcurrent = context.getEnvironment().getProperty("streams.max-concurrent", Integer.class, 12);
+        int maxQueued = context.getEnvironment().getProperty("streams.max-queued", Integer.class, 32);
+        int poolSize = context.getEnvironment().getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int clients = Integer.getInteger("loadtest.overload-clients", 0);
+        if (clients <= 0) {
+            clients = 2 * (maxConcurrent + maxQueued);
+        }
+        MeterRegistry registry = context.getBean(MeterRegistry.class);
+
+        List<List<String>> streams = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            streams.add(List.of("/api/" + LAYERS.get(i % LAYERS.size()) + "?surveySessionId="
+                + sessionIds.get(i % sessionIds.size())));
+        }
+        String tileSessionId = "loadtest-overload-session";
+        List<List<String>> tiles = new ArrayList<>();
+        for (int[] tile : tiles(context.getBean(StreamingService.class).getSessionExtent(tileSessionId), zoom)) {
+            tiles.add(List.of(tilePath(String.join(",", LAYERS), zoom, tile, tileSessionId)));
+        }
+
+        // Peak of the connections held by all endpoints together, sampled while the scenario runs
+        AtomicBoolean running = new AtomicBoolean(true);
+        int[] peakConnections = {0};
+        Thread sampler = Thread.ofVirtual().start(() -> {
+            while (running.get()) {
+                double held = registry.find("surveys.db.connections.active").gauges().stream()
+                    .mapToDouble(Gauge::value).sum();
+                peakConnections[0] = Math.max(peakConnections[0], (int) held);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        Execution streamExecution;
+        Execution tileExecution;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Execution> tileFuture = executor.submit(() -> execute(tiles, "application/vnd.mapbox-vector-tile", concurrency));
+            streamExecution = execute(streams, "text/event-stream", clients);
+            tileExecution = tileFuture.get();
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+        double hikariTimeouts = registry.find("hikaricp.connections.timeout").counters().stream()
+            .mapToDouble(Counter::count).sum();
+
+        long admitted = streamExecution.results().stream().filter(result -> result.status() == 200).count();
+        long rejected = streamExecution.results().stream().filter(result -> result.status() == 503).count();
+        report.append(format("overload-streams", streamExecution)).append('\n');
+        report.append(format("overload-tiles", tileExecution)).append('\n');
+        report.append(String.format(Locale.ROOT,
+            "%noverload: %d clients, %d admitted, %d rejected with 503, peak connections %d of %d, hikari timeouts %.0f%n",
+            clients, admitted, rejected, peakConnections[0], poolSize, hikariTimeouts));
+
+        List<String> failures = new ArrayList<>();
+        if (rejected == 0) {
+            failures.add("no stream was rejected with 503");
+        }
+        if (admitted + rejected < clients) {
+            failures.add((clients - admitted - rejected) + " streams failed otherwise than with 503");
+        }
+        if (streamExecution.results().stream().anyMatch(result -> result.status() == 503 && !result.retryAfter())) {
+            failures.add("503 without Retry-After");
+        }
+        if (tileExecution.errors() > 0) {
+            failures.add(tileExecution.errors() + " tile requests failed");
+        }
+        if (peakConnections[0] > poolSize) {
+            failures.add("peak connections " + peakConnections[0] + " exceed the pool size " + poolSize);
+        }
+        if (hikariTimeouts > 0) {
+            failures.add(String.format(Locale.ROOT, "%.0f hikari connection timeouts", hikariTimeouts));
+        }
+        return failures;
+    }
+
+    /**
+     * Requests every unit once with at most {@code concurrency} units in flight. The paths of a
+     * unit are requested concurrently, and each response body is read to the end; a unit's
+     * latency lasts until its last response is read.
+     *
+     * @return Report line of the scenario, counting units as requests
+     */
+    private String run(String scenario, List<List<String>> units, String accept) throws Exception {
+        return format(scenario, execute(units, accept, concurrency));
+    }
+
+    private Execution execute(List<List<String>> units, String accept, int concurrency) throws Exception {
+        Semaphore inFlight = new Semaphore(concurrency);
+        List<Future<Result>> futures = new ArrayList<>(units.size());
+        long startNanos = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<String> unit : units) {
+                inFlight.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return request(unit, accept);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        List<Result> results = new ArrayList<>(futures.size());
+        for (Future<Result> future : futures) {
+            results.add(future.get());
+        }
+        return new Execution(results, elapsedSeconds);
+    }
+
+    private static String format(String scenario, Execution execution) {
+        long[] latencies = new long[execution.results().size()];
+        long bytes = 0;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = execution.results().get(i).nanos();
+            bytes += execution.results().get(i).bytes();
+        }
+        Arrays.sort(latencies);
+
+        return String.format(Locale.ROOT, "%-20s %8d %7d %12d %9.2f %9.2f %9.2f %9.2f %10.1f",
+            scenario, latencies.length, execution.errors(), bytes,
+            percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+            latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1e6,
+            latencies.length / execution.elapsedSeconds());
+    }
+
+    private Result request(List<String> paths, String accept) throws Exception {
+        if (paths.size() == 1) {
+            return request(paths.get(0), accept);
+        }
+        long start = System.nanoTime();
+        List<Future<Result>> futures = new ArrayList<>(paths.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String path : paths) {
+                futures.add(executor.submit(() -> request(path, accept)));
+            }
+        }
+        long bytes = 0;
+        Result failed = null;
+        for (Future<Result> future : futures) {
+            bytes += future.get().bytes();
+            if (failed == null && !future.get().ok()) {
+                failed = future.get();
+            }
+        }
+        return failed == null
+            ? new Result(System.nanoTime() - start, bytes, 200, false)
+            : new Result(System.nanoTime() - start, bytes, failed.status(), failed.retryAfter());
+    }
+
+    private Result request(String path, String accept) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Accept", accept)
+            .header("Accept-Encoding", "gzip")
+            .timeout(Duration.ofMinutes(2))
+            .GET()
+            .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long bytes;
+            try (InputStream body = response.body()) {
+                bytes = body.transferTo(OutputStream.nullOutputStream());
+            }
+            return new Result(System.nanoTime() - start, bytes, response.statusCode(),
+                response.headers().firstValue("Retry-After").isPresent());
+        } catch (IOException e) {
+            return new Result(System.nanoTime() - start, 0, 0, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(System.nanoTime() - start, 0, 0, false);
+        }
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds.
+     */
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(quantile * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    /**
+     * @return {x, y} of every tile at zoom {@code z} covering {@code extent}
+     */
+    private static List<int[]> tiles(double[] extent, int z) {
+        List<int[]> tiles = new ArrayList<>();
+        for (int x = tileX(extent[0], z); x <= tileX(extent[2], z); x++) {
+            for (int y = tileY(extent[3], z); y <= tileY(extent[1], z); y++) {
+                tiles.add(new int[]{x, y});
+            }
+        }
+        return tiles;
+    }
+
+    private static String tilePath(String layers, int z, int[] tile, String surveySessionId) {
+        return "/api/mvt/" + layers + "/" + z + "/" + tile[0] + "/" + tile[1] + "?surveySessionId=" + surveySessionId;
+    }
+
+    private static List<List<String>> single(List<String> paths) {
+        return paths.stream().map(List::of).toList();
+    }
+
+    private static int tileX(double lon, int z) {
+        return (int) Math.floor((lon + 180.0) / 360.0 * (1 << z));
+    }
+
+    private static int tileY(double lat, int z) {
+        double latRad = Math.toRadians(lat);
+        return (int) Math.floor((1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * (1 << z));
+    }
+
+    /**
+     * @param status HTTP status, or 0 if the request failed without one
+     */
+    private record Result(long nanos, long bytes, int status, boolean retryAfter) {
+
+        boolean ok() {
+            return status == 200 || status == 204;
+        }
+    }
+
+    private record Execution(List<Result> results, double elapsedSeconds) {
+
+        int errors() {
+            return (int) results.stream().filter(result -> !result.ok()).count();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.surveys.config;
+
+import com.surveys.geo.GeometryWriters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One survey layer as configured under {@code layers.definitions.<name>}: where it is stored, how
+ * it is streamed and how its vector tiles are built. The name is the layer's path segment in
+ * {@code /api/<name>} and {@code /api/mvt/<name>/{z}/{x}/{y}}.
+ */
+public class LayerDefinition {
+
+    /**
+     * Low-zoom generalization of the layer's tiles; thresholds are set with
+     * {@code tiles.generalize.*}.
+     */
+    public enum Generalization {
+        NONE,
+        SIMPLIFY,
+        CLUSTER
+    }
+
+    private String name;
+    private String table;
+    private String geometryColumn = "geom";
+    private String keyColumn = "id";
+    private String keyType = "bigint";
+    private String timeColumn;
+    private int srid = 4326;
+    private GeometryWriters.Type geometryType = GeometryWriters.Type.POLYGON;
+    private String geometryField = "geometry";
+    private String mvtLayerName;
+    private List<String> attributes = new ArrayList<>(List.of("surveySessionId"));
+    private Generalization generalization = Generalization.NONE;
+    private int extent = 4096;
+    private int buffer = 256;
+    private int maxZoom = 20;
+    private int fetchSize = 1000;
+    private int defaultBatchSize = 100;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Schema-qualified table, e.g. {@code public.layer_fov_copy}.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public String getGeometryColumn() {
+        return geometryColumn;
+    }
+
+    public void setGeometryColumn(String geometryColumn) {
+        this.geometryColumn = geometryColumn;
+    }
+
+    /**
+     * Unique, immutable column streams are ordered by; its values are the keyset positions
+     * resumed streams continue after.
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    /**
+     * SQL type of the key column, used to cast resume positions.
+     */
+    public String getKeyType() {
+        return keyType;
+    }
+
+    public void setKeyType(String keyType) {
+        this.keyType = keyType;
+    }
+
+    /**
+     * Timestamp column streams can be filtered on with {@code timeFrom}/{@code timeTo}; null if
+     * the layer has none.
+     */
+    public String getTimeColumn() {
+        return timeColumn;
+    }
+
+    public void setTimeColumn(String timeColumn) {
+        this.timeColumn = timeColumn;
+    }
+
+    public int getSrid() {
+        return srid;
+    }
+
+    public void setSrid(int srid) {
+        this.srid = srid;
+    }
+
+    public GeometryWriters.Type getGeometryType() {
+        return geometryType;
+    }
+
+    public void setGeometryType(GeometryWriters.Type geometryType) {
+        this.geometryType = geometryType;
+    }
+
+    /**
+     * JSON property holding the geometry in SSE batches.
+     */
+    public String getGeometryField() {
+        return geometryField;
+    }
+
+    public void setGeometryField(String geometryField) {
+        this.geometryField = geometryField;
+    }
+
+    /**
+     * Name of the layer inside vector tiles; defaults to {@code <name>_layer}.
+     */
+    public String getMvtLayerName() {
+        return mvtLayerName != null ? mvtLayerName : name + "_layer";
+    }
+
+    public void setMvtLayerName(String mvtLayerName) {
+        this.mvtLayerName = mvtLayerName;
+    }
+
+    /**
+     * Columns carried into vector tiles as feature attributes.
+     */
+    public List<String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(List<String> attributes) {
+        this.attributes = attributes;
+    }
+
+    public Generalization getGeneralization() {
+        return generalization;
+    }
+
+    public void setGeneralization(Generalization generalization) {
+        this.generalization = generalization;
+    }
+
+    public int getExtent() {
+        return extent;
+    }
+
+    public void setExtent(int extent) {
+        this.extent = extent;
+    }
+
+    /**
+     * Tile buffer in extent units around each tile.
+     */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    public void setBuffer(int buffer) {
+        this.buffer = buffer;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public void setMaxZoom(int maxZoom) {
+        this.maxZoom = maxZoom;
+    }
+
+    /**
+     * Rows per cursor round trip when streaming.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Rows per emitted batch when the request does not set {@code batchSize}.
+     */
+    public int getDefaultBatchSize() {
+        return defaultBatchSize;
+    }
+
+    public void setDefaultBatchSize(int defaultBatchSize) {
+        this.defaultBatchSize = defaultBatchSize;
+    }
+}
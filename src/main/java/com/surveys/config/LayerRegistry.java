@@ -0,0 +1,85 @@
+package com.surveys.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Survey layers served by the streams and tiles, bound from {@code layers.definitions.*}. Adding a
+ * layer or tuning one is a configuration change; layers keep the order in which they are
+ * configured.
+ */
+@Component
+@ConfigurationProperties(prefix = "layers")
+public class LayerRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(LayerRegistry.class);
+
+    private Map<String, LayerDefinition> definitions = new LinkedHashMap<>();
+
+    @PostConstruct
+    void validate() {
+        if (definitions.isEmpty()) {
+            throw new IllegalStateException("No layers configured under layers.definitions");
+        }
+        definitions.forEach((name, definition) -> {
+            definition.setName(name);
+            if (definition.getTable() == null || definition.getTable().isBlank()) {
+                throw new IllegalStateException("layers.definitions." + name + ".table is required");
+            }
+            if (definition.getMaxZoom() < 0 || definition.getMaxZoom() > 30) {
+                throw new IllegalStateException("layers.definitions." + name + ".max-zoom must be between 0 and 30");
+            }
+            if (definition.getFetchSize() < 1 || definition.getDefaultBatchSize() < 1) {
+                throw new IllegalStateException("layers.definitions." + name
+                    + ".fetch-size and default-batch-size must be positive");
+            }
+        });
+        logger.info("Layer registry initialized - layers: {}", definitions.keySet());
+    }
+
+    public Map<String, LayerDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    public void setDefinitions(Map<String, LayerDefinition> definitions) {
+        this.definitions = definitions;
+    }
+
+    /**
+     * @return The layer definition, or null if no such layer is configured
+     */
+    public LayerDefinition find(String name) {
+        return definitions.get(name);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no such layer is configured
+     */
+    public LayerDefinition get(String name) {
+        LayerDefinition definition = definitions.get(name);
+        if (definition == null) {
+            throw new IllegalArgumentException("Unknown layer: " + name);
+        }
+        return definition;
+    }
+
+    public boolean contains(String name) {
+        return definitions.containsKey(name);
+    }
+
+    public List<String> names() {
+        return List.copyOf(definitions.keySet());
+    }
+
+    public Collection<LayerDefinition> all() {
+        return definitions.values();
+    }
+}
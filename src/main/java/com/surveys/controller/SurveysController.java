@@ -1,36 +1,88 @@
 package com.surveys.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.surveys.config.LayerDefinition;
+import com.surveys.config.LayerRegistry;
+import com.surveys.dto.CompressionStats;
 import com.surveys.dto.ErrorResponse;
 import com.surveys.dto.HealthResponse;
+import com.surveys.dto.SeedJobResponse;
+import com.surveys.dto.TileCacheStats;
+import com.surveys.repository.BoundingBox;
+import com.surveys.repository.FeatureFilter;
+import com.surveys.service.BinaryFrames;
+import com.surveys.service.SessionVersions;
+import com.surveys.service.StreamExecutor;
+import com.surveys.service.StreamPosition;
 import com.surveys.service.StreamingService;
+import com.surveys.service.SurveysMetrics;
+import com.surveys.service.TileCache;
+import com.surveys.service.TileCompression;
+import com.surveys.service.TileSeedService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Objects;
 
 @RestController
 public class SurveysController {
 
     private static final Logger logger = LoggerFactory.getLogger(SurveysController.class);
 
+    private static final MediaType BINARY_MEDIA_TYPE = MediaType.parseMediaType(BinaryFrames.MEDIA_TYPE);
+
     @Autowired
     private StreamingService streamingService;
 
+    @Autowired
+    private TileCache tileCache;
+
+    @Autowired
+    private TileCompression tileCompression;
+
+    @Autowired
+    private TileSeedService tileSeedService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    @Autowired
+    private StreamExecutor streamExecutor;
+
+    @Autowired
+    private SurveysMetrics metrics;
+
+    @Autowired
+    private LayerRegistry layerRegistry;
+
+    @Autowired
+    private SessionVersions sessionVersions;
+
+    @Value("${http.cache.tile-max-age-seconds:86400}")
+    private long tileMaxAgeSeconds;
+
+    @Value("${streams.pipeline.max-buffered-rows:8000}")
+    private int maxBufferedRows;
+
+    @Value("${streams.multi-session.max-sessions:50}")
+    private int maxStreamSessions;
 
     @GetMapping("/health")
     public ResponseEntity<HealthResponse> health() {
@@ -38,216 +90,319 @@ public class SurveysController {
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping(value = "/api/fov", produces = "text/event-stream")
-    public SseEmitter getFov(
-            @RequestParam(required = false) String surveySessionId,
+    /**
+     * Streams any layer of the {@link LayerRegistry} as SSE batches of GeoJSON features.
+     * {@code batchSize} defaults to the layer's configured default batch size.
+     *
+     * <p>A {@code Last-Event-ID} header, sent by EventSource when it reconnects, resumes the
+     * stream right after the last batch the client received; see {@link StreamPosition}.
+     *
+     * <p>{@code surveySessionId} may list several comma-separated sessions, which are read in
+     * parallel and merged into one stream of session-tagged batches; such streams do not resume.
+     *
+     * <p>{@code bbox=minX,minY,maxX,maxY} (in {@code bboxSrid} 4326 or 3857) limits the stream to
+     * features intersecting a viewport, and {@code timeFrom}/{@code timeTo} (ISO-8601, half-open)
+     * to a time window of layers with a time column. Both are applied in the database.
+     *
+     * <p>With {@code follow=true} the stream stays open after the backlog and pushes features added
+     * to the session later, e.g. while a survey is still driving; single sessions only.
+     */
+    @GetMapping(value = "/api/{layer}", params = "format!=binary", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> getLayerStream(
+            @PathVariable String layer,
+            @RequestParam(name = "surveySessionId", required = false) List<String> surveySessionIds,
             @RequestParam(required = false, defaultValue = "100000") int limit,
-            @RequestParam(required = false, defaultValue = "100") int batchSize) {
-        
+            @RequestParam(required = false) Integer batchSize,
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false, defaultValue = "4326") int bboxSrid,
+            @RequestParam(required = false) String timeFrom,
+            @RequestParam(required = false) String timeTo,
+            @RequestParam(required = false, defaultValue = "false") boolean follow,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+
+        LayerDefinition definition = layerRegistry.find(layer);
+        if (definition == null) {
+            logger.warn("Stream request rejected - unknown layer: {} (must be one of {})", layer, layerRegistry.names());
+            return ResponseEntity.notFound().build();
+        }
+        int effectiveBatchSize = batchSize != null ? batchSize : definition.getDefaultBatchSize();
+
         SseEmitter emitter = new SseEmitter(3600000L); // 1 hour timeout
-        
-        // Validate required parameter
-        if (surveySessionId == null || surveySessionId.trim().isEmpty()) {
+
+        // Validation errors are reported in-band as error events
+        List<String> sessionIds = sessionIds(surveySessionIds);
+        String validationError = validateStreamRequest(sessionIds, limit, effectiveBatchSize, maxBufferedRows);
+        FeatureFilter filter = null;
+        try {
+            filter = featureFilter(definition, bbox, bboxSrid, timeFrom, timeTo);
+        } catch (IllegalArgumentException e) {
+            validationError = validationError != null ? validationError : e.getMessage();
+        }
+        if (validationError == null && follow && sessionIds.size() > 1) {
+            validationError = "follow is supported for a single surveySessionId only";
+        }
+        StreamPosition resumeFrom = null;
+        if (validationError == null && sessionIds.size() == 1 && lastEventId != null && !lastEventId.isBlank()) {
             try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("surveySessionId is required", null)
-                    )));
-                emitter.complete();
-            } catch (IOException e) {
-                emitter.completeWithError(e);
+                resumeFrom = StreamPosition.parse(lastEventId.strip());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Stream request rejected - invalid Last-Event-ID: {}", lastEventId);
+                validationError = "Last-Event-ID is not a position in this stream";
             }
-            return emitter;
         }
-
-        // Validate numeric parameters
-        if (limit < 1) {
+        if (validationError != null) {
             try {
                 emitter.send(SseEmitter.event()
                     .name("error")
                     .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("limit must be a positive integer", null)
+                        new ErrorResponse(validationError, null)
                     )));
                 emitter.complete();
             } catch (IOException e) {
                 emitter.completeWithError(e);
             }
-            return emitter;
+            return ResponseEntity.ok().varyBy("Accept").body(emitter);
         }
 
-        if (batchSize < 1) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("batchSize must be a positive integer", null)
-                    )));
-                emitter.complete();
-            } catch (IOException e) {
-                emitter.completeWithError(e);
-            }
-            return emitter;
+        // A complete stream is validated by the content version of its sessions
+        String etag = !follow && resumeFrom == null ? streamEtag("json", sessionIds) : null;
+        if (etag != null && etagMatches(ifNoneMatch, etag)) {
+            return notModified(etag, CacheControl.noCache(), "Accept");
         }
 
-        // Execute streaming in a separate thread
-        executorService.execute(() -> {
+        // Execute streaming on a virtual thread once admitted
+        StreamPosition position = resumeFrom;
+        FeatureFilter featureFilter = filter;
+        int connections = sessionIds.size() > 1 ? streamingService.sessionReaders(sessionIds.size()) : 1;
+        boolean admitted = streamExecutor.submit(layer, connections, () -> {
             try {
-                streamingService.streamFovData(surveySessionId, limit, batchSize, emitter);
+                if (sessionIds.size() > 1) {
+                    streamingService.streamLayerSessions(layer, sessionIds, featureFilter, limit, effectiveBatchSize,
+                        emitter);
+                } else {
+                    streamingService.streamLayerData(layer, sessionIds.get(0), featureFilter, limit, effectiveBatchSize,
+                        position, follow, emitter);
+                }
             } catch (Exception e) {
                 emitter.completeWithError(e);
             }
         });
 
-        return emitter;
+        if (!admitted) {
+            return streamsSaturated();
+        }
+        // The binary stream is served at the same URL, chosen by Accept
+        if (etag == null) {
+            return ResponseEntity.ok().varyBy("Accept").body(emitter);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).varyBy("Accept").body(emitter);
     }
 
-    @GetMapping(value = "/api/breadcrumb", produces = "text/event-stream")
-    public SseEmitter getBreadcrumb(
-            @RequestParam(required = false) String surveySessionId,
-            @RequestParam(required = false, defaultValue = "100000") int limit,
-            @RequestParam(required = false, defaultValue = "100") int batchSize) {
-        
-        SseEmitter emitter = new SseEmitter(3600000L); // 1 hour timeout
-        
-        // Validate required parameter
-        if (surveySessionId == null || surveySessionId.trim().isEmpty()) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("surveySessionId is required", null)
-                    )));
-                emitter.complete();
-            } catch (IOException e) {
-                emitter.completeWithError(e);
-            }
-            return emitter;
+    /**
+     * Streams several layers of a session over one SSE connection, as events named after their
+     * layer followed by a {@code complete} event. {@code layers} defaults to every configured
+     * layer; {@code limit} caps the rows of all layers together.
+     */
+    @GetMapping(value = "/api/session/{surveySessionId}/stream", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> getSessionStream(
+            @PathVariable String surveySessionId,
+            @RequestParam(required = false) List<String> layers,
+            @RequestParam(required = false, defaultValue = "300000") int limit,
+            @RequestParam(required = false) Integer batchSize,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+
+        List<String> sessionLayers = layers == null || layers.isEmpty()
+            ? layerRegistry.names()
+            : layers.stream().map(String::trim).distinct().toList();
+        if (!layerRegistry.names().containsAll(sessionLayers)) {
+            logger.warn("Session stream request rejected - invalid layers: {} (must be a subset of {})",
+                layers, layerRegistry.names());
+            return ResponseEntity.notFound().build();
         }
 
-        // Validate numeric parameters
-        if (limit < 1) {
+        SseEmitter emitter = new SseEmitter(3600000L); // 1 hour timeout
+
+        // Validation errors are reported in-band, as for the layer streams. Layers share the
+        // stream's row budget, so each batch must fit in its layer's share
+        int largestBatchSize = batchSize != null
+            ? batchSize
+            : sessionLayers.stream().mapToInt(name -> layerRegistry.get(name).getDefaultBatchSize()).max().orElse(1);
+        String validationError = validateStreamRequest(sessionIds(List.of(surveySessionId)), limit,
+            largestBatchSize, maxBufferedRows / sessionLayers.size());
+        if (validationError != null) {
             try {
                 emitter.send(SseEmitter.event()
                     .name("error")
                     .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("limit must be a positive integer", null)
+                        new ErrorResponse(validationError, null)
                     )));
                 emitter.complete();
             } catch (IOException e) {
                 emitter.completeWithError(e);
             }
-            return emitter;
+            return ResponseEntity.ok(emitter);
         }
 
-        if (batchSize < 1) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("batchSize must be a positive integer", null)
-                    )));
-                emitter.complete();
-            } catch (IOException e) {
-                emitter.completeWithError(e);
-            }
-            return emitter;
+        String etag = streamEtag("json", List.of(surveySessionId));
+        if (etagMatches(ifNoneMatch, etag)) {
+            return notModified(etag, CacheControl.noCache());
         }
 
-        // Execute streaming in a separate thread
-        executorService.execute(() -> {
+        logger.info("Starting session stream - surveySessionId: {}, layers: {}, limit: {}, batchSize: {}",
+            surveySessionId, sessionLayers, limit, batchSize);
+
+        // The layers are read concurrently, each on its own connection
+        boolean admitted = streamExecutor.submit("session", sessionLayers.size(), () -> {
             try {
-                streamingService.streamBreadcrumbData(surveySessionId, limit, batchSize, emitter);
+                streamingService.streamSessionData(surveySessionId, sessionLayers, limit, batchSize, emitter);
             } catch (Exception e) {
                 emitter.completeWithError(e);
             }
         });
 
-        return emitter;
+        if (!admitted) {
+            return streamsSaturated();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(emitter);
     }
 
-    @GetMapping(value = "/api/lisa", produces = "text/event-stream")
-    public SseEmitter getLisa(
-            @RequestParam(required = false) String surveySessionId,
+    /**
+     * Binary variant of the layer streams, selected with {@code format=binary}.
+     * See {@link BinaryFrames} for the frame layout.
+     */
+    @GetMapping(value = "/api/{layer}", params = "format=binary")
+    public ResponseEntity<ResponseBodyEmitter> getBinaryStreamByParam(
+            @PathVariable String layer,
+            @RequestParam(name = "surveySessionId", required = false) List<String> surveySessionIds,
             @RequestParam(required = false, defaultValue = "100000") int limit,
-            @RequestParam(required = false, defaultValue = "100") int batchSize) {
-        
-        SseEmitter emitter = new SseEmitter(3600000L); // 1 hour timeout
-        
-        // Validate required parameter
-        if (surveySessionId == null || surveySessionId.trim().isEmpty()) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("surveySessionId is required", null)
-                    )));
-                emitter.complete();
-            } catch (IOException e) {
-                emitter.completeWithError(e);
-            }
-            return emitter;
+            @RequestParam(required = false) Integer batchSize,
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false, defaultValue = "4326") int bboxSrid,
+            @RequestParam(required = false) String timeFrom,
+            @RequestParam(required = false) String timeTo,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return streamBinary(layer, surveySessionIds, limit, batchSize, bbox, bboxSrid, timeFrom, timeTo, ifNoneMatch);
+    }
+
+    /**
+     * Binary variant of the layer streams, selected by an Accept header of
+     * {@value BinaryFrames#MEDIA_TYPE}.
+     */
+    @GetMapping(value = "/api/{layer}", produces = BinaryFrames.MEDIA_TYPE)
+    public ResponseEntity<ResponseBodyEmitter> getBinaryStreamByAccept(
+            @PathVariable String layer,
+            @RequestParam(name = "surveySessionId", required = false) List<String> surveySessionIds,
+            @RequestParam(required = false, defaultValue = "100000") int limit,
+            @RequestParam(required = false) Integer batchSize,
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false, defaultValue = "4326") int bboxSrid,
+            @RequestParam(required = false) String timeFrom,
+            @RequestParam(required = false) String timeTo,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return streamBinary(layer, surveySessionIds, limit, batchSize, bbox, bboxSrid, timeFrom, timeTo, ifNoneMatch);
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> streamBinary(String layer, List<String> surveySessionIds, int limit,
+                                                             Integer batchSize, String bbox, int bboxSrid,
+                                                             String timeFrom, String timeTo,
+                                                             String ifNoneMatch) {
+        LayerDefinition definition = layerRegistry.find(layer);
+        if (definition == null) {
+            logger.warn("Binary stream request rejected - unknown layer: {} (must be one of {})", layer, layerRegistry.names());
+            return ResponseEntity.notFound().build();
         }
+        int effectiveBatchSize = batchSize != null ? batchSize : definition.getDefaultBatchSize();
 
-        // Validate numeric parameters
-        if (limit < 1) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(3600000L); // 1 hour timeout
+
+        // Validation errors are reported in-band, as for the SSE streams
+        List<String> sessionIds = sessionIds(surveySessionIds);
+        String validationError = validateStreamRequest(sessionIds, limit, effectiveBatchSize, maxBufferedRows);
+        FeatureFilter filter = null;
+        try {
+            filter = featureFilter(definition, bbox, bboxSrid, timeFrom, timeTo);
+        } catch (IllegalArgumentException e) {
+            validationError = validationError != null ? validationError : e.getMessage();
+        }
+        if (validationError != null) {
             try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("limit must be a positive integer", null)
-                    )));
+                emitter.send(BinaryFrames.error(objectMapper.writeValueAsBytes(new ErrorResponse(validationError, null))),
+                    BINARY_MEDIA_TYPE);
                 emitter.complete();
             } catch (IOException e) {
                 emitter.completeWithError(e);
             }
-            return emitter;
+            return ResponseEntity.ok().contentType(BINARY_MEDIA_TYPE).varyBy("Accept").body(emitter);
         }
 
-        if (batchSize < 1) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("batchSize must be a positive integer", null)
-                    )));
-                emitter.complete();
-            } catch (IOException e) {
-                emitter.completeWithError(e);
-            }
-            return emitter;
+        String etag = streamEtag("binary", sessionIds);
+        if (etagMatches(ifNoneMatch, etag)) {
+            return notModified(etag, CacheControl.noCache(), "Accept");
         }
 
-        // Execute streaming in a separate thread
-        executorService.execute(() -> {
+        logger.info("Starting binary {} stream - surveySessionIds: {}, limit: {}, batchSize: {}",
+            layer, sessionIds, limit, effectiveBatchSize);
+
+        // Binary streams share the admission limits of their SSE endpoint
+        FeatureFilter featureFilter = filter;
+        int connections = sessionIds.size() > 1 ? streamingService.sessionReaders(sessionIds.size()) : 1;
+        boolean admitted = streamExecutor.submit(layer, connections, () -> {
             try {
-                streamingService.streamLisaData(surveySessionId, limit, batchSize, emitter);
+                if (sessionIds.size() > 1) {
+                    streamingService.streamBinarySessions(layer, sessionIds, featureFilter, limit, effectiveBatchSize,
+                        emitter);
+                } else {
+                    streamingService.streamBinaryData(layer, sessionIds.get(0), featureFilter, limit,
+                        effectiveBatchSize, emitter);
+                }
             } catch (Exception e) {
                 emitter.completeWithError(e);
             }
         });
 
-        return emitter;
+        if (!admitted) {
+            return streamsSaturated();
+        }
+        return ResponseEntity.ok().contentType(BINARY_MEDIA_TYPE).eTag(etag).cacheControl(CacheControl.noCache())
+            .varyBy("Accept").body(emitter);
     }
 
-    @GetMapping(value = "/api/mvt/fov/{z}/{x}/{y}", produces = "application/vnd.mapbox-vector-tile")
-    public ResponseEntity<byte[]> getFovMvtTile(
+    /**
+     * Vector tile of one layer, or of several comma-separated layers combined into one tile.
+     *
+     * <p>Tiles carry a strong ETag derived from the session's content version and may be cached
+     * for {@code http.cache.tile-max-age-seconds}. A request whose {@code If-None-Match} holds the
+     * current ETag is answered with 304 from the cached version, without generating the tile.
+     */
+    @GetMapping(value = "/api/mvt/{layers}/{z}/{x}/{y}", produces = "application/vnd.mapbox-vector-tile")
+    public ResponseEntity<byte[]> getMvtTile(
+            @PathVariable List<String> layers,
             @PathVariable int z,
             @PathVariable int x,
             @PathVariable int y,
-            @RequestParam(required = false) String surveySessionId) {
-        
-        logger.info("Received MVT tile request - z: {}, x: {}, y: {}, surveySessionId: {}", z, x, y, surveySessionId);
-        
+            @RequestParam(required = false) String surveySessionId,
+            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+
+        logger.info("Received MVT tile request - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}", layers, z, x, y, surveySessionId);
+
         // Validate required parameter
         if (surveySessionId == null || surveySessionId.trim().isEmpty()) {
             logger.warn("MVT tile request rejected - missing surveySessionId parameter");
             return ResponseEntity.badRequest().build();
         }
 
+        List<String> distinctLayers = layers.stream().map(String::trim).distinct().toList();
+        if (distinctLayers.isEmpty() || !layerRegistry.names().containsAll(distinctLayers)) {
+            logger.warn("MVT tile request rejected - invalid layers: {} (must be a subset of {})", layers, layerRegistry.names());
+            return ResponseEntity.badRequest().build();
+        }
+
         // Validate tile coordinates
-        if (z < 0 || z > 20) {
-            logger.warn("MVT tile request rejected - invalid zoom level: {} (must be 0-20)", z);
+        int maxZoom = maxZoom(distinctLayers);
+        if (z < 0 || z > maxZoom) {
+            logger.warn("MVT tile request rejected - invalid zoom level: {} (must be 0-{})", z, maxZoom);
             return ResponseEntity.badRequest().build();
         }
 
@@ -258,135 +413,109 @@ public class SurveysController {
         }
 
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
         try {
-            logger.debug("Executing MVT tile query for z={}, x={}, y={}, surveySessionId={}", z, x, y, surveySessionId);
-            byte[] tileData = streamingService.getFovMvtTile(z, x, y, surveySessionId);
+            // The tile is loaded for the same version its ETag names. Gzipped and inflated tiles
+            // are different representations, so their ETags differ
+            String contentVersion = sessionVersions.get(surveySessionId);
+            boolean gzip = acceptsGzip(acceptEncoding);
+            String etag = "\"" + contentVersion + (gzip ? "-gzip" : "") + "\"";
+            CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(tileMaxAgeSeconds)).cachePublic();
+            if (etagMatches(ifNoneMatch, etag)) {
+                logger.info("MVT tile not modified - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms",
+                    distinctLayers, z, x, y, surveySessionId, System.currentTimeMillis() - startTime);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .header("Vary", "Accept-Encoding")
+                    .build();
+            }
+
+            byte[] tileData = distinctLayers.size() == 1
+                ? streamingService.getMvtTile(distinctLayers.get(0), z, x, y, surveySessionId, contentVersion)
+                : streamingService.getMultiLayerMvtTile(distinctLayers, z, x, y, surveySessionId, contentVersion);
             long executionTime = System.currentTimeMillis() - startTime;
-            
+            metrics.recordTile(String.join(",", distinctLayers), z, System.nanoTime() - startNanos, tileData == null ? 0 : tileData.length);
+
             if (tileData == null || tileData.length == 0) {
-                logger.info("MVT tile query returned empty result - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms", 
-                    z, x, y, surveySessionId, executionTime);
-                return ResponseEntity.noContent().build();
+                logger.info("MVT tile query returned empty result - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms",
+                    distinctLayers, z, x, y, surveySessionId, executionTime);
+                return ResponseEntity.noContent()
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .header("Vary", "Accept-Encoding")
+                    .build();
             }
-            
-            logger.info("MVT tile query successful - z: {}, x: {}, y: {}, surveySessionId: {}, tileSize: {} bytes, executionTime: {}ms", 
-                z, x, y, surveySessionId, tileData.length, executionTime);
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/vnd.mapbox-vector-tile")
-                    .body(tileData);
+
+            logger.info("MVT tile query successful - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}, tileSize: {} bytes, executionTime: {}ms",
+                distinctLayers, z, x, y, surveySessionId, tileData.length, executionTime);
+
+            return tileResponse(String.join(",", distinctLayers), tileData, gzip, etag, cacheControl);
         } catch (Exception e) {
             long executionTime = System.currentTimeMillis() - startTime;
-            logger.error("Error retrieving MVT tile - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms, error: {}", 
-                z, x, y, surveySessionId, executionTime, e.getMessage(), e);
+            logger.error("Error retrieving MVT tile - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms, error: {}",
+                distinctLayers, z, x, y, surveySessionId, executionTime, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
-    @GetMapping(value = "/api/mvt/lisa/{z}/{x}/{y}", produces = "application/vnd.mapbox-vector-tile")
-    public ResponseEntity<byte[]> getLisaMvtTile(
-            @PathVariable int z,
-            @PathVariable int x,
-            @PathVariable int y,
-            @RequestParam(required = false) String surveySessionId) {
-        
-        logger.info("Received MVT tile request for LISA - z: {}, x: {}, y: {}, surveySessionId: {}", z, x, y, surveySessionId);
-        
+    @PostMapping("/api/mvt/seed")
+    public ResponseEntity<?> startTileSeed(
+            @RequestParam(required = false) String surveySessionId,
+            @RequestParam(required = false, defaultValue = "8") int minZoom,
+            @RequestParam(required = false, defaultValue = "16") int maxZoom,
+            @RequestParam(required = false) List<String> layers) {
+
         // Validate required parameter
         if (surveySessionId == null || surveySessionId.trim().isEmpty()) {
-            logger.warn("MVT tile request rejected - missing surveySessionId parameter");
-            return ResponseEntity.badRequest().build();
+            return ResponseEntity.badRequest().body(new ErrorResponse("surveySessionId is required", null));
         }
 
-        // Validate tile coordinates
-        if (z < 0 || z > 20) {
-            logger.warn("MVT tile request rejected - invalid zoom level: {} (must be 0-20)", z);
-            return ResponseEntity.badRequest().build();
+        // Without layers, every configured layer is seeded
+        if (layers == null) {
+            layers = layerRegistry.names();
         }
 
-        int maxTile = (int) Math.pow(2, z);
-        if (x < 0 || x >= maxTile || y < 0 || y >= maxTile) {
-            logger.warn("MVT tile request rejected - invalid tile coordinates: x={}, y={} (max: {})", x, y, maxTile - 1);
-            return ResponseEntity.badRequest().build();
+        if (layers.isEmpty() || !layerRegistry.names().containsAll(layers)) {
+            return ResponseEntity.badRequest().body(
+                new ErrorResponse("layers must be a subset of " + layerRegistry.names(), null));
+        }
+
+        int layersMaxZoom = maxZoom(layers);
+        if (minZoom < 0 || maxZoom > layersMaxZoom || minZoom > maxZoom) {
+            return ResponseEntity.badRequest().body(
+                new ErrorResponse("zoom range must satisfy 0 <= minZoom <= maxZoom <= " + layersMaxZoom, null));
         }
 
-        long startTime = System.currentTimeMillis();
         try {
-            logger.debug("Executing MVT tile query for LISA - z={}, x={}, y={}, surveySessionId={}", z, x, y, surveySessionId);
-            byte[] tileData = streamingService.getLisaMvtTile(z, x, y, surveySessionId);
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            if (tileData == null || tileData.length == 0) {
-                logger.info("MVT tile query returned empty result for LISA - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms", 
-                    z, x, y, surveySessionId, executionTime);
-                return ResponseEntity.noContent().build();
-            }
-            
-            logger.info("MVT tile query successful for LISA - z: {}, x: {}, y: {}, surveySessionId: {}, tileSize: {} bytes, executionTime: {}ms", 
-                z, x, y, surveySessionId, tileData.length, executionTime);
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/vnd.mapbox-vector-tile")
-                    .body(tileData);
-        } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            logger.error("Error retrieving MVT tile for LISA - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms, error: {}", 
-                z, x, y, surveySessionId, executionTime, e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            SeedJobResponse job = tileSeedService.startJob(surveySessionId, minZoom, maxZoom, layers);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Tile seed request rejected - surveySessionId: {}, error: {}", surveySessionId, e.getMessage());
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid seed request", e.getMessage()));
         }
     }
 
-    @GetMapping(value = "/api/mvt/breadcrumb/{z}/{x}/{y}", produces = "application/vnd.mapbox-vector-tile")
-    public ResponseEntity<byte[]> getBreadcrumbMvtTile(
-            @PathVariable int z,
-            @PathVariable int x,
-            @PathVariable int y,
-            @RequestParam(required = false) String surveySessionId) {
-        
-        logger.info("Received MVT tile request for Breadcrumb - z: {}, x: {}, y: {}, surveySessionId: {}", z, x, y, surveySessionId);
-        
-        // Validate required parameter
-        if (surveySessionId == null || surveySessionId.trim().isEmpty()) {
-            logger.warn("MVT tile request rejected - missing surveySessionId parameter");
-            return ResponseEntity.badRequest().build();
-        }
+    @GetMapping("/api/mvt/seed/{jobId}")
+    public ResponseEntity<SeedJobResponse> getTileSeed(@PathVariable String jobId) {
+        SeedJobResponse job = tileSeedService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
 
-        // Validate tile coordinates
-        if (z < 0 || z > 20) {
-            logger.warn("MVT tile request rejected - invalid zoom level: {} (must be 0-20)", z);
-            return ResponseEntity.badRequest().build();
-        }
+    @DeleteMapping("/api/mvt/seed/{jobId}")
+    public ResponseEntity<SeedJobResponse> cancelTileSeed(@PathVariable String jobId) {
+        SeedJobResponse job = tileSeedService.cancelJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
 
-        int maxTile = (int) Math.pow(2, z);
-        if (x < 0 || x >= maxTile || y < 0 || y >= maxTile) {
-            logger.warn("MVT tile request rejected - invalid tile coordinates: x={}, y={} (max: {})", x, y, maxTile - 1);
-            return ResponseEntity.badRequest().build();
-        }
+    @GetMapping("/api/mvt/cache/stats")
+    public ResponseEntity<TileCacheStats> getTileCacheStats() {
+        return ResponseEntity.ok(tileCache.getStats());
+    }
 
-        long startTime = System.currentTimeMillis();
-        try {
-            logger.debug("Executing MVT tile query for Breadcrumb - z={}, x={}, y={}, surveySessionId={}", z, x, y, surveySessionId);
-            byte[] tileData = streamingService.getBreadcrumbMvtTile(z, x, y, surveySessionId);
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            if (tileData == null || tileData.length == 0) {
-                logger.info("MVT tile query returned empty result for Breadcrumb - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms", 
-                    z, x, y, surveySessionId, executionTime);
-                return ResponseEntity.noContent().build();
-            }
-            
-            logger.info("MVT tile query successful for Breadcrumb - z: {}, x: {}, y: {}, surveySessionId: {}, tileSize: {} bytes, executionTime: {}ms", 
-                z, x, y, surveySessionId, tileData.length, executionTime);
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/vnd.mapbox-vector-tile")
-                    .body(tileData);
-        } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            logger.error("Error retrieving MVT tile for Breadcrumb - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms, error: {}", 
-                z, x, y, surveySessionId, executionTime, e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    @GetMapping("/api/mvt/compression/stats")
+    public ResponseEntity<List<CompressionStats>> getTileCompressionStats() {
+        return ResponseEntity.ok(tileCompression.getStats());
     }
 
     @GetMapping(value = "/", produces = "text/html")
@@ -404,6 +533,178 @@ public class SurveysController {
         }
     }
 
+    /**
+     * Builds the viewport and time window of a stream request.
+     *
+     * @throws IllegalArgumentException with a client-facing message if a parameter is invalid
+     */
+    private static FeatureFilter featureFilter(LayerDefinition layer, String bbox, int bboxSrid,
+                                               String timeFrom, String timeTo) {
+        BoundingBox viewport = bbox != null && !bbox.isBlank() ? BoundingBox.parse(bbox, bboxSrid) : null;
+        Instant from = parseInstant("timeFrom", timeFrom);
+        Instant to = parseInstant("timeTo", timeTo);
+        if ((from != null || to != null) && layer.getTimeColumn() == null) {
+            throw new IllegalArgumentException("layer " + layer.getName() + " cannot be filtered by time");
+        }
+        return new FeatureFilter(viewport, from, to);
+    }
+
+    private static Instant parseInstant(String name, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO-8601 instant, e.g. 2024-05-01T12:00:00Z");
+        }
+    }
+
+    /**
+     * Distinct, trimmed session ids of a stream request.
+     */
+    private static List<String> sessionIds(List<String> surveySessionIds) {
+        if (surveySessionIds == null) {
+            return List.of();
+        }
+        return surveySessionIds.stream()
+            .filter(Objects::nonNull)
+            .map(String::trim)
+            .filter(id -> !id.isEmpty())
+            .distinct()
+            .toList();
+    }
+
+    /**
+     * @param maxBatchSize Largest batch the stream's pipeline can queue within
+     *                     {@code streams.pipeline.max-buffered-rows}
+     */
+    private String validateStreamRequest(List<String> surveySessionIds, int limit, int batchSize, int maxBatchSize) {
+        if (surveySessionIds.isEmpty()) {
+            return "surveySessionId is required";
+        }
+        if (surveySessionIds.size() > maxStreamSessions) {
+            return "at most " + maxStreamSessions + " surveySessionIds can be streamed at once";
+        }
+        if (limit < 1) {
+            return "limit must be a positive integer";
+        }
+        if (batchSize < 1) {
+            return "batchSize must be a positive integer";
+        }
+        if (batchSize > maxBatchSize) {
+            return "batchSize must be at most " + maxBatchSize;
+        }
+        return null;
+    }
+
+    /**
+     * @return Highest zoom all of the layers serve tiles at
+     */
+    private int maxZoom(List<String> layers) {
+        return layers.stream().mapToInt(layer -> layerRegistry.get(layer).getMaxZoom()).min().orElse(0);
+    }
+
+    /**
+     * Tiles are cached gzip-compressed; they are sent as is to clients accepting gzip and
+     * inflated for the rest.
+     */
+    private ResponseEntity<byte[]> tileResponse(String layer, byte[] tileData, boolean gzip, String etag,
+                                                CacheControl cacheControl) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("Content-Type", "application/vnd.mapbox-vector-tile")
+                .header("Vary", "Accept-Encoding")
+                .eTag(etag)
+                .cacheControl(cacheControl);
+        if (gzip) {
+            return response.header("Content-Encoding", "gzip").body(tileData);
+        }
+        return response.body(tileCompression.decompress(layer, tileData));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    rejected = true;
+                }
+            }
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Streams are compressed by the server and batched by the request, so their validators are
+     * weak: equal content, not necessarily equal bytes.
+     */
+    /**
+     * The SSE and binary representations of a stream differ, so their ETags do as well.
+     *
+     * @param format Wire format of the stream, {@code json} or {@code binary}
+     */
+    private String streamEtag(String format, List<String> surveySessionIds) {
+        return "W/\"" + sessionVersions.get(surveySessionIds) + "-" + format + "\"";
+    }
+
+    /**
+     * Weak comparison of {@code If-None-Match} against the current ETag, as RFC 9110 requires for
+     * that header.
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param vary Request headers the representation was selected by
+     */
+    private static <T> ResponseEntity<T> notModified(String etag, CacheControl cacheControl, String... vary) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).varyBy(vary).build();
+    }
+
+    private <T> ResponseEntity<T> streamsSaturated() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", String.valueOf(streamExecutor.getRetryAfterSeconds()))
+                .build();
+    }
+
+    /**
+     * Spring reports a write to a stream whose client went away, which is how followed streams
+     * normally end; there is no response left to write.
+     */
+    @ExceptionHandler(AsyncRequestNotUsableException.class)
+    public void handleClientDisconnect(AsyncRequestNotUsableException e) {
+        logger.debug("Client disconnected: {}", e.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleException(Exception e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
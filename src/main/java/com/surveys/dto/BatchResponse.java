@@ -1,9 +1,15 @@
 package com.surveys.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
 public class BatchResponse<T> {
+    // Set on batches of multi-session streams only
+    @JsonProperty("surveySessionId")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String surveySessionId;
+
     @JsonProperty("results")
     private List<T> results;
     
@@ -18,6 +24,20 @@ public class BatchResponse<T> {
         this.totalProcessed = totalProcessed;
     }
 
+    public BatchResponse(String surveySessionId, List<T> results, int totalProcessed) {
+        this.surveySessionId = surveySessionId;
+        this.results = results;
+        this.totalProcessed = totalProcessed;
+    }
+
+    public String getSurveySessionId() {
+        return surveySessionId;
+    }
+
+    public void setSurveySessionId(String surveySessionId) {
+        this.surveySessionId = surveySessionId;
+    }
+
     public List<T> getResults() {
         return results;
     }
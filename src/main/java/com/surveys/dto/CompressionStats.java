@@ -0,0 +1,85 @@
+package com.surveys.dto;
+
+public class CompressionStats {
+    private String layer;
+    private long tiles;
+    private long rawBytes;
+    private long compressedBytes;
+    private long compressTimeMs;
+    private long decompressions;
+    private long decompressTimeMs;
+
+    public CompressionStats() {
+    }
+
+    public CompressionStats(String layer, long tiles, long rawBytes, long compressedBytes, long compressTimeMs,
+                            long decompressions, long decompressTimeMs) {
+        this.layer = layer;
+        this.tiles = tiles;
+        this.rawBytes = rawBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressTimeMs = compressTimeMs;
+        this.decompressions = decompressions;
+        this.decompressTimeMs = decompressTimeMs;
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+
+    public void setLayer(String layer) {
+        this.layer = layer;
+    }
+
+    public long getTiles() {
+        return tiles;
+    }
+
+    public void setTiles(long tiles) {
+        this.tiles = tiles;
+    }
+
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    public void setRawBytes(long rawBytes) {
+        this.rawBytes = rawBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public void setCompressedBytes(long compressedBytes) {
+        this.compressedBytes = compressedBytes;
+    }
+
+    public long getCompressTimeMs() {
+        return compressTimeMs;
+    }
+
+    public void setCompressTimeMs(long compressTimeMs) {
+        this.compressTimeMs = compressTimeMs;
+    }
+
+    public long getDecompressions() {
+        return decompressions;
+    }
+
+    public void setDecompressions(long decompressions) {
+        this.decompressions = decompressions;
+    }
+
+    public long getDecompressTimeMs() {
+        return decompressTimeMs;
+    }
+
+    public void setDecompressTimeMs(long decompressTimeMs) {
+        this.decompressTimeMs = decompressTimeMs;
+    }
+
+    public double getCompressionRatio() {
+        return compressedBytes == 0 ? 0.0 : (double) rawBytes / compressedBytes;
+    }
+}
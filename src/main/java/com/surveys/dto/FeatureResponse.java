@@ -0,0 +1,61 @@
+package com.surveys.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One streamed feature of any layer. The geometry is written under the layer's configured
+ * geometry field ({@code geometry}, or {@code coordinates} for breadcrumbs).
+ */
+public class FeatureResponse {
+    @JsonProperty("surveySessionId")
+    private String surveySessionId;
+
+    @JsonIgnore
+    private String geometryField;
+
+    @JsonIgnore
+    private RawJson geometry;
+
+    public FeatureResponse() {
+    }
+
+    public FeatureResponse(String surveySessionId, String geometryField, RawJson geometry) {
+        this.surveySessionId = surveySessionId;
+        this.geometryField = geometryField;
+        this.geometry = geometry;
+    }
+
+    public String getSurveySessionId() {
+        return surveySessionId;
+    }
+
+    public void setSurveySessionId(String surveySessionId) {
+        this.surveySessionId = surveySessionId;
+    }
+
+    public String getGeometryField() {
+        return geometryField;
+    }
+
+    public void setGeometryField(String geometryField) {
+        this.geometryField = geometryField;
+    }
+
+    public RawJson getGeometry() {
+        return geometry;
+    }
+
+    public void setGeometry(RawJson geometry) {
+        this.geometry = geometry;
+    }
+
+    @JsonAnyGetter
+    public Map<String, RawJson> geometryProperty() {
+        return Collections.singletonMap(geometryField, geometry);
+    }
+}
@@ -0,0 +1,124 @@
+package com.surveys.dto;
+
+import java.util.List;
+
+public class SeedJobResponse {
+    private String jobId;
+    private String surveySessionId;
+    private List<String> layers;
+    private int minZoom;
+    private int maxZoom;
+    private String state;
+    private long totalTiles;
+    private long completedTiles;
+    private long failedTiles;
+    private long elapsedMs;
+    private double tilesPerSecond;
+
+    public SeedJobResponse() {
+    }
+
+    public SeedJobResponse(String jobId, String surveySessionId, List<String> layers, int minZoom, int maxZoom,
+                           String state, long totalTiles, long completedTiles, long failedTiles,
+                           long elapsedMs, double tilesPerSecond) {
+        this.jobId = jobId;
+        this.surveySessionId = surveySessionId;
+        this.layers = layers;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.state = state;
+        this.totalTiles = totalTiles;
+        this.completedTiles = completedTiles;
+        this.failedTiles = failedTiles;
+        this.elapsedMs = elapsedMs;
+        this.tilesPerSecond = tilesPerSecond;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getSurveySessionId() {
+        return surveySessionId;
+    }
+
+    public void setSurveySessionId(String surveySessionId) {
+        this.surveySessionId = surveySessionId;
+    }
+
+    public List<String> getLayers() {
+        return layers;
+    }
+
+    public void setLayers(List<String> layers) {
+        this.layers = layers;
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public void setMinZoom(int minZoom) {
+        this.minZoom = minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public void setMaxZoom(int maxZoom) {
+        this.maxZoom = maxZoom;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getTotalTiles() {
+        return totalTiles;
+    }
+
+    public void setTotalTiles(long totalTiles) {
+        this.totalTiles = totalTiles;
+    }
+
+    public long getCompletedTiles() {
+        return completedTiles;
+    }
+
+    public void setCompletedTiles(long completedTiles) {
+        this.completedTiles = completedTiles;
+    }
+
+    public long getFailedTiles() {
+        return failedTiles;
+    }
+
+    public void setFailedTiles(long failedTiles) {
+        this.failedTiles = failedTiles;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    public double getTilesPerSecond() {
+        return tilesPerSecond;
+    }
+
+    public void setTilesPerSecond(double tilesPerSecond) {
+        this.tilesPerSecond = tilesPerSecond;
+    }
+}
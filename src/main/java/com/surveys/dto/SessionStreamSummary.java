@@ -0,0 +1,48 @@
+package com.surveys.dto;
+
+import java.util.Map;
+
+/**
+ * Data of the final {@code complete} event of a session stream.
+ */
+public class SessionStreamSummary {
+    private String surveySessionId;
+    private Map<String, Integer> layers;
+    private int totalProcessed;
+
+    public SessionStreamSummary() {
+    }
+
+    public SessionStreamSummary(String surveySessionId, Map<String, Integer> layers, int totalProcessed) {
+        this.surveySessionId = surveySessionId;
+        this.layers = layers;
+        this.totalProcessed = totalProcessed;
+    }
+
+    public String getSurveySessionId() {
+        return surveySessionId;
+    }
+
+    public void setSurveySessionId(String surveySessionId) {
+        this.surveySessionId = surveySessionId;
+    }
+
+    /**
+     * Rows sent per layer.
+     */
+    public Map<String, Integer> getLayers() {
+        return layers;
+    }
+
+    public void setLayers(Map<String, Integer> layers) {
+        this.layers = layers;
+    }
+
+    public int getTotalProcessed() {
+        return totalProcessed;
+    }
+
+    public void setTotalProcessed(int totalProcessed) {
+        this.totalProcessed = totalProcessed;
+    }
+}
@@ -0,0 +1,106 @@
+package com.surveys.dto;
+
+public class TileCacheStats {
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long evictions;
+    private int entries;
+    private long sizeBytes;
+    private long maxBytes;
+    private long loads;
+    private long coalescedLoads;
+
+    public TileCacheStats() {
+    }
+
+    public TileCacheStats(long hits, long negativeHits, long misses, long evictions,
+                          int entries, long sizeBytes, long maxBytes, long loads, long coalescedLoads) {
+        this.hits = hits;
+        this.negativeHits = negativeHits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.sizeBytes = sizeBytes;
+        this.maxBytes = maxBytes;
+        this.loads = loads;
+        this.coalescedLoads = coalescedLoads;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getNegativeHits() {
+        return negativeHits;
+    }
+
+    public void setNegativeHits(long negativeHits) {
+        this.negativeHits = negativeHits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public void setEntries(int entries) {
+        this.entries = entries;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public void setLoads(long loads) {
+        this.loads = loads;
+    }
+
+    public long getCoalescedLoads() {
+        return coalescedLoads;
+    }
+
+    public void setCoalescedLoads(long coalescedLoads) {
+        this.coalescedLoads = coalescedLoads;
+    }
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,82 @@
+package com.surveys.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Off-heap store of one encoded value per feature, such as the GeoJSON or TWKB a stream hands
+ * over: the bytes of all features back to back in one direct buffer, and the offset of each
+ * feature in another. Like {@link GeometryColumns}, a layer is two buffers rather than an array per
+ * feature, so it adds nothing for the garbage collector to trace; reading a feature is a copy of
+ * its bytes rather than an encode. A built column is immutable and safe to share between threads.
+ */
+public final class EncodedColumn {
+
+    private final ByteBuffer bytes;
+    private final IntBuffer offsets;
+
+    private EncodedColumn(Builder builder) {
+        int length = builder.offsets.get(builder.count);
+        this.bytes = ByteBuffer.allocateDirect(Math.max(1, length)).put(0, builder.bytes, 0, length);
+        this.offsets = ByteBuffer.allocateDirect((builder.count + 1) * Integer.BYTES).asIntBuffer()
+            .put(0, builder.offsets, 0, builder.count + 1);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return offsets.capacity() - 1;
+    }
+
+    /**
+     * @return A copy of the feature's bytes
+     */
+    public byte[] get(int feature) {
+        int start = offsets.get(feature);
+        byte[] value = new byte[offsets.get(feature + 1) - start];
+        bytes.get(start, value);
+        return value;
+    }
+
+    /**
+     * @return Bytes held outside the heap
+     */
+    public long offHeapBytes() {
+        return bytes.capacity() + (long) offsets.capacity() * Integer.BYTES;
+    }
+
+    public static final class Builder {
+
+        private ByteBuffer bytes = ByteBuffer.allocateDirect(64 * 1024);
+        private IntBuffer offsets = ByteBuffer.allocateDirect(1024 * Integer.BYTES).asIntBuffer();
+        private int count;
+
+        private Builder() {
+            offsets.put(0, 0);
+        }
+
+        /**
+         * Appends the bytes of the next feature.
+         */
+        public Builder add(byte[] value) {
+            int start = offsets.get(count);
+            if (bytes.capacity() < start + value.length) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(start + value.length, bytes.capacity() * 2));
+                bytes = grown.put(0, bytes, 0, start);
+            }
+            if (offsets.capacity() < count + 2) {
+                IntBuffer grown = ByteBuffer.allocateDirect(offsets.capacity() * 2 * Integer.BYTES).asIntBuffer();
+                offsets = grown.put(0, offsets, 0, count + 1);
+            }
+            bytes.put(start, value);
+            offsets.put(++count, start + value.length);
+            return this;
+        }
+
+        public EncodedColumn build() {
+            return new EncodedColumn(this);
+        }
+    }
+}
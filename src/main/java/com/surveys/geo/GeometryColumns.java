@@ -0,0 +1,218 @@
+package com.surveys.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.BitSet;
+
+/**
+ * Columnar off-heap store for the geometries of one layer: the vertices of all features as
+ * quantized {@code int} pairs in one direct buffer, the first vertex of each part in another, and
+ * the first part of each feature in a third. A million-vertex layer is three buffers instead of a
+ * million arrays, so it adds nothing for the garbage collector to trace or copy; the memory is
+ * released when the store becomes unreachable. Parts are the members of multi-part geometries and
+ * the rings of polygons (see {@link GeometryParts}); which rings are holes is kept in a bit set.
+ *
+ * <p>A coordinate is stored as {@code round((value - origin) / resolution)}, with the origin at
+ * the first vertex added. If a later vertex is too far from the origin for an {@code int}, the
+ * store coarsens its resolution by a factor of ten and keeps going, so any input fits.
+ *
+ * <p>Readers copy a feature into a reusable {@code double[]} with {@link #copyCoordinates}; no
+ * per-feature objects are created. A built store is immutable and safe to share between threads.
+ */
+public final class GeometryColumns {
+
+    private final IntBuffer coordinates;
+    private final IntBuffer parts;
+    private final IntBuffer offsets;
+    private final BitSet holes;
+    private final double originX;
+    private final double originY;
+    private final double resolution;
+
+    private GeometryColumns(Builder builder) {
+        int partCount = builder.offsets.get(builder.featureCount);
+        int vertexCount = builder.parts.get(partCount);
+        this.coordinates = trim(builder.coordinates, vertexCount * 2);
+        this.parts = trim(builder.parts, partCount + 1);
+        this.offsets = trim(builder.offsets, builder.featureCount + 1);
+        this.holes = (BitSet) builder.holes.clone();
+        this.originX = builder.originX;
+        this.originY = builder.originY;
+        this.resolution = builder.resolution;
+    }
+
+    /**
+     * @param resolution Finest coordinate step kept, in the units of the coordinates (e.g.
+     *                   {@code 0.001} for millimeters in EPSG:3857)
+     */
+    public static Builder builder(double resolution) {
+        return new Builder(resolution);
+    }
+
+    public int size() {
+        return offsets.limit() - 1;
+    }
+
+    /**
+     * @return Number of vertices of all parts of the feature
+     */
+    public int vertexCount(int feature) {
+        return parts.get(offsets.get(feature + 1)) - parts.get(offsets.get(feature));
+    }
+
+    public int partCount(int feature) {
+        return offsets.get(feature + 1) - offsets.get(feature);
+    }
+
+    /**
+     * @return Index of the first vertex of a part among the vertices {@link #copyCoordinates}
+     *         copies for the feature; {@code partStart(feature, partCount(feature))} is the
+     *         feature's vertex count
+     */
+    public int partStart(int feature, int part) {
+        int firstPart = offsets.get(feature);
+        return parts.get(firstPart + part) - parts.get(firstPart);
+    }
+
+    /**
+     * @return true if the part is an interior ring of a polygon
+     */
+    public boolean isHole(int feature, int part) {
+        return holes.get(offsets.get(feature) + part);
+    }
+
+    /**
+     * Copies the vertices of all parts of a feature into {@code xy} as
+     * {@code x0, y0, x1, y1, ...}, part after part.
+     *
+     * @param xy Destination with room for at least {@code 2 * vertexCount(feature)} values
+     * @return Number of vertices copied
+     */
+    public int copyCoordinates(int feature, double[] xy) {
+        int first = parts.get(offsets.get(feature));
+        int count = parts.get(offsets.get(feature + 1)) - first;
+        for (int v = 0; v < count; v++) {
+            xy[2 * v] = originX + coordinates.get(2 * (first + v)) * resolution;
+            xy[2 * v + 1] = originY + coordinates.get(2 * (first + v) + 1) * resolution;
+        }
+        return count;
+    }
+
+    /**
+     * @return Bytes held outside the heap
+     */
+    public long offHeapBytes() {
+        return (coordinates.capacity() + (long) parts.capacity() + offsets.capacity()) * Integer.BYTES;
+    }
+
+    private static IntBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(Math.max(1, capacity) * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static IntBuffer trim(IntBuffer buffer, int length) {
+        IntBuffer trimmed = allocate(length);
+        trimmed.put(0, buffer, 0, length);
+        return trimmed.limit(length);
+    }
+
+    public static final class Builder {
+
+        private IntBuffer coordinates = allocate(4096);
+        private IntBuffer parts = allocate(1024);
+        private IntBuffer offsets = allocate(1024);
+        private final BitSet holes = new BitSet();
+        private double originX;
+        private double originY;
+        private double resolution;
+        private int partCount;
+        private int featureCount;
+
+        private Builder(double resolution) {
+            this.resolution = resolution;
+            parts.put(0, 0);
+            offsets.put(0, 0);
+        }
+
+        /**
+         * Appends a single-part feature.
+         *
+         * @param xy Vertices as {@code x0, y0, x1, y1, ...}
+         */
+        public Builder add(double[] xy) {
+            addPart(xy, false);
+            return endFeature();
+        }
+
+        /**
+         * Appends a feature of any number of parts.
+         */
+        public Builder add(GeometryParts geometry) {
+            for (int p = 0; p < geometry.parts().length; p++) {
+                addPart(geometry.parts()[p], geometry.holes()[p]);
+            }
+            return endFeature();
+        }
+
+        public GeometryColumns build() {
+            return new GeometryColumns(this);
+        }
+
+        private void addPart(double[] xy, boolean hole) {
+            int part = partCount;
+            int first = parts.get(part);
+            int vertexCount = xy.length / 2;
+            if (first == 0 && vertexCount > 0) {
+                originX = xy[0];
+                originY = xy[1];
+            }
+            if (coordinates.capacity() < 2 * (first + vertexCount)) {
+                coordinates = grow(coordinates, 2 * (first + vertexCount));
+            }
+            if (parts.capacity() < part + 2) {
+                parts = grow(parts, part + 2);
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                long x = quantize(xy[2 * v], originX);
+                long y = quantize(xy[2 * v + 1], originY);
+                while (x != (int) x || y != (int) y) {
+                    coarsen(first + v);
+                    x = quantize(xy[2 * v], originX);
+                    y = quantize(xy[2 * v + 1], originY);
+                }
+                coordinates.put(2 * (first + v), (int) x);
+                coordinates.put(2 * (first + v) + 1, (int) y);
+            }
+            holes.set(part, hole);
+            parts.put(++partCount, first + vertexCount);
+        }
+
+        private Builder endFeature() {
+            if (offsets.capacity() < featureCount + 2) {
+                offsets = grow(offsets, featureCount + 2);
+            }
+            offsets.put(++featureCount, partCount);
+            return this;
+        }
+
+        private long quantize(double value, double origin) {
+            return Math.round((value - origin) / resolution);
+        }
+
+        /**
+         * Re-quantizes the first {@code vertexCount} vertices at a ten times coarser resolution.
+         */
+        private void coarsen(int vertexCount) {
+            resolution *= 10;
+            for (int i = 0; i < 2 * vertexCount; i++) {
+                coordinates.put(i, (int) Math.round(coordinates.get(i) / 10.0));
+            }
+        }
+
+        private static IntBuffer grow(IntBuffer buffer, int minCapacity) {
+            IntBuffer grown = allocate(Math.max(minCapacity, buffer.capacity() * 2));
+            grown.put(0, buffer, 0, buffer.capacity());
+            return grown;
+        }
+    }
+}
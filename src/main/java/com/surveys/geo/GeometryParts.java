@@ -0,0 +1,28 @@
+package com.surveys.geo;
+
+/**
+ * A geometry as its parts, each a flat coordinate array {@code x0, y0, x1, y1, ...}: the single
+ * part of a point or line, the points of a multipoint, the lines of a multilinestring, or the
+ * rings of a polygon or multipolygon. Rings are listed polygon by polygon, each exterior ring
+ * followed by its interior rings (holes), as WKB lists them.
+ *
+ * @param parts Coordinates of each part
+ * @param holes Per part, whether it is an interior ring; all false except in polygons with holes
+ */
+public record GeometryParts(double[][] parts, boolean[] holes) {
+
+    /**
+     * @return Geometry of a single point, line or polygon without holes
+     */
+    public static GeometryParts single(double[] coordinates) {
+        return new GeometryParts(new double[][]{coordinates}, new boolean[1]);
+    }
+
+    public int vertexCount() {
+        int count = 0;
+        for (double[] part : parts) {
+            count += part.length / 2;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,155 @@
+package com.surveys.geo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes lon/lat geometries into the wire forms the streams serve: GeoJSON text matching
+ * {@code ST_AsGeoJSON} (9 decimal places) and TWKB matching {@code ST_AsTWKB(geom, precision)}.
+ * Coordinates are passed as {@code lon0, lat0, lon1, lat1, ...}; polygons have a single closed
+ * exterior ring.
+ */
+public final class GeometryWriters {
+
+    public enum Type {
+        POINT(1, "Point"),
+        LINESTRING(2, "LineString"),
+        POLYGON(3, "Polygon");
+
+        final int twkbType;
+        final String geoJsonType;
+
+        Type(int twkbType, String geoJsonType) {
+            this.twkbType = twkbType;
+            this.geoJsonType = geoJsonType;
+        }
+    }
+
+    private static final int GEOJSON_DECIMALS = 9;
+
+    private GeometryWriters() {
+    }
+
+    public static byte[] geoJson(Type type, double[] coordinates) {
+        return geoJson(type, coordinates, coordinates.length / 2);
+    }
+
+    /**
+     * Encodes the first {@code vertexCount} vertices of {@code coordinates}, so a reused buffer
+     * can be passed (see {@link GeometryColumns#copyCoordinates}).
+     */
+    public static byte[] geoJson(Type type, double[] coordinates, int vertexCount) {
+        StringBuilder json = new StringBuilder(32 + vertexCount * 28);
+        json.append("{\"type\":\"").append(type.geoJsonType).append("\",\"coordinates\":");
+        switch (type) {
+            case POINT -> appendPosition(json, coordinates[0], coordinates[1]);
+            case LINESTRING -> appendPositions(json, coordinates, vertexCount);
+            case POLYGON -> {
+                json.append('[');
+                appendPositions(json, coordinates, vertexCount);
+                json.append(']');
+            }
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] twkb(Type type, double[] coordinates, int precision) {
+        return twkb(type, coordinates, coordinates.length / 2, precision);
+    }
+
+    /**
+     * Encodes the first {@code vertexCount} vertices of {@code coordinates}.
+     */
+    public static byte[] twkb(Type type, double[] coordinates, int vertexCount, int precision) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4 + vertexCount * 4);
+        out.write((type.twkbType & 0x0F) | (zigzag(precision) << 4));
+        out.write(0); // metadata: no bbox, size, id list or extended dimensions
+        double scale = Math.pow(10, precision);
+        long[] cursor = new long[2];
+        switch (type) {
+            case POINT -> writeCoordinates(out, coordinates, 1, scale, cursor);
+            case LINESTRING -> {
+                writeVarint(out, vertexCount);
+                writeCoordinates(out, coordinates, vertexCount, scale, cursor);
+            }
+            case POLYGON -> {
+                writeVarint(out, 1);
+                writeVarint(out, vertexCount);
+                writeCoordinates(out, coordinates, vertexCount, scale, cursor);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void appendPositions(StringBuilder json, double[] coordinates, int vertexCount) {
+        json.append('[');
+        for (int i = 0; i < vertexCount * 2; i += 2) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendPosition(json, coordinates[i], coordinates[i + 1]);
+        }
+        json.append(']');
+    }
+
+    private static void appendPosition(StringBuilder json, double lon, double lat) {
+        json.append('[');
+        appendNumber(json, lon);
+        json.append(',');
+        appendNumber(json, lat);
+        json.append(']');
+    }
+
+    /**
+     * Fixed-point formatting with trailing zeros trimmed, like PostGIS output.
+     */
+    private static void appendNumber(StringBuilder json, double value) {
+        long scaled = Math.round(Math.abs(value) * 1e9);
+        if (value < 0 && scaled != 0) {
+            json.append('-');
+        }
+        json.append(scaled / 1_000_000_000L);
+        long fraction = scaled % 1_000_000_000L;
+        if (fraction == 0) {
+            return;
+        }
+        int digits = GEOJSON_DECIMALS;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        String fractionText = Long.toString(fraction);
+        json.append('.');
+        for (int i = fractionText.length(); i < digits; i++) {
+            json.append('0');
+        }
+        json.append(fractionText);
+    }
+
+    private static void writeCoordinates(ByteArrayOutputStream out, double[] coordinates, int count, double scale,
+                                         long[] cursor) {
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < 2; d++) {
+                long value = Math.round(coordinates[2 * i + d] * scale);
+                writeVarint(out, zigzag64(value - cursor[d]));
+                cursor[d] = value;
+            }
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag64(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,352 @@
+package com.surveys.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes one layer of a Mapbox Vector Tile (MVT 2.1) from geometries already projected into
+ * tile coordinates ({@code 0..extent}, origin top-left). The result of {@link #encode()} is a
+ * complete tile holding just this layer; since tile layers are independent protobuf messages,
+ * the encodings of several layers can be concatenated into one tile.
+ *
+ * <p>Attribute keys and values are de-duplicated across features as the format requires.
+ * Polygon rings are re-oriented to the winding the specification expects (exterior rings
+ * clockwise, holes counter-clockwise), and rings that collapse to zero area are dropped, together
+ * with the holes of a dropped exterior ring, as {@code ST_AsMVTGeom} does.
+ */
+public final class MvtLayerEncoder {
+
+    public static final int DEFAULT_EXTENT = 4096;
+
+    private static final int GEOM_POINT = 1;
+    private static final int GEOM_LINESTRING = 2;
+    private static final int GEOM_POLYGON = 3;
+
+    private static final int CMD_MOVE_TO = 1;
+    private static final int CMD_LINE_TO = 2;
+    private static final int CMD_CLOSE_PATH = 7;
+
+    private final String name;
+    private final int extent;
+    private final List<String> keys = new ArrayList<>();
+    private final Map<String, Integer> keyIndex = new HashMap<>();
+    private final List<Object> values = new ArrayList<>();
+    private final Map<Object, Integer> valueIndex = new HashMap<>();
+    private final ProtobufWriter features = new ProtobufWriter(4096);
+    private int featureCount;
+
+    // Scratch buffer for geometry commands, reused across features
+    private int[] commands = new int[256];
+    // Cursor after the last path written, where the next part of a multi-part feature starts
+    private int pathEndX;
+    private int pathEndY;
+
+    public MvtLayerEncoder(String name, int extent) {
+        this.name = name;
+        this.extent = extent;
+    }
+
+    public int getExtent() {
+        return extent;
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * @param attributes Attribute values: String, Boolean, integral Number or Double; nulls are
+     *                   skipped
+     */
+    public void addPoint(int x, int y, Map<String, Object> attributes) {
+        addPoint(x, y, names(attributes), values(attributes));
+    }
+
+    /**
+     * @param names  Attribute names, written in this order
+     * @param values Values of the attributes in {@code names}; nulls are skipped
+     */
+    public void addPoint(int x, int y, String[] names, Object[] values) {
+        ensureCommandCapacity(3);
+        commands[0] = command(CMD_MOVE_TO, 1);
+        commands[1] = ProtobufWriter.zigzag(x);
+        commands[2] = ProtobufWriter.zigzag(y);
+        writeFeature(GEOM_POINT, 3, names, values);
+    }
+
+    /**
+     * Adds one feature made of several points, e.g. a multipoint.
+     *
+     * @param xy Points as {@code x0, y0, x1, y1, ...}
+     */
+    public void addPoints(int[] xy, int pointCount, String[] names, Object[] values) {
+        if (pointCount == 0) {
+            return;
+        }
+        ensureCommandCapacity(1 + 2 * pointCount);
+        commands[0] = command(CMD_MOVE_TO, pointCount);
+        int cursorX = 0;
+        int cursorY = 0;
+        for (int i = 0; i < pointCount; i++) {
+            commands[1 + 2 * i] = ProtobufWriter.zigzag(xy[2 * i] - cursorX);
+            commands[2 + 2 * i] = ProtobufWriter.zigzag(xy[2 * i + 1] - cursorY);
+            cursorX = xy[2 * i];
+            cursorY = xy[2 * i + 1];
+        }
+        writeFeature(GEOM_POINT, 1 + 2 * pointCount, names, values);
+    }
+
+    /**
+     * @param xy Vertices as {@code x0, y0, x1, y1, ...}; consecutive duplicates are skipped
+     */
+    public void addLineString(int[] xy, int vertexCount, Map<String, Object> attributes) {
+        addLineStrings(new int[][]{xy}, new int[]{vertexCount}, names(attributes), values(attributes));
+    }
+
+    /**
+     * Adds one feature made of several lines, e.g. a line split by clipping. Lines that collapse
+     * to a single vertex are dropped.
+     */
+    public void addLineStrings(int[][] parts, int[] vertexCounts, String[] names, Object[] values) {
+        int length = 0;
+        for (int i = 0; i < parts.length; i++) {
+            length = encodePath(parts[i], vertexCounts[i], false, length);
+        }
+        if (length > 0) {
+            writeFeature(GEOM_LINESTRING, length, names, values);
+        }
+    }
+
+    /**
+     * Adds a polygon with a single exterior ring.
+     *
+     * @param ring Ring vertices as {@code x0, y0, x1, y1, ...}, closed or not
+     */
+    public void addPolygon(int[] ring, int vertexCount, Map<String, Object> attributes) {
+        addPolygon(ring, vertexCount, names(attributes), values(attributes));
+    }
+
+    public void addPolygon(int[] ring, int vertexCount, String[] names, Object[] values) {
+        addPolygons(new int[][]{ring}, new int[]{vertexCount}, new boolean[1], names, values);
+    }
+
+    /**
+     * Adds one feature made of polygons with holes, e.g. a multipolygon.
+     *
+     * @param rings        Ring vertices, polygon by polygon, each exterior ring followed by its
+     *                     holes; closed or not
+     * @param vertexCounts Vertex count of each ring
+     * @param holes        Per ring, whether it is an interior ring
+     */
+    public void addPolygons(int[][] rings, int[] vertexCounts, boolean[] holes, String[] names, Object[] values) {
+        int length = 0;
+        boolean exteriorKept = false;
+        for (int r = 0; r < rings.length; r++) {
+            if (holes[r] && !exteriorKept) {
+                continue;
+            }
+            int[] ring = rings[r];
+            int vertexCount = vertexCounts[r];
+            if (vertexCount > 1 && ring[0] == ring[2 * (vertexCount - 1)] && ring[1] == ring[2 * (vertexCount - 1) + 1]) {
+                vertexCount--;
+            }
+            long area = signedArea(ring, vertexCount);
+            int pathLength = area == 0
+                ? length
+                : encodePath((area < 0) != holes[r] ? reverse(ring, vertexCount) : ring, vertexCount, true, length);
+            if (!holes[r]) {
+                exteriorKept = pathLength > length;
+            }
+            length = pathLength;
+        }
+        if (length > 0) {
+            writeFeature(GEOM_POLYGON, length, names, values);
+        }
+    }
+
+    /**
+     * @return Encoded tile holding this layer, or an empty array if the layer has no features
+     */
+    public byte[] encode() {
+        if (featureCount == 0) {
+            return new byte[0];
+        }
+        ProtobufWriter layer = new ProtobufWriter(features.size() + 256);
+        layer.writeVarintField(15, 2);
+        layer.writeStringField(1, name);
+        layer.writeRaw(features.toByteArray());
+        for (String key : keys) {
+            layer.writeStringField(3, key);
+        }
+        for (Object value : values) {
+            layer.writeBytesField(4, encodeValue(value));
+        }
+        layer.writeVarintField(5, extent);
+
+        ProtobufWriter tile = new ProtobufWriter(layer.size() + 8);
+        tile.writeBytesField(3, layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    /**
+     * Appends the commands of one path after the first {@code offset} command integers, keeping
+     * the cursor of the previous path, as consecutive parts of a feature require.
+     *
+     * @return Command length including the path, or {@code offset} if the path collapses
+     */
+    private int encodePath(int[] xy, int vertexCount, boolean closed, int offset) {
+        ensureCommandCapacity(offset + 3 + 2 * vertexCount + 1);
+        int length = offset;
+        int cursorX = cursorX(offset);
+        int cursorY = cursorY(offset);
+        int startX = cursorX;
+        int startY = cursorY;
+        int lineToCount = 0;
+        int lineToHeader = -1;
+        for (int i = 0; i < vertexCount; i++) {
+            int x = xy[2 * i];
+            int y = xy[2 * i + 1];
+            if (i > 0 && x == cursorX && y == cursorY) {
+                continue;
+            }
+            if (i == 0) {
+                commands[length++] = command(CMD_MOVE_TO, 1);
+            } else if (lineToHeader < 0) {
+                lineToHeader = length++;
+            }
+            commands[length++] = ProtobufWriter.zigzag(x - cursorX);
+            commands[length++] = ProtobufWriter.zigzag(y - cursorY);
+            cursorX = x;
+            cursorY = y;
+            if (i > 0) {
+                lineToCount++;
+            }
+        }
+        if (lineToCount < (closed ? 2 : 1)) {
+            pathEndX = startX;
+            pathEndY = startY;
+            return offset;
+        }
+        commands[lineToHeader] = command(CMD_LINE_TO, lineToCount);
+        if (closed) {
+            commands[length++] = command(CMD_CLOSE_PATH, 1);
+        }
+        pathEndX = cursorX;
+        pathEndY = cursorY;
+        return length;
+    }
+
+    private int cursorX(int offset) {
+        return offset == 0 ? 0 : pathEndX;
+    }
+
+    private int cursorY(int offset) {
+        return offset == 0 ? 0 : pathEndY;
+    }
+
+    private void writeFeature(int type, int commandLength, String[] names, Object[] attributeValues) {
+        int[] tags = new int[names.length * 2];
+        int tagCount = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (attributeValues[i] == null) {
+                continue;
+            }
+            tags[tagCount++] = keyIndex.computeIfAbsent(names[i], key -> {
+                keys.add(key);
+                return keys.size() - 1;
+            });
+            tags[tagCount++] = valueIndex.computeIfAbsent(normalize(attributeValues[i]), value -> {
+                values.add(value);
+                return values.size() - 1;
+            });
+        }
+
+        ProtobufWriter feature = new ProtobufWriter(commandLength * 2 + tagCount * 2 + 8);
+        feature.writePackedField(2, tags, tagCount);
+        feature.writeVarintField(3, type);
+        feature.writePackedField(4, commands, commandLength);
+        features.writeBytesField(2, feature.toByteArray());
+        featureCount++;
+    }
+
+    private static String[] names(Map<String, Object> attributes) {
+        return attributes.keySet().toArray(String[]::new);
+    }
+
+    private static Object[] values(Map<String, Object> attributes) {
+        return attributes.values().toArray();
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return value.toString();
+    }
+
+    private static byte[] encodeValue(Object value) {
+        ProtobufWriter encoded = new ProtobufWriter(16);
+        if (value instanceof Double d) {
+            encoded.writeDoubleField(3, d);
+        } else if (value instanceof Long l) {
+            // As ST_AsMVT writes integers: uint_value unless negative
+            if (l >= 0) {
+                encoded.writeVarintField(5, l);
+            } else {
+                encoded.writeVarintField(6, ProtobufWriter.zigzag(l));
+            }
+        } else if (value instanceof Boolean b) {
+            encoded.writeVarintField(7, b ? 1 : 0);
+        } else {
+            encoded.writeStringField(1, (String) value);
+        }
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Twice the signed area; positive for the exterior-ring winding MVT 2 expects (clockwise
+     * with the y axis pointing down).
+     */
+    private static long signedArea(int[] ring, int vertexCount) {
+        long area = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            int j = (i + 1) % vertexCount;
+            area += (long) ring[2 * i] * ring[2 * j + 1] - (long) ring[2 * j] * ring[2 * i + 1];
+        }
+        return area;
+    }
+
+    /**
+     * Reverses an unclosed ring but keeps its first vertex, as reversing the closed ring does in
+     * PostGIS, so a re-oriented ring starts where {@code ST_AsMVT} starts it.
+     */
+    private static int[] reverse(int[] ring, int vertexCount) {
+        int[] reversed = new int[vertexCount * 2];
+        reversed[0] = ring[0];
+        reversed[1] = ring[1];
+        for (int i = 1; i < vertexCount; i++) {
+            reversed[2 * i] = ring[2 * (vertexCount - i)];
+            reversed[2 * i + 1] = ring[2 * (vertexCount - i) + 1];
+        }
+        return reversed;
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private void ensureCommandCapacity(int length) {
+        if (commands.length < length) {
+            commands = Arrays.copyOf(commands, Math.max(length, commands.length * 2));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.surveys.geo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal protobuf wire-format writer, enough to encode Mapbox Vector Tiles without a generated
+ * message classes dependency.
+ */
+final class ProtobufWriter {
+
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+
+    private final ByteArrayOutputStream out;
+
+    ProtobufWriter(int initialCapacity) {
+        this.out = new ByteArrayOutputStream(initialCapacity);
+    }
+
+    void writeVarintField(int field, long value) {
+        writeTag(field, VARINT);
+        writeVarint(value);
+    }
+
+    void writeStringField(int field, String value) {
+        writeBytesField(field, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void writeBytesField(int field, byte[] value) {
+        writeTag(field, LENGTH_DELIMITED);
+        writeVarint(value.length);
+        out.writeBytes(value);
+    }
+
+    void writeDoubleField(int field, double value) {
+        writeTag(field, FIXED64);
+        long bits = Double.doubleToLongBits(value);
+        for (int i = 0; i < 8; i++) {
+            out.write((int) (bits >>> (8 * i)));
+        }
+    }
+
+    /**
+     * Writes a packed repeated uint32 field.
+     */
+    void writePackedField(int field, int[] values, int count) {
+        if (count == 0) {
+            return;
+        }
+        ProtobufWriter packed = new ProtobufWriter(count * 2);
+        for (int i = 0; i < count; i++) {
+            packed.writeVarint(values[i] & 0xFFFFFFFFL);
+        }
+        writeBytesField(field, packed.toByteArray());
+    }
+
+    void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Appends bytes that are already wire-encoded fields.
+     */
+    void writeRaw(byte[] encoded) {
+        out.writeBytes(encoded);
+    }
+
+    int size() {
+        return out.size();
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    private void writeTag(int field, int wireType) {
+        writeVarint(((long) field << 3) | wireType);
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
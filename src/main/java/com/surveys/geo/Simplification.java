@@ -0,0 +1,101 @@
+package com.surveys.geo;
+
+import java.util.Arrays;
+
+/**
+ * Low-zoom generalization matching the SQL tile path, which wraps geometries in
+ * {@code ST_Simplify(ST_SnapToGrid(geom, tolerance), tolerance)}. Coordinates are
+ * {@code x0, y0, x1, y1, ...} in the units of the tolerance.
+ */
+public final class Simplification {
+
+    private Simplification() {
+    }
+
+    /**
+     * Snaps vertices to a grid of {@code size} in place and drops consecutive duplicates, like
+     * {@code ST_SnapToGrid}.
+     *
+     * @return Remaining vertex count
+     */
+    public static int snapToGrid(double[] xy, int vertexCount, double size) {
+        int count = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            double x = Math.rint(xy[2 * i] / size) * size;
+            double y = Math.rint(xy[2 * i + 1] / size) * size;
+            if (count > 0 && xy[2 * (count - 1)] == x && xy[2 * (count - 1) + 1] == y) {
+                continue;
+            }
+            xy[2 * count] = x;
+            xy[2 * count + 1] = y;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Douglas-Peucker simplification, like {@code ST_Simplify}. The first and last vertices are
+     * always kept, so closed rings stay closed.
+     *
+     * @return Kept vertices
+     */
+    public static double[] douglasPeucker(double[] xy, int vertexCount, double tolerance) {
+        if (vertexCount < 3) {
+            return Arrays.copyOf(xy, vertexCount * 2);
+        }
+        boolean[] keep = new boolean[vertexCount];
+        keep[0] = true;
+        keep[vertexCount - 1] = true;
+        double toleranceSquared = tolerance * tolerance;
+
+        int[] stack = new int[vertexCount * 2];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = vertexCount - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = segmentDistanceSquared(xy, i, first, last);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0 && maxDistance > toleranceSquared) {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        double[] kept = new double[vertexCount * 2];
+        int count = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            if (keep[i]) {
+                kept[2 * count] = xy[2 * i];
+                kept[2 * count + 1] = xy[2 * i + 1];
+                count++;
+            }
+        }
+        return Arrays.copyOf(kept, count * 2);
+    }
+
+    private static double segmentDistanceSquared(double[] xy, int point, int first, int last) {
+        double px = xy[2 * point];
+        double py = xy[2 * point + 1];
+        double ax = xy[2 * first];
+        double ay = xy[2 * first + 1];
+        double dx = xy[2 * last] - ax;
+        double dy = xy[2 * last + 1] - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,164 @@
+package com.surveys.geo;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static, packed R-tree over item bounding boxes, bulk-loaded with Sort-Tile-Recursive: items
+ * are sorted into vertical slices by the x of their centers and each slice by y, then packed
+ * {@value #NODE_CAPACITY} to a node. Upper levels pack consecutive nodes of the level below, which
+ * the leaf order already keeps spatially close.
+ *
+ * <p>Every level is a flat {@code double[]} of {@code minX, minY, maxX, maxY} per node, so the
+ * tree costs a few arrays regardless of the number of items. It cannot be modified once built.
+ */
+public final class StrTree {
+
+    static final int NODE_CAPACITY = 16;
+
+    // levels[0] holds the item boxes in packed order, the last level holds the root
+    private final double[][] levels;
+    private final int[] levelSizes;
+    // Item index of each packed leaf entry
+    private final int[] items;
+
+    /**
+     * @param bounds {@code minX, minY, maxX, maxY} of each item; item {@code i} starts at {@code 4 * i}
+     */
+    public StrTree(double[] bounds) {
+        int count = bounds.length / 4;
+        this.items = sortTileRecursive(bounds, count);
+
+        int levelCount = 1;
+        for (int size = count; size > 1; size = ceilDiv(size, NODE_CAPACITY)) {
+            levelCount++;
+        }
+        levels = new double[levelCount][];
+        levelSizes = new int[levelCount];
+
+        double[] leaves = new double[count * 4];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(bounds, 4 * items[i], leaves, 4 * i, 4);
+        }
+        levels[0] = leaves;
+        levelSizes[0] = count;
+        for (int level = 1; level < levelCount; level++) {
+            levels[level] = packLevel(levels[level - 1], levelSizes[level - 1]);
+            levelSizes[level] = ceilDiv(levelSizes[level - 1], NODE_CAPACITY);
+        }
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Hands the index of every item whose box intersects the query box to {@code consumer}, in
+     * no particular order.
+     */
+    public void query(double minX, double minY, double maxX, double maxY, IntConsumer consumer) {
+        if (items.length > 0) {
+            search(levels.length - 1, 0, minX, minY, maxX, maxY, consumer);
+        }
+    }
+
+    /**
+     * @return Approximate heap size of the tree in bytes
+     */
+    public long sizeBytes() {
+        long bytes = 16L + items.length * 4L;
+        for (double[] level : levels) {
+            bytes += 16L + level.length * 8L;
+        }
+        return bytes;
+    }
+
+    private void search(int level, int node, double minX, double minY, double maxX, double maxY,
+                        IntConsumer consumer) {
+        double[] boxes = levels[level];
+        if (!intersects(boxes, node, minX, minY, maxX, maxY)) {
+            return;
+        }
+        if (level == 0) {
+            consumer.accept(items[node]);
+            return;
+        }
+        int first = node * NODE_CAPACITY;
+        int last = Math.min(first + NODE_CAPACITY, levelSizes[level - 1]);
+        for (int child = first; child < last; child++) {
+            search(level - 1, child, minX, minY, maxX, maxY, consumer);
+        }
+    }
+
+    private static boolean intersects(double[] boxes, int i, double minX, double minY, double maxX, double maxY) {
+        return boxes[4 * i] <= maxX && boxes[4 * i + 2] >= minX
+            && boxes[4 * i + 1] <= maxY && boxes[4 * i + 3] >= minY;
+    }
+
+    private static double[] packLevel(double[] children, int childCount) {
+        int nodeCount = ceilDiv(childCount, NODE_CAPACITY);
+        double[] nodes = new double[nodeCount * 4];
+        for (int node = 0; node < nodeCount; node++) {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            int last = Math.min((node + 1) * NODE_CAPACITY, childCount);
+            for (int child = node * NODE_CAPACITY; child < last; child++) {
+                minX = Math.min(minX, children[4 * child]);
+                minY = Math.min(minY, children[4 * child + 1]);
+                maxX = Math.max(maxX, children[4 * child + 2]);
+                maxY = Math.max(maxY, children[4 * child + 3]);
+            }
+            nodes[4 * node] = minX;
+            nodes[4 * node + 1] = minY;
+            nodes[4 * node + 2] = maxX;
+            nodes[4 * node + 3] = maxY;
+        }
+        return nodes;
+    }
+
+    /**
+     * @return Item indexes in STR leaf order
+     */
+    private static int[] sortTileRecursive(double[] bounds, int count) {
+        // Sort on packed (center, index) keys to stay on primitive arrays
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = sortKey(bounds[4 * i] + bounds[4 * i + 2], i);
+        }
+        Arrays.sort(keys);
+
+        int leafCount = ceilDiv(count, NODE_CAPACITY);
+        int sliceSize = (int) Math.ceil(Math.sqrt(leafCount)) * NODE_CAPACITY;
+        for (int start = 0; start < count; start += sliceSize) {
+            int end = Math.min(start + sliceSize, count);
+            for (int k = start; k < end; k++) {
+                int i = (int) keys[k];
+                keys[k] = sortKey(bounds[4 * i + 1] + bounds[4 * i + 3], i);
+            }
+            Arrays.sort(keys, start, end);
+        }
+
+        int[] order = new int[count];
+        for (int k = 0; k < count; k++) {
+            order[k] = (int) keys[k];
+        }
+        return order;
+    }
+
+    /**
+     * Orders by {@code center} in the high 32 bits (as a sortable float) and keeps the item index
+     * in the low 32 bits. Float precision is plenty for ordering boxes into tiles.
+     */
+    private static long sortKey(double center, int index) {
+        int bits = Float.floatToIntBits((float) center);
+        // Flip so that the signed int order of the bits matches the float order
+        bits ^= (bits >> 31) & 0x7FFFFFFF;
+        return ((long) bits << 32) | (index & 0xFFFFFFFFL);
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
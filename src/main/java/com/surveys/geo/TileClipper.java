@@ -0,0 +1,170 @@
+package com.surveys.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Clips geometries to the square {@code min..max} on both axes, the tile extent widened by its
+ * buffer, as {@code ST_AsMVTGeom} does with {@code clip_geom}. Coordinates are tile coordinates
+ * before rounding, as {@code x0, y0, x1, y1, ...}.
+ */
+public final class TileClipper {
+
+    private TileClipper() {
+    }
+
+    public static boolean contains(double x, double y, double min, double max) {
+        return x >= min && x <= max && y >= min && y <= max;
+    }
+
+    /**
+     * Clips a polygon ring with Sutherland-Hodgman. The ring may be closed or not; the result is
+     * not closed.
+     *
+     * @return Clipped ring vertices; fewer than three vertices when nothing of the ring remains
+     */
+    public static double[] clipRing(double[] xy, int vertexCount, double min, double max) {
+        if (vertexCount > 1 && xy[0] == xy[2 * (vertexCount - 1)] && xy[1] == xy[2 * (vertexCount - 1) + 1]) {
+            vertexCount--;
+        }
+        double[] ring = Arrays.copyOf(xy, vertexCount * 2);
+        int count = vertexCount;
+        for (int edge = 0; edge < 4 && count > 0; edge++) {
+            double[] clipped = new double[(count + 1) * 4];
+            int clippedCount = 0;
+            for (int i = 0; i < count; i++) {
+                int j = (i + count - 1) % count;
+                double x = ring[2 * i];
+                double y = ring[2 * i + 1];
+                double px = ring[2 * j];
+                double py = ring[2 * j + 1];
+                boolean inside = inside(edge, x, y, min, max);
+                boolean previousInside = inside(edge, px, py, min, max);
+                if (inside != previousInside) {
+                    double t = crossing(edge, px, py, x, y, min, max);
+                    clipped[2 * clippedCount] = px + t * (x - px);
+                    clipped[2 * clippedCount + 1] = py + t * (y - py);
+                    clippedCount++;
+                }
+                if (inside) {
+                    clipped[2 * clippedCount] = x;
+                    clipped[2 * clippedCount + 1] = y;
+                    clippedCount++;
+                }
+            }
+            ring = clipped;
+            count = clippedCount;
+        }
+        return Arrays.copyOf(ring, count * 2);
+    }
+
+    /**
+     * Clips a line with Liang-Barsky, segment by segment. A line leaving and re-entering the
+     * square becomes several parts.
+     *
+     * @return Parts with at least two vertices each
+     */
+    public static List<double[]> clipLine(double[] xy, int vertexCount, double min, double max) {
+        List<double[]> parts = new ArrayList<>(1);
+        double[] part = new double[vertexCount * 2];
+        int partCount = 0;
+        double[] segment = new double[4];
+        for (int i = 1; i < vertexCount; i++) {
+            segment[0] = xy[2 * (i - 1)];
+            segment[1] = xy[2 * (i - 1) + 1];
+            segment[2] = xy[2 * i];
+            segment[3] = xy[2 * i + 1];
+            if (!clipSegment(segment, min, max)) {
+                partCount = endPart(parts, part, partCount);
+                continue;
+            }
+            boolean continues = partCount > 0
+                && part[2 * (partCount - 1)] == segment[0] && part[2 * (partCount - 1) + 1] == segment[1];
+            if (!continues) {
+                partCount = endPart(parts, part, partCount);
+                part[0] = segment[0];
+                part[1] = segment[1];
+                partCount = 1;
+            }
+            if (partCount == part.length / 2) {
+                part = Arrays.copyOf(part, part.length * 2);
+            }
+            part[2 * partCount] = segment[2];
+            part[2 * partCount + 1] = segment[3];
+            partCount++;
+        }
+        endPart(parts, part, partCount);
+        return parts;
+    }
+
+    private static int endPart(List<double[]> parts, double[] part, int partCount) {
+        if (partCount > 1) {
+            parts.add(Arrays.copyOf(part, partCount * 2));
+        }
+        return 0;
+    }
+
+    /**
+     * Clips {@code x0, y0, x1, y1} in place.
+     *
+     * @return false if the segment lies entirely outside
+     */
+    private static boolean clipSegment(double[] segment, double min, double max) {
+        double x0 = segment[0];
+        double y0 = segment[1];
+        double dx = segment[2] - x0;
+        double dy = segment[3] - y0;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x0 - min, max - x0, y0 - min, max - y0};
+        double enter = 0;
+        double exit = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    enter = Math.max(enter, t);
+                } else {
+                    exit = Math.min(exit, t);
+                }
+            }
+        }
+        if (enter > exit) {
+            return false;
+        }
+        if (exit < 1) {
+            segment[2] = x0 + exit * dx;
+            segment[3] = y0 + exit * dy;
+        }
+        if (enter > 0) {
+            segment[0] = x0 + enter * dx;
+            segment[1] = y0 + enter * dy;
+        }
+        return true;
+    }
+
+    private static boolean inside(int edge, double x, double y, double min, double max) {
+        return switch (edge) {
+            case 0 -> x >= min;
+            case 1 -> x <= max;
+            case 2 -> y >= min;
+            default -> y <= max;
+        };
+    }
+
+    /**
+     * @return Fraction along {@code (px, py) -> (x, y)} where the segment crosses the edge
+     */
+    private static double crossing(int edge, double px, double py, double x, double y, double min, double max) {
+        return switch (edge) {
+            case 0 -> (min - px) / (x - px);
+            case 1 -> (max - px) / (x - px);
+            case 2 -> (min - py) / (y - py);
+            default -> (max - py) / (y - py);
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.surveys.geo;
+
+/**
+ * Projects EPSG:4326 coordinates into the integer coordinate space of one XYZ tile
+ * (Web Mercator, origin top-left, {@code 0..extent} inside the tile). The static helpers project
+ * into EPSG:3857 meters, for geometries that are kept pre-projected.
+ */
+public final class TileProjection {
+
+    private static final double MAX_LATITUDE = 85.0511287798066;
+    private static final double EARTH_RADIUS = 6378137.0;
+
+    /**
+     * Half the width of the EPSG:3857 world in meters.
+     */
+    public static final double MERCATOR_HALF_WORLD = Math.PI * EARTH_RADIUS;
+
+    private final double scale;
+    private final double originX;
+    private final double originY;
+
+    public TileProjection(int z, int x, int y, int extent) {
+        this.scale = (double) (1L << z) * extent;
+        this.originX = (double) x * extent;
+        this.originY = (double) y * extent;
+    }
+
+    public int tileX(double lon) {
+        return (int) Math.round((lon + 180.0) / 360.0 * scale - originX);
+    }
+
+    public int tileY(double lat) {
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat));
+        double sin = Math.sin(Math.toRadians(clamped));
+        double mercatorY = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        return (int) Math.round(mercatorY * scale - originY);
+    }
+
+    /**
+     * @return Tile bounds widened by {@code margin} (a fraction of the tile size) as
+     *         {minLon, minLat, maxLon, maxLat}
+     */
+    public static double[] tileBounds(int z, int x, int y, double margin) {
+        double n = 1L << z;
+        return new double[]{
+            tileLon(x - margin, n),
+            tileLat(y + 1 + margin, n),
+            tileLon(x + 1 + margin, n),
+            tileLat(y - margin, n)
+        };
+    }
+
+    private static double tileLon(double x, double n) {
+        return x / n * 360.0 - 180.0;
+    }
+
+    private static double tileLat(double y, double n) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / n))));
+    }
+
+    public static double mercatorX(double lon) {
+        return Math.toRadians(lon) * EARTH_RADIUS;
+    }
+
+    public static double mercatorY(double lat) {
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat));
+        return Math.log(Math.tan(Math.PI / 4 + Math.toRadians(clamped) / 2)) * EARTH_RADIUS;
+    }
+
+    /**
+     * @return Tile bounds in EPSG:3857 widened by {@code margin} (a fraction of the tile size) as
+     *         {minX, minY, maxX, maxY}, like {@code ST_TileEnvelope(z, x, y, margin => margin)}
+     */
+    public static double[] mercatorTileBounds(int z, int x, int y, double margin) {
+        double tileSize = 2 * MERCATOR_HALF_WORLD / (1L << z);
+        return new double[]{
+            -MERCATOR_HALF_WORLD + (x - margin) * tileSize,
+            MERCATOR_HALF_WORLD - (y + 1 + margin) * tileSize,
+            -MERCATOR_HALF_WORLD + (x + 1 + margin) * tileSize,
+            MERCATOR_HALF_WORLD - (y - margin) * tileSize
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package com.surveys.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads 2D WKB ({@code ST_AsBinary}) into {@link GeometryParts}. A layer of a given geometry type
+ * accepts that type and its multi-part variant (a point layer accepts Point and MultiPoint, and
+ * so on); polygons keep their interior rings.
+ */
+public final class WkbReader {
+
+    private static final int MULTI_OFFSET = 3;
+    private static final String[] TYPE_NAMES = {
+        null, "Point", "LineString", "Polygon", "MultiPoint", "MultiLineString", "MultiPolygon", "GeometryCollection"
+    };
+
+    private WkbReader() {
+    }
+
+    /**
+     * @return Parts of the geometry, or null if it is empty
+     * @throws IllegalArgumentException if the geometry is neither of the expected type nor of its
+     *                                  multi-part variant
+     */
+    public static GeometryParts read(byte[] wkb, GeometryWriters.Type expected) {
+        ByteBuffer buffer = ByteBuffer.wrap(wkb);
+        int type = readHeader(buffer);
+        List<double[]> parts = new ArrayList<>(1);
+        List<Boolean> holes = new ArrayList<>(1);
+        if (type == expected.twkbType) {
+            readPart(buffer, expected, parts, holes);
+        } else if (type == expected.twkbType + MULTI_OFFSET) {
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int partType = readHeader(buffer);
+                if (partType != expected.twkbType) {
+                    throw unexpected(partType, expected);
+                }
+                readPart(buffer, expected, parts, holes);
+            }
+        } else {
+            throw unexpected(type, expected);
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        boolean[] interior = new boolean[holes.size()];
+        for (int i = 0; i < interior.length; i++) {
+            interior[i] = holes.get(i);
+        }
+        return new GeometryParts(parts.toArray(double[][]::new), interior);
+    }
+
+    /**
+     * Reads the byte order and type of a (sub-)geometry and switches the buffer to that order.
+     */
+    private static int readHeader(ByteBuffer buffer) {
+        buffer.order(buffer.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        return buffer.getInt();
+    }
+
+    private static void readPart(ByteBuffer buffer, GeometryWriters.Type type, List<double[]> parts,
+                                 List<Boolean> holes) {
+        switch (type) {
+            case POINT -> {
+                double x = buffer.getDouble();
+                double y = buffer.getDouble();
+                // Empty points are written as NaN coordinates
+                if (!Double.isNaN(x)) {
+                    parts.add(new double[]{x, y});
+                    holes.add(false);
+                }
+            }
+            case LINESTRING -> {
+                double[] line = readPoints(buffer);
+                if (line != null) {
+                    parts.add(line);
+                    holes.add(false);
+                }
+            }
+            case POLYGON -> {
+                int rings = buffer.getInt();
+                for (int r = 0; r < rings; r++) {
+                    double[] ring = readPoints(buffer);
+                    if (ring != null) {
+                        parts.add(ring);
+                        holes.add(r > 0);
+                    }
+                }
+            }
+        }
+    }
+
+    private static double[] readPoints(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count == 0) {
+            return null;
+        }
+        double[] coordinates = new double[count * 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = buffer.getDouble();
+        }
+        return coordinates;
+    }
+
+    private static IllegalArgumentException unexpected(int type, GeometryWriters.Type expected) {
+        String name = type > 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : "WKB type " + type;
+        return new IllegalArgumentException("Expected " + expected.geoJsonType + " or Multi"
+            + expected.geoJsonType + " geometry, found " + name);
+    }
+}
@@ -0,0 +1,59 @@
+package com.surveys.repository;
+
+/**
+ * Axis-aligned viewport in EPSG:4326 (lon/lat degrees) or EPSG:3857 (web mercator meters).
+ */
+public record BoundingBox(double minX, double minY, double maxX, double maxY, int srid) {
+
+    private static final double EARTH_RADIUS = 6378137.0;
+
+    public BoundingBox {
+        if (srid != 4326 && srid != 3857) {
+            throw new IllegalArgumentException("bbox SRID must be 4326 or 3857");
+        }
+        if (!(minX < maxX) || !(minY < maxY)) {
+            throw new IllegalArgumentException("bbox must be minX,minY,maxX,maxY with min < max");
+        }
+    }
+
+    /**
+     * @param bbox {@code minX,minY,maxX,maxY}
+     * @throws IllegalArgumentException if {@code bbox} is malformed
+     */
+    public static BoundingBox parse(String bbox, int srid) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox must be minX,minY,maxX,maxY");
+        }
+        double[] values = new double[4];
+        for (int i = 0; i < 4; i++) {
+            try {
+                values[i] = Double.parseDouble(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bbox must be minX,minY,maxX,maxY");
+            }
+            if (!Double.isFinite(values[i])) {
+                throw new IllegalArgumentException("bbox must be minX,minY,maxX,maxY");
+            }
+        }
+        return new BoundingBox(values[0], values[1], values[2], values[3], srid);
+    }
+
+    /**
+     * @return {@code {minLon, minLat, maxLon, maxLat}}
+     */
+    public double[] toWgs84() {
+        if (srid == 4326) {
+            return new double[]{minX, minY, maxX, maxY};
+        }
+        return new double[]{lon(minX), lat(minY), lon(maxX), lat(maxY)};
+    }
+
+    private static double lon(double x) {
+        return Math.toDegrees(x / EARTH_RADIUS);
+    }
+
+    private static double lat(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(y / EARTH_RADIUS)));
+    }
+}
@@ -0,0 +1,13 @@
+package com.surveys.repository;
+
+/**
+ * Receives change notifications from {@link LayerRepository#awaitChanges}.
+ */
+@FunctionalInterface
+public interface FeatureChangeListener {
+
+    /**
+     * Features were added to a layer of a session.
+     */
+    void featuresChanged(String layer, String surveySessionId);
+}
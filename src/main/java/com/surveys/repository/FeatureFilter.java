@@ -0,0 +1,25 @@
+package com.surveys.repository;
+
+import java.time.Instant;
+
+/**
+ * Optional restrictions of a {@link FeatureQuery} to a viewport and a time window. Every part may
+ * be null; the time window is half-open, {@code [timeFrom, timeTo)}, and requires a layer with a
+ * time column.
+ *
+ * @param bbox Features whose bounding box intersects this viewport
+ */
+public record FeatureFilter(BoundingBox bbox, Instant timeFrom, Instant timeTo) {
+
+    public static final FeatureFilter NONE = new FeatureFilter(null, null, null);
+
+    public FeatureFilter {
+        if (timeFrom != null && timeTo != null && !timeFrom.isBefore(timeTo)) {
+            throw new IllegalArgumentException("timeFrom must be before timeTo");
+        }
+    }
+
+    public boolean hasTimeWindow() {
+        return timeFrom != null || timeTo != null;
+    }
+}
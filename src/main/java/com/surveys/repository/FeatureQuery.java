@@ -0,0 +1,15 @@
+package com.surveys.repository;
+
+/**
+ * Features of one layer of a survey session to stream, in key order.
+ *
+ * @param layer Layer name from the layer registry
+ * @param afterKey Key of the last feature already delivered, to resume after it; null to start
+ *                 from the first feature
+ * @param filter Viewport and time window, {@link FeatureFilter#NONE} for all features
+ * @param limit Maximum number of features
+ * @param precision Decimal places kept by {@link GeometryEncoding#TWKB}; ignored for GeoJSON
+ */
+public record FeatureQuery(String layer, String surveySessionId, String afterKey, FeatureFilter filter, int limit,
+                           GeometryEncoding encoding, int precision) {
+}
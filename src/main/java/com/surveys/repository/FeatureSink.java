@@ -0,0 +1,15 @@
+package com.surveys.repository;
+
+/**
+ * Receives features read by {@link LayerRepository#readFeatures}.
+ */
+@FunctionalInterface
+public interface FeatureSink {
+
+    /**
+     * @param key The feature's keyset position, usable as {@link FeatureQuery#afterKey()}
+     * @param geometry Geometry in the requested {@link GeometryEncoding}
+     * @return false to stop reading
+     */
+    boolean accept(String surveySessionId, String key, byte[] geometry);
+}
@@ -0,0 +1,15 @@
+package com.surveys.repository;
+
+/**
+ * Wire encoding of feature geometries read for a stream.
+ */
+public enum GeometryEncoding {
+    /**
+     * GeoJSON text, as produced by {@code ST_AsGeoJSON}.
+     */
+    GEOJSON,
+    /**
+     * Tiny Well-Known Binary, as produced by {@code ST_AsTWKB}.
+     */
+    TWKB
+}
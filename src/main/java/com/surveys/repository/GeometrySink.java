@@ -0,0 +1,17 @@
+package com.surveys.repository;
+
+import com.surveys.geo.GeometryParts;
+
+/**
+ * Receives features read by {@link LayerRepository#readGeometries}.
+ */
+@FunctionalInterface
+public interface GeometrySink {
+
+    /**
+     * @param geometry   Geometry in EPSG:3857; polygon rings closed
+     * @param attributes Values of the layer's tile attributes, in the order of
+     *                   {@link com.surveys.config.LayerDefinition#getAttributes()}
+     */
+    void accept(GeometryParts geometry, Object[] attributes);
+}
@@ -0,0 +1,550 @@
+package com.surveys.repository;
+
+import com.surveys.config.LayerDefinition;
+import com.surveys.config.LayerRegistry;
+import com.surveys.geo.GeometryParts;
+import com.surveys.geo.WkbReader;
+import com.surveys.service.TileQueryBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layer data from the PostGIS survey tables configured in the {@link LayerRegistry}.
+ */
+@Repository
+@ConditionalOnProperty(name = "layers.backend", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcLayerRepository implements LayerRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcLayerRepository.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LayerRegistry layerRegistry;
+
+    @Value("${tiles.generalize.simplify-below-zoom:13}")
+    private int simplifyBelowZoom;
+
+    @Value("${tiles.generalize.simplify-tolerance-pixels:1.0}")
+    private double simplifyTolerancePixels;
+
+    @Value("${tiles.generalize.cluster-below-zoom:13}")
+    private int clusterBelowZoom;
+
+    @Value("${tiles.generalize.cluster-cell-pixels:64}")
+    private int clusterCellPixels;
+
+    @Value("${layers.change-counter-table:public.survey_session_changes}")
+    private String changeCounterTable;
+
+    @Value("${spring.datasource.url}")
+    private String databaseUrl;
+
+    @Value("${spring.datasource.username:}")
+    private String databaseUser;
+
+    @Value("${spring.datasource.password:}")
+    private String databasePassword;
+
+    // Tile SQL per layer, indexed by zoom level
+    private final Map<String, String[]> tileSqlByZoom = new HashMap<>();
+
+    // Held while LISTENing for feature changes, outside the connection pool; see awaitChanges
+    private Connection listenConnection;
+    private String listeningChannel;
+
+    // Whether changeCounterTable exists; looked up with the first fingerprint
+    private volatile Boolean changeCounterAvailable;
+
+    @PostConstruct
+    void buildTileQueries() {
+        for (LayerDefinition layer : layerRegistry.all()) {
+            TileQueryBuilder builder = TileQueryBuilder.forTable(layer.getTable())
+                .layerName(layer.getMvtLayerName())
+                .geometryColumn(layer.getGeometryColumn())
+                .srid(layer.getSrid())
+                .extent(layer.getExtent())
+                .buffer(layer.getBuffer())
+                .attributes(layer.getAttributes().toArray(String[]::new));
+            switch (layer.getGeneralization()) {
+                case SIMPLIFY -> builder
+                    .simplifyBelowZoom(simplifyBelowZoom)
+                    .simplifyTolerancePixels(simplifyTolerancePixels);
+                case CLUSTER -> builder
+                    .clusterBelowZoom(clusterBelowZoom)
+                    .clusterCellPixels(clusterCellPixels);
+                case NONE -> {
+                }
+            }
+
+            String[] queries = new String[layer.getMaxZoom() + 1];
+            for (int z = 0; z <= layer.getMaxZoom(); z++) {
+                queries[z] = builder.build(z);
+            }
+            tileSqlByZoom.put(layer.getName(), queries);
+        }
+    }
+
+    /**
+     * Streams the layer through a server-side cursor. PgJDBC only honours the fetch size (instead
+     * of buffering the whole result set) when autocommit is off, so the connection is switched
+     * into a transaction for the duration of the read.
+     */
+    @Override
+    public int readFeatures(FeatureQuery featureQuery, FeatureSink sink) {
+        LayerDefinition layer = layerRegistry.get(featureQuery.layer());
+        String geometryColumn = quote(layer.getGeometryColumn());
+        String geometry = switch (featureQuery.encoding()) {
+            case GEOJSON -> "ST_AsGeoJSON(" + geometryColumn + ")::json";
+            case TWKB -> "ST_AsTWKB(" + geometryColumn + ", " + featureQuery.precision() + ")";
+        };
+        String keyColumn = quote(layer.getKeyColumn());
+        List<Object> params = new ArrayList<>();
+        params.add(featureQuery.surveySessionId());
+        StringBuilder conditions = new StringBuilder();
+        if (featureQuery.afterKey() != null) {
+            conditions.append("\n    AND ").append(keyColumn).append(" > CAST(? AS ").append(layer.getKeyType()).append(")");
+            params.add(featureQuery.afterKey());
+        }
+        appendFilter(layer, featureQuery.filter(), conditions, params);
+        params.add(featureQuery.limit());
+
+        String query = """
+            SELECT
+                "surveySessionId",
+                %s::text AS key,
+                %s AS geometry
+            FROM %s
+            WHERE "surveySessionId" = ?%s
+            ORDER BY %s
+            LIMIT ?
+            """.formatted(keyColumn, geometry, layer.getTable(), conditions, keyColumn);
+
+        Integer rows = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(layer.getFetchSize());
+                new ArgumentPreparedStatementSetter(params.toArray()).setValues(ps);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    int rowCount = 0;
+                    while (rs.next()) {
+                        rowCount++;
+                        // For json columns PgJDBC hands back the server's text untouched
+                        if (!sink.accept(rs.getString(1), rs.getString(2), rs.getBytes(3))) {
+                            break;
+                        }
+                    }
+                    return rowCount;
+                }
+            } finally {
+                // Read-only transaction; rolling back just closes the cursor
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * Appends the viewport and time window of {@code filter} as SQL conditions. The viewport is
+     * transformed to the layer's SRID rather than transforming the column, so the layer's GiST
+     * index can serve the {@code &&} test.
+     */
+    private static void appendFilter(LayerDefinition layer, FeatureFilter filter, StringBuilder conditions,
+                                     List<Object> params) {
+        if (filter == null) {
+            return;
+        }
+        BoundingBox bbox = filter.bbox();
+        if (bbox != null) {
+            String envelope = "ST_MakeEnvelope(?, ?, ?, ?, " + bbox.srid() + ")";
+            if (bbox.srid() != layer.getSrid()) {
+                envelope = "ST_Transform(" + envelope + ", " + layer.getSrid() + ")";
+            }
+            conditions.append("\n    AND ").append(quote(layer.getGeometryColumn())).append(" && ").append(envelope);
+            params.addAll(List.of(bbox.minX(), bbox.minY(), bbox.maxX(), bbox.maxY()));
+        }
+        if (filter.hasTimeWindow()) {
+            if (layer.getTimeColumn() == null) {
+                throw new IllegalArgumentException("Layer " + layer.getName() + " has no time column");
+            }
+            String timeColumn = quote(layer.getTimeColumn());
+            if (filter.timeFrom() != null) {
+                conditions.append("\n    AND ").append(timeColumn).append(" >= CAST(? AS timestamptz)");
+                params.add(filter.timeFrom().toString());
+            }
+            if (filter.timeTo() != null) {
+                conditions.append("\n    AND ").append(timeColumn).append(" < CAST(? AS timestamptz)");
+                params.add(filter.timeTo().toString());
+            }
+        }
+    }
+
+    /**
+     * Generates the tiles of all requested layers with one SQL statement holding one
+     * {@code ST_AsMVT} column per layer.
+     */
+    @Override
+    public List<byte[]> generateTiles(List<String> layers, int z, int x, int y, String surveySessionId) {
+        StringBuilder query = new StringBuilder("SELECT");
+        List<Object> queryParams = new ArrayList<>();
+        for (int i = 0; i < layers.size(); i++) {
+            query.append(i == 0 ? "\n" : ",\n")
+                .append("(").append(tileSql(layers.get(i), z)).append(") AS ").append(layers.get(i));
+            queryParams.addAll(List.of(z, x, y, z, x, y, surveySessionId));
+        }
+        query.append(";");
+
+        // Log the query with parameters inlined (for easier debugging)
+        if (logger.isDebugEnabled()) {
+            logger.debug("Executing MVT query for {}:\n{}", layers, formatQuery(query.toString(), queryParams.toArray()));
+        }
+
+        long queryStartTime = System.currentTimeMillis();
+        try {
+            List<byte[]> results = jdbcTemplate.queryForObject(
+                query.toString(),
+                (rs, rowNum) -> {
+                    // ST_AsMVT returns bytea (byte array)
+                    List<byte[]> columns = new ArrayList<>(layers.size());
+                    for (int i = 1; i <= layers.size(); i++) {
+                        columns.add(rs.getBytes(i));
+                    }
+                    return columns;
+                },
+                queryParams.toArray()
+            );
+
+            logger.debug("MVT query completed - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms",
+                layers, z, x, y, surveySessionId, System.currentTimeMillis() - queryStartTime);
+            return results;
+        } catch (Exception e) {
+            long queryExecutionTime = System.currentTimeMillis() - queryStartTime;
+            logger.error("Database error retrieving MVT tile - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms, error: {}",
+                layers, z, x, y, surveySessionId, queryExecutionTime, e.getMessage(), e);
+            throw new RuntimeException("Error retrieving MVT tile for " + layers, e);
+        }
+    }
+
+    /**
+     * Reads through a server-side cursor like {@link #readFeatures}. Geometries arrive as WKB
+     * already transformed by PostGIS, so they match the projection of the SQL tile path.
+     * Attributes keep the types {@code ST_AsMVT} gives them: integers, floating point numbers and
+     * booleans stay typed, anything else is read as the server's text for it. Empty geometries are
+     * skipped; a geometry of another type than the layer declares fails the whole read, since the
+     * layer's tiles could not be encoded faithfully.
+     */
+    @Override
+    public int readGeometries(String layer, String surveySessionId, GeometrySink sink) {
+        LayerDefinition definition = layerRegistry.get(layer);
+        String geometry = "ST_Force2D(" + quote(definition.getGeometryColumn()) + ")";
+        if (definition.getSrid() != 3857) {
+            geometry = "ST_Transform(" + geometry + ", 3857)";
+        }
+        StringBuilder attributes = new StringBuilder();
+        for (String attribute : definition.getAttributes()) {
+            attributes.append(",\n    ").append(quote(attribute));
+        }
+        String query = """
+            SELECT
+                ST_AsBinary(%s) AS geometry%s
+            FROM %s
+            WHERE "surveySessionId" = ?
+            ORDER BY %s
+            """.formatted(geometry, attributes, definition.getTable(), quote(definition.getKeyColumn()));
+
+        long queryStartTime = System.currentTimeMillis();
+        int[] counts = jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(definition.getFetchSize());
+                ps.setString(1, surveySessionId);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    int rowCount = 0;
+                    int skipped = 0;
+                    while (rs.next()) {
+                        byte[] wkb = rs.getBytes(1);
+                        GeometryParts parts;
+                        try {
+                            parts = wkb != null ? WkbReader.read(wkb, definition.getGeometryType()) : null;
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalStateException("Layer " + layer + " of session " + surveySessionId
+                                + " does not match layers.definitions." + layer + ".geometry-type="
+                                + definition.getGeometryType().name().toLowerCase() + ": " + e.getMessage(), e);
+                        }
+                        if (parts == null) {
+                            skipped++;
+                            continue;
+                        }
+                        Object[] values = new Object[definition.getAttributes().size()];
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = tileAttribute(rs, i + 2);
+                        }
+                        sink.accept(parts, values);
+                        rowCount++;
+                    }
+                    return new int[]{rowCount, skipped};
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+        if (counts[1] > 0) {
+            logger.debug("Skipped {} empty features of {} in session {}", counts[1], layer, surveySessionId);
+        }
+        logger.debug("Geometries read - layer: {}, surveySessionId: {}, features: {}, executionTime: {}ms",
+            layer, surveySessionId, counts[0], System.currentTimeMillis() - queryStartTime);
+        return counts[0];
+    }
+
+    private static Object tileAttribute(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        return switch (value) {
+            case null -> null;
+            case Short s -> s.longValue();
+            case Integer i -> i.longValue();
+            case Long l -> l;
+            case Float f -> f.doubleValue();
+            case Double d -> d;
+            case Boolean b -> b;
+            default -> rs.getString(column);
+        };
+    }
+
+    @Override
+    public double[] findSessionExtent(String surveySessionId) {
+        StringBuilder geometries = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        for (LayerDefinition layer : layerRegistry.all()) {
+            if (!params.isEmpty()) {
+                geometries.append("\n    UNION ALL\n");
+            }
+            geometries.append("    SELECT ");
+            geometries.append(layer.getSrid() == 4326
+                ? quote(layer.getGeometryColumn())
+                : "ST_Transform(" + quote(layer.getGeometryColumn()) + ", 4326)");
+            geometries.append(" AS g FROM ").append(layer.getTable()).append(" WHERE \"surveySessionId\" = ?");
+            params.add(surveySessionId);
+        }
+        String query = """
+            SELECT ST_XMin(extent), ST_YMin(extent), ST_XMax(extent), ST_YMax(extent)
+            FROM (
+              SELECT ST_Extent(g) AS extent
+              FROM (
+            %s
+              ) geoms
+            ) session_extent;
+            """.formatted(geometries);
+
+        List<double[]> results = jdbcTemplate.query(
+            query,
+            new ArgumentPreparedStatementSetter(params.toArray()),
+            (rs, rowNum) -> {
+                rs.getDouble(1);
+                if (rs.wasNull()) {
+                    return null;
+                }
+                return new double[]{rs.getDouble(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4)};
+            }
+        );
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public String findLastKey(String layer, String surveySessionId) {
+        LayerDefinition definition = layerRegistry.get(layer);
+        String query = """
+            SELECT max(%s)::text
+            FROM %s
+            WHERE "surveySessionId" = ?
+            """.formatted(quote(definition.getKeyColumn()), definition.getTable());
+        return jdbcTemplate.queryForObject(query, String.class, surveySessionId);
+    }
+
+    /**
+     * One count and max per layer, each answered from the {@code ("surveySessionId", key)} index
+     * used by the streams, so the lookup stays cheap for large sessions, followed by the session's
+     * change counter from {@code layers.change-counter-table} (maintained by the triggers in
+     * {@code db/session-changes.sql}), which also moves when features are updated in place.
+     * Without that table updates go undetected, which is logged once.
+     */
+    @Override
+    public String findContentFingerprint(String surveySessionId) {
+        StringBuilder layers = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        for (LayerDefinition layer : layerRegistry.all()) {
+            if (!params.isEmpty()) {
+                layers.append("\n    UNION ALL\n");
+            }
+            layers.append("    SELECT ").append(params.size())
+                .append(" AS layer, count(*) AS features, max(").append(quote(layer.getKeyColumn()))
+                .append(")::text AS last_key FROM ").append(layer.getTable())
+                .append(" WHERE \"surveySessionId\" = ?");
+            params.add(surveySessionId);
+        }
+        String changes = "''";
+        if (hasChangeCounter()) {
+            changes = "coalesce((SELECT changes FROM %s WHERE \"surveySessionId\" = ?::text), 0)::text"
+                .formatted(changeCounterTable);
+            params.add(surveySessionId);
+        }
+        String query = """
+            SELECT string_agg(features || ':' || coalesce(last_key, ''), ',' ORDER BY layer) || '|' || %s
+            FROM (
+            %s
+            ) layer_fingerprints;
+            """.formatted(changes, layers);
+        return jdbcTemplate.queryForObject(query, String.class, params.toArray());
+    }
+
+    private boolean hasChangeCounter() {
+        if (changeCounterTable == null || changeCounterTable.isBlank()) {
+            return false;
+        }
+        if (changeCounterAvailable == null) {
+            changeCounterAvailable = Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, changeCounterTable));
+            if (!changeCounterAvailable) {
+                logger.warn("Change counter table {} not found (see db/session-changes.sql); "
+                    + "features updated in place will not change session content versions", changeCounterTable);
+            }
+        }
+        return changeCounterAvailable;
+    }
+
+    /**
+     * Receives {@code NOTIFY} messages on a dedicated connection that stays in {@code LISTEN}
+     * between calls. Payloads are {@code <schema>.<table>:<surveySessionId>}, as sent by the
+     * triggers in {@code db/follow-triggers.sql}; a table maps to every layer stored in it. A
+     * broken connection is closed and reopened on the next call.
+     *
+     * <p>The connection is opened directly with the datasource settings rather than borrowed from
+     * the pool: it is held for the life of the feed, and would otherwise permanently take one of
+     * the pooled connections that streams and tiles are admitted against.
+     */
+    @Override
+    public synchronized boolean awaitChanges(String channel, long timeoutMs, FeatureChangeListener listener)
+            throws InterruptedException {
+        try {
+            if (listenConnection == null || listenConnection.isClosed() || !channel.equals(listeningChannel)) {
+                closeListenConnection();
+                listenConnection = DriverManager.getConnection(databaseUrl, databaseUser, databasePassword);
+                try (Statement statement = listenConnection.createStatement()) {
+                    statement.execute("LISTEN " + quote(channel));
+                }
+                listeningChannel = channel;
+                logger.info("Listening for feature changes on channel {}", channel);
+            }
+
+            PGNotification[] notifications = listenConnection.unwrap(PGConnection.class)
+                .getNotifications((int) Math.max(1, Math.min(timeoutMs, Integer.MAX_VALUE)));
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    dispatchNotification(notification.getParameter(), listener);
+                }
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.warn("Feature change notifications unavailable: {}", e.getMessage());
+            closeListenConnection();
+            return false;
+        }
+    }
+
+    private void dispatchNotification(String payload, FeatureChangeListener listener) {
+        int separator = payload.indexOf(':');
+        if (separator <= 0) {
+            logger.debug("Ignoring feature change notification: {}", payload);
+            return;
+        }
+        String table = payload.substring(0, separator);
+        String surveySessionId = payload.substring(separator + 1);
+        for (LayerDefinition layer : layerRegistry.all()) {
+            if (layer.getTable().equalsIgnoreCase(table)) {
+                listener.featuresChanged(layer.getName(), surveySessionId);
+            }
+        }
+    }
+
+    @PreDestroy
+    synchronized void closeListenConnection() {
+        if (listenConnection != null) {
+            try {
+                listenConnection.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing listen connection", e);
+            }
+            listenConnection = null;
+            listeningChannel = null;
+        }
+    }
+
+    /**
+     * @return Tile SQL for the layer at zoom {@code z}; see {@link TileQueryBuilder} for parameters
+     */
+    public String tileSql(String layer, int z) {
+        String[] queries = tileSqlByZoom.get(layer);
+        if (queries == null) {
+            throw new IllegalArgumentException("Unknown layer: " + layer);
+        }
+        if (z >= queries.length) {
+            throw new IllegalArgumentException("Zoom " + z + " exceeds max zoom of layer " + layer);
+        }
+        return queries[z];
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Inlines positional parameters into a query for logging only; never execute the result.
+     */
+    static String formatQuery(String query, Object[] params) {
+        StringBuilder formatted = new StringBuilder(query.length() + 64);
+        int param = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '?' && param < params.length) {
+                Object value = params[param++];
+                formatted.append(value instanceof String ? "'" + value + "'" : String.valueOf(value));
+            } else {
+                formatted.append(c);
+            }
+        }
+        return formatted.toString();
+    }
+}
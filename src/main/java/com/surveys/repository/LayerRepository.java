@@ -0,0 +1,69 @@
+package com.surveys.repository;
+
+import java.util.List;
+
+/**
+ * Source of survey layer data behind the streams and tiles. {@link JdbcLayerRepository} reads
+ * the PostGIS tables; {@link SyntheticLayerRepository} generates sessions in memory so the full
+ * HTTP stack can be exercised and load-tested without a database. The backend is selected with
+ * {@code layers.backend} ({@code jdbc} or {@code synthetic}).
+ *
+ * <p>Layers are named as in the layer registry and the API paths, e.g. {@code fov}.
+ */
+public interface LayerRepository {
+
+    /**
+     * Reads the features matching {@code query} in key order, handing each to {@code sink} as it
+     * is read, until the limit is reached or the sink asks to stop. Keys are stable, so a read can
+     * be resumed after the last key delivered.
+     *
+     * @return Number of features handed to the sink
+     */
+    int readFeatures(FeatureQuery query, FeatureSink sink);
+
+    /**
+     * Generates uncompressed MVT tiles, one per requested layer, in the order of {@code layers}.
+     * A layer without features in the tile yields null or an empty array.
+     */
+    List<byte[]> generateTiles(List<String> layers, int z, int x, int y, String surveySessionId);
+
+    /**
+     * Reads every feature of a layer of a session in key order, with its geometry projected into
+     * EPSG:3857 and the values of the layer's tile attributes, for tiles encoded in the
+     * application instead of by {@link #generateTiles}.
+     *
+     * @return Number of features handed to the sink
+     * @throws IllegalStateException if a feature is neither of the layer's geometry type nor of
+     *                               its multi-part variant
+     */
+    int readGeometries(String layer, String surveySessionId, GeometrySink sink);
+
+    /**
+     * @return {minLon, minLat, maxLon, maxLat} in EPSG:4326 of all layers of the session, or null
+     *         if the session has no geometry
+     */
+    double[] findSessionExtent(String surveySessionId);
+
+    /**
+     * @return Key of the session's last feature in the layer, or null if it has none; a changed
+     *         value means features were added
+     */
+    String findLastKey(String layer, String surveySessionId);
+
+    /**
+     * Cheap summary of a session's content across all layers: the feature count and last key of
+     * each layer, and a change counter where the backend keeps one. It changes whenever features
+     * are added to or removed from the session, and with a change counter also when they are
+     * updated, so a hash of it serves as the session's content version for HTTP validators.
+     */
+    String findContentFingerprint(String surveySessionId);
+
+    /**
+     * Waits up to {@code timeoutMs} for change notifications pushed by the backend and hands them
+     * to {@code listener}.
+     *
+     * @return false if the backend cannot push notifications right now; callers fall back to
+     *         polling {@link #findLastKey}
+     */
+    boolean awaitChanges(String channel, long timeoutMs, FeatureChangeListener listener) throws InterruptedException;
+}
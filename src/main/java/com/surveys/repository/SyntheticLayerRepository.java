@@ -0,0 +1,497 @@
+package com.surveys.repository;
+
+import com.surveys.config.LayerDefinition;
+import com.surveys.config.LayerRegistry;
+import com.surveys.geo.EncodedColumn;
+import com.surveys.geo.GeometryColumns;
+import com.surveys.geo.GeometryParts;
+import com.surveys.geo.GeometryWriters;
+import com.surveys.geo.MvtLayerEncoder;
+import com.surveys.geo.TileProjection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory layer data for offline and load testing, enabled with {@code layers.backend=synthetic}.
+ * Every survey session ID maps to a generated session built around a vehicle route from a random
+ * walk. Each configured layer is generated from the route according to its geometry type: points
+ * are route fixes, line strings are route sections and polygons are either wedges looking out from
+ * the route (shape {@code wedge}, like FOV) or elliptical plumes along it (shape {@code ellipse},
+ * like LISA). Sessions are deterministic for a given {@code layers.synthetic.seed} and session ID,
+ * so load-test runs are reproducible; feature counts and shapes are set per layer with
+ * {@code layers.synthetic.features.<layer>} and {@code layers.synthetic.shapes.<layer>}.
+ *
+ * <p>Tiles are encoded in-process with {@link MvtLayerEncoder}. Features within the tile buffer are
+ * included unclipped and are not generalized at low zooms; points falling on the same tile pixel
+ * are emitted once. Besides {@code surveySessionId}, only a {@code time} attribute is generated.
+ *
+ * <p>With {@code layers.synthetic.live-features-per-second} above zero, sessions behave like
+ * surveys in progress for streams: half of each layer is visible when the session is first used
+ * and the rest appears at that rate, which drives follow mode without a database. Tiles always
+ * hold the whole layer. Change notifications are not pushed, so followers poll.
+ */
+@Repository
+@ConditionalOnProperty(name = "layers.backend", havingValue = "synthetic")
+public class SyntheticLayerRepository implements LayerRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticLayerRepository.class);
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int WEDGE_ARC_VERTICES = 12;
+    private static final int ELLIPSE_VERTICES = 24;
+    private static final int LINESTRING_VERTICES = 60;
+
+    @Autowired
+    private LayerRegistry layerRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${layers.synthetic.seed:42}")
+    private long seed;
+
+    @Value("${layers.synthetic.route-points:20000}")
+    private int routePoints;
+
+    @Value("${layers.synthetic.default-features:1000}")
+    private int defaultFeatures;
+
+    @Value("${layers.synthetic.center-lon:-121.97}")
+    private double centerLon;
+
+    @Value("${layers.synthetic.center-lat:37.39}")
+    private double centerLat;
+
+    @Value("${layers.synthetic.cached-sessions:16}")
+    private int cachedSessions;
+
+    @Value("${layers.synthetic.live-features-per-second:0}")
+    private double liveFeaturesPerSecond;
+
+    // Recently used sessions, in access order
+    private final Map<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Override
+    public int readFeatures(FeatureQuery query, FeatureSink sink) {
+        Session session = session(query.surveySessionId());
+        SyntheticLayer layer = session.layer(query.layer());
+        int visible = visibleFeatures(session, layer);
+        EncodedColumn geometries = query.encoding() == GeometryEncoding.TWKB
+            ? layer.twkb(query.precision())
+            : layer.geoJson;
+
+        FeatureFilter filter = query.filter() != null ? query.filter() : FeatureFilter.NONE;
+        double[] viewport = filter.bbox() != null ? filter.bbox().toWgs84() : null;
+        if (filter.hasTimeWindow() && layer.times == null) {
+            throw new IllegalArgumentException("Layer " + query.layer() + " has no time column");
+        }
+
+        // Keys are feature indexes
+        int start = query.afterKey() != null ? Integer.parseInt(query.afterKey()) + 1 : 0;
+        int rowCount = 0;
+        for (int i = start; i < visible && rowCount < query.limit(); i++) {
+            if ((viewport != null && !layer.intersects(i, viewport)) || !layer.inTimeWindow(i, filter)) {
+                continue;
+            }
+            rowCount++;
+            if (!sink.accept(query.surveySessionId(), Integer.toString(i), geometries.get(i))) {
+                break;
+            }
+        }
+        return rowCount;
+    }
+
+    @Override
+    public String findLastKey(String layer, String surveySessionId) {
+        Session session = session(surveySessionId);
+        int visible = visibleFeatures(session, session.layer(layer));
+        return visible > 0 ? Integer.toString(visible - 1) : null;
+    }
+
+    @Override
+    public String findContentFingerprint(String surveySessionId) {
+        Session session = session(surveySessionId);
+        StringBuilder fingerprint = new StringBuilder();
+        for (LayerDefinition definition : layerRegistry.all()) {
+            if (!fingerprint.isEmpty()) {
+                fingerprint.append(',');
+            }
+            int visible = visibleFeatures(session, session.layer(definition.getName()));
+            fingerprint.append(visible).append(':').append(visible > 0 ? visible - 1 : "");
+        }
+        return fingerprint.toString();
+    }
+
+    @Override
+    public boolean awaitChanges(String channel, long timeoutMs, FeatureChangeListener listener) {
+        return false;
+    }
+
+    private int visibleFeatures(Session session, SyntheticLayer layer) {
+        if (liveFeaturesPerSecond <= 0) {
+            return layer.size();
+        }
+        double elapsedSeconds = (System.nanoTime() - session.createdNanos) / 1e9;
+        return (int) Math.min(layer.size(), layer.size() / 2 + (long) (elapsedSeconds * liveFeaturesPerSecond));
+    }
+
+    @Override
+    public List<byte[]> generateTiles(List<String> layers, int z, int x, int y, String surveySessionId) {
+        long startTime = System.currentTimeMillis();
+        Session session = session(surveySessionId);
+
+        List<byte[]> tiles = new ArrayList<>(layers.size());
+        for (String layerName : layers) {
+            LayerDefinition definition = layerRegistry.get(layerName);
+            double[] bounds = TileProjection.tileBounds(z, x, y, (double) definition.getBuffer() / definition.getExtent());
+            TileProjection projection = new TileProjection(z, x, y, definition.getExtent());
+            tiles.add(encodeTile(session.layer(layerName), definition, surveySessionId, bounds, projection));
+        }
+        logger.debug("Synthetic MVT tiles generated - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms",
+            layers, z, x, y, surveySessionId, System.currentTimeMillis() - startTime);
+        return tiles;
+    }
+
+    @Override
+    public int readGeometries(String layerName, String surveySessionId, GeometrySink sink) {
+        Session session = session(surveySessionId);
+        SyntheticLayer layer = session.layer(layerName);
+        List<String> attributes = layerRegistry.get(layerName).getAttributes();
+        int visible = visibleFeatures(session, layer);
+        double[] coordinates = layer.newCoordinateBuffer();
+        for (int i = 0; i < visible; i++) {
+            int vertexCount = layer.geometry.copyCoordinates(i, coordinates);
+            double[] projected = new double[vertexCount * 2];
+            for (int v = 0; v < projected.length; v += 2) {
+                projected[v] = TileProjection.mercatorX(coordinates[v]);
+                projected[v + 1] = TileProjection.mercatorY(coordinates[v + 1]);
+            }
+            Object[] values = new Object[attributes.size()];
+            for (int a = 0; a < values.length; a++) {
+                values[a] = switch (attributes.get(a)) {
+                    case "surveySessionId" -> surveySessionId;
+                    case "time" -> layer.time(i);
+                    default -> null;
+                };
+            }
+            sink.accept(GeometryParts.single(projected), values);
+        }
+        return visible;
+    }
+
+    @Override
+    public double[] findSessionExtent(String surveySessionId) {
+        double[] extent = session(surveySessionId).extent;
+        return Double.isInfinite(extent[0]) ? null : extent.clone();
+    }
+
+    private static byte[] encodeTile(SyntheticLayer layer, LayerDefinition definition, String surveySessionId,
+                                     double[] bounds, TileProjection projection) {
+        MvtLayerEncoder encoder = new MvtLayerEncoder(definition.getMvtLayerName(), definition.getExtent());
+        Set<Long> occupiedPixels = layer.type == GeometryWriters.Type.POINT ? new HashSet<>() : null;
+        double[] coordinates = layer.newCoordinateBuffer();
+        int[] xy = new int[coordinates.length];
+
+        for (int i = 0; i < layer.size(); i++) {
+            if (!layer.intersects(i, bounds)) {
+                continue;
+            }
+            Map<String, Object> attributes = layer.times == null
+                ? Map.of("surveySessionId", surveySessionId)
+                : Map.of("surveySessionId", surveySessionId, "time", layer.time(i));
+
+            int vertexCount = layer.geometry.copyCoordinates(i, coordinates);
+            if (layer.type == GeometryWriters.Type.POINT) {
+                int px = projection.tileX(coordinates[0]);
+                int py = projection.tileY(coordinates[1]);
+                if (occupiedPixels.add(((long) px << 32) | (py & 0xFFFFFFFFL))) {
+                    encoder.addPoint(px, py, attributes);
+                }
+                continue;
+            }
+
+            for (int v = 0; v < vertexCount; v++) {
+                xy[2 * v] = projection.tileX(coordinates[2 * v]);
+                xy[2 * v + 1] = projection.tileY(coordinates[2 * v + 1]);
+            }
+            if (layer.type == GeometryWriters.Type.POLYGON) {
+                encoder.addPolygon(xy, vertexCount, attributes);
+            } else {
+                encoder.addLineString(xy, vertexCount, attributes);
+            }
+        }
+        return encoder.encode();
+    }
+
+    private Session session(String surveySessionId) {
+        // Generation takes milliseconds, so it simply runs under the lock
+        synchronized (sessions) {
+            Session session = sessions.get(surveySessionId);
+            if (session == null) {
+                session = generate(surveySessionId);
+                sessions.put(surveySessionId, session);
+                if (sessions.size() > cachedSessions) {
+                    sessions.remove(sessions.keySet().iterator().next());
+                }
+            }
+            return session;
+        }
+    }
+
+    private Session generate(String surveySessionId) {
+        long startTime = System.currentTimeMillis();
+        Random random = new Random(seed ^ surveySessionId.hashCode());
+        double metersPerDegreeLon = METERS_PER_DEGREE * Math.cos(Math.toRadians(centerLat));
+
+        // A vehicle route with ~1 s GPS fixes, heading drifting gradually
+        double[][] route = new double[routePoints][];
+        double lon = centerLon + (random.nextDouble() - 0.5) * 0.02;
+        double lat = centerLat + (random.nextDouble() - 0.5) * 0.02;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        for (int i = 0; i < routePoints; i++) {
+            heading += random.nextGaussian() * 0.15;
+            double step = 4 + random.nextDouble() * 6;
+            lon += Math.sin(heading) * step / metersPerDegreeLon;
+            lat += Math.cos(heading) * step / METERS_PER_DEGREE;
+            route[i] = new double[]{lon, lat};
+        }
+        Instant surveyStart = Instant.ofEpochSecond(1_700_000_000L + random.nextInt(30_000_000));
+
+        Map<String, SyntheticLayer> layers = new HashMap<>();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (LayerDefinition definition : layerRegistry.all()) {
+            int count = environment.getProperty("layers.synthetic.features." + definition.getName(), Integer.class,
+                defaultFeatures);
+            String shape = environment.getProperty("layers.synthetic.shapes." + definition.getName(), "ellipse");
+            boolean timed = definition.getAttributes().contains("time");
+
+            GeometryColumns.Builder features = GeometryColumns.builder(SyntheticLayer.RESOLUTION);
+            long[] times = timed ? new long[count] : null;
+            for (int i = 0; i < count; i++) {
+                // Evenly spread along the route, except plumes which occur at random
+                int routeIndex = definition.getGeometryType() == GeometryWriters.Type.POLYGON && !shape.equals("wedge")
+                    ? random.nextInt(routePoints)
+                    : (int) ((long) i * routePoints / count);
+                features.add(switch (definition.getGeometryType()) {
+                    case POINT -> route[routeIndex].clone();
+                    case LINESTRING -> routeSection(route, routeIndex, routePoints / count + 1);
+                    case POLYGON -> shape.equals("wedge")
+                        ? wedge(random, route[routeIndex], metersPerDegreeLon)
+                        : ellipse(random, route[routeIndex], metersPerDegreeLon);
+                });
+                if (timed) {
+                    times[i] = surveyStart.getEpochSecond() + routeIndex;
+                }
+            }
+            layers.put(definition.getName(), new SyntheticLayer(definition.getGeometryType(), features.build(), times));
+            counts.put(definition.getName(), count);
+        }
+
+        Session session = new Session(layers);
+        logger.info("Generated synthetic survey session {} - routePoints: {}, features: {}, generationTime: {}ms",
+            surveySessionId, routePoints, counts, System.currentTimeMillis() - startTime);
+        return session;
+    }
+
+    /**
+     * The route from fix {@code start} on, up to {@code length} fixes, so that sections of
+     * consecutive features join up like a breadcrumb trail.
+     */
+    private static double[] routeSection(double[][] route, int start, int length) {
+        int vertices = Math.max(2, Math.min(Math.min(LINESTRING_VERTICES, length), route.length - start));
+        double[] line = new double[vertices * 2];
+        for (int v = 0; v < vertices; v++) {
+            double[] point = route[Math.min(start + v, route.length - 1)];
+            line[2 * v] = point[0];
+            line[2 * v + 1] = point[1];
+        }
+        return line;
+    }
+
+    /**
+     * Field of view of a rooftop sensor: a closed wedge with its apex on the route.
+     */
+    private static double[] wedge(Random random, double[] apex, double metersPerDegreeLon) {
+        double direction = random.nextDouble() * 2 * Math.PI;
+        double opening = Math.toRadians(30 + random.nextDouble() * 60);
+        double radius = 30 + random.nextDouble() * 120;
+        double[] ring = new double[(WEDGE_ARC_VERTICES + 2) * 2];
+        ring[0] = apex[0];
+        ring[1] = apex[1];
+        for (int v = 0; v < WEDGE_ARC_VERTICES; v++) {
+            double angle = direction - opening / 2 + opening * v / (WEDGE_ARC_VERTICES - 1);
+            ring[2 * (v + 1)] = apex[0] + Math.sin(angle) * radius / metersPerDegreeLon;
+            ring[2 * (v + 1) + 1] = apex[1] + Math.cos(angle) * radius / METERS_PER_DEGREE;
+        }
+        ring[ring.length - 2] = apex[0];
+        ring[ring.length - 1] = apex[1];
+        return ring;
+    }
+
+    /**
+     * Plume footprint: a closed, rotated ellipse centred on the route.
+     */
+    private static double[] ellipse(Random random, double[] center, double metersPerDegreeLon) {
+        double rotation = random.nextDouble() * Math.PI;
+        double major = 10 + random.nextDouble() * 40;
+        double minor = major * (0.3 + random.nextDouble() * 0.4);
+        double[] ring = new double[(ELLIPSE_VERTICES + 1) * 2];
+        for (int v = 0; v < ELLIPSE_VERTICES; v++) {
+            double t = 2 * Math.PI * v / ELLIPSE_VERTICES;
+            double dx = major * Math.cos(t) * Math.cos(rotation) - minor * Math.sin(t) * Math.sin(rotation);
+            double dy = major * Math.cos(t) * Math.sin(rotation) + minor * Math.sin(t) * Math.cos(rotation);
+            ring[2 * v] = center[0] + dx / metersPerDegreeLon;
+            ring[2 * v + 1] = center[1] + dy / METERS_PER_DEGREE;
+        }
+        ring[ring.length - 2] = ring[0];
+        ring[ring.length - 1] = ring[1];
+        return ring;
+    }
+
+    private static final class Session {
+
+        final Map<String, SyntheticLayer> layers;
+        final double[] extent;
+        final long createdNanos = System.nanoTime();
+
+        Session(Map<String, SyntheticLayer> layers) {
+            this.layers = layers;
+            this.extent = new double[]{
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+            };
+            for (SyntheticLayer layer : layers.values()) {
+                for (int i = 0; i < layer.size(); i++) {
+                    extent[0] = Math.min(extent[0], layer.bounds[4 * i]);
+                    extent[1] = Math.min(extent[1], layer.bounds[4 * i + 1]);
+                    extent[2] = Math.max(extent[2], layer.bounds[4 * i + 2]);
+                    extent[3] = Math.max(extent[3], layer.bounds[4 * i + 3]);
+                }
+            }
+        }
+
+        SyntheticLayer layer(String name) {
+            SyntheticLayer layer = layers.get(name);
+            if (layer == null) {
+                throw new IllegalArgumentException("Unknown layer: " + name);
+            }
+            return layer;
+        }
+    }
+
+    /**
+     * Features of one layer with their bounding boxes and stream encodings. Coordinates are held
+     * off-heap in {@link GeometryColumns} at the precision {@code ST_AsGeoJSON} writes, for tiles.
+     * Streams read encodings held off-heap in {@link EncodedColumn}s rather than encoding every
+     * row: GeoJSON is encoded up front, as the database would hand it over; TWKB is encoded once
+     * per requested precision. A session of any size is a few buffers and primitive arrays rather
+     * than objects per feature.
+     */
+    private static final class SyntheticLayer {
+
+        // GeoJSON is written with 9 decimals, so nothing finer is kept
+        private static final double RESOLUTION = 1e-9;
+
+        final GeometryWriters.Type type;
+        final GeometryColumns geometry;
+        final long[] times; // epoch seconds, or null if the layer has no time attribute
+        final double[] bounds; // minLon, minLat, maxLon, maxLat per feature
+        final int maxVertexCount;
+        final EncodedColumn geoJson;
+        private final Map<Integer, EncodedColumn> twkbByPrecision = new ConcurrentHashMap<>();
+
+        SyntheticLayer(GeometryWriters.Type type, GeometryColumns geometry, long[] times) {
+            this.type = type;
+            this.geometry = geometry;
+            this.times = times;
+            this.bounds = new double[geometry.size() * 4];
+            int maxVertices = 0;
+            for (int i = 0; i < geometry.size(); i++) {
+                maxVertices = Math.max(maxVertices, geometry.vertexCount(i));
+            }
+            this.maxVertexCount = maxVertices;
+
+            double[] feature = newCoordinateBuffer();
+            EncodedColumn.Builder geoJsonColumn = EncodedColumn.builder();
+            for (int i = 0; i < geometry.size(); i++) {
+                int vertexCount = geometry.copyCoordinates(i, feature);
+                geoJsonColumn.add(GeometryWriters.geoJson(type, feature, vertexCount));
+                double minLon = Double.POSITIVE_INFINITY;
+                double minLat = Double.POSITIVE_INFINITY;
+                double maxLon = Double.NEGATIVE_INFINITY;
+                double maxLat = Double.NEGATIVE_INFINITY;
+                for (int v = 0; v < vertexCount * 2; v += 2) {
+                    minLon = Math.min(minLon, feature[v]);
+                    minLat = Math.min(minLat, feature[v + 1]);
+                    maxLon = Math.max(maxLon, feature[v]);
+                    maxLat = Math.max(maxLat, feature[v + 1]);
+                }
+                bounds[4 * i] = minLon;
+                bounds[4 * i + 1] = minLat;
+                bounds[4 * i + 2] = maxLon;
+                bounds[4 * i + 3] = maxLat;
+            }
+            this.geoJson = geoJsonColumn.build();
+        }
+
+        int size() {
+            return geometry.size();
+        }
+
+        /**
+         * @return Buffer large enough for {@link GeometryColumns#copyCoordinates} of any feature
+         */
+        double[] newCoordinateBuffer() {
+            return new double[Math.max(2, maxVertexCount * 2)];
+        }
+
+        String time(int i) {
+            return times != null ? Instant.ofEpochSecond(times[i]).toString() : null;
+        }
+
+        boolean intersects(int i, double[] tileBounds) {
+            return bounds[4 * i] <= tileBounds[2] && bounds[4 * i + 2] >= tileBounds[0]
+                && bounds[4 * i + 1] <= tileBounds[3] && bounds[4 * i + 3] >= tileBounds[1];
+        }
+
+        boolean inTimeWindow(int i, FeatureFilter filter) {
+            if (!filter.hasTimeWindow()) {
+                return true;
+            }
+            return (filter.timeFrom() == null || compare(times[i], filter.timeFrom()) >= 0)
+                && (filter.timeTo() == null || compare(times[i], filter.timeTo()) < 0);
+        }
+
+        private static int compare(long epochSecond, Instant instant) {
+            int bySecond = Long.compare(epochSecond, instant.getEpochSecond());
+            return bySecond != 0 ? bySecond : (instant.getNano() == 0 ? 0 : -1);
+        }
+
+        EncodedColumn twkb(int precision) {
+            return twkbByPrecision.computeIfAbsent(precision, p -> {
+                double[] scratch = newCoordinateBuffer();
+                EncodedColumn.Builder encoded = EncodedColumn.builder();
+                for (int i = 0; i < geometry.size(); i++) {
+                    int vertexCount = geometry.copyCoordinates(i, scratch);
+                    encoded.add(GeometryWriters.twkb(type, scratch, vertexCount, p));
+                }
+                return encoded.build();
+            });
+        }
+    }
+}
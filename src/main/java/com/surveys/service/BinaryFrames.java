@@ -0,0 +1,103 @@
+package com.surveys.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encoder for the binary stream format served as {@value #MEDIA_TYPE}, an alternative to
+ * GeoJSON-over-SSE for the FOV, breadcrumb and LISA streams.
+ *
+ * <p>The response is a sequence of frames, each {@code [uint8 type][uint32 length][payload]}
+ * with integers in big-endian order:
+ * <ul>
+ *   <li>{@link #BATCH}: {@code [uint32 totalProcessed][uint32 count]} followed by {@code count}
+ *       features, each {@code [varint idLength][id UTF-8][varint geometryLength][TWKB geometry]}.
+ *       An {@code idLength} of 0 repeats the previous feature's survey session id.</li>
+ *   <li>{@link #ERROR}: an {@code ErrorResponse} as UTF-8 JSON; the stream ends after it.</li>
+ *   <li>{@link #END}: {@code [uint32 totalProcessed]}; marks a complete stream, so a
+ *       truncated response can be told apart from a finished one.</li>
+ * </ul>
+ * Geometries are PostGIS TWKB: coordinates quantized to a fixed number of decimal places and
+ * delta-encoded as zigzag varints, typically a fraction of the size of the GeoJSON text.
+ */
+public final class BinaryFrames {
+
+    public static final String MEDIA_TYPE = "application/vnd.surveys.twkb-stream";
+
+    public static final byte BATCH = 1;
+    public static final byte ERROR = 2;
+    public static final byte END = 3;
+
+    private static final int FRAME_HEADER_BYTES = 5;
+
+    private BinaryFrames() {
+    }
+
+    /**
+     * Feature of a binary stream: owning survey session and its TWKB geometry.
+     */
+    public record Feature(String surveySessionId, byte[] twkb) {
+    }
+
+    public static byte[] batch(List<Feature> features, int totalProcessed) {
+        int estimatedSize = FRAME_HEADER_BYTES + 8;
+        for (Feature feature : features) {
+            estimatedSize += 10 + (feature.twkb() != null ? feature.twkb().length : 0);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(estimatedSize);
+        writeInt(out, totalProcessed);
+        writeInt(out, features.size());
+
+        String previousId = null;
+        for (Feature feature : features) {
+            if (feature.surveySessionId() != null && feature.surveySessionId().equals(previousId)) {
+                writeVarint(out, 0);
+            } else {
+                byte[] id = feature.surveySessionId() != null
+                    ? feature.surveySessionId().getBytes(StandardCharsets.UTF_8)
+                    : new byte[0];
+                writeVarint(out, id.length);
+                out.writeBytes(id);
+                previousId = feature.surveySessionId();
+            }
+            byte[] twkb = feature.twkb() != null ? feature.twkb() : new byte[0];
+            writeVarint(out, twkb.length);
+            out.writeBytes(twkb);
+        }
+        return frame(BATCH, out.toByteArray());
+    }
+
+    public static byte[] error(byte[] errorJson) {
+        return frame(ERROR, errorJson);
+    }
+
+    public static byte[] end(int totalProcessed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4);
+        writeInt(out, totalProcessed);
+        return frame(END, out.toByteArray());
+    }
+
+    private static byte[] frame(byte type, byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(FRAME_HEADER_BYTES + payload.length);
+        out.write(type);
+        writeInt(out, payload.length);
+        out.writeBytes(payload);
+        return out.toByteArray();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,303 @@
+package com.surveys.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Persistent write-through tile store on local disk, one {@link SessionTileFile} per survey
+ * session. Tiles written here survive restarts, so a redeployed container serves warm tiles
+ * without querying PostGIS. Disk errors are logged and never fail a tile request.
+ *
+ * <p>When the total size exceeds {@code tiles.store.max-bytes}, whole sessions are evicted in
+ * least-recently-used order. A session file that reaches {@code tiles.store.max-session-bytes}
+ * is compacted if enough of it is superseded records; otherwise further tiles for it are not
+ * persisted.
+ *
+ * <p>Each session file records the content version of the session its tiles were generated for
+ * (see {@link SessionVersions}), and tiles are only served for that version. A session that
+ * changed while the service was down therefore does not serve its old tiles after a restart.
+ *
+ * <p>Session files are opened on first use, and at most {@code tiles.store.max-open-sessions} are
+ * kept open; the least recently used are closed beyond that and reopened when needed, so file
+ * descriptors and index memory do not grow with the number of sessions on disk.
+ */
+@Component
+public class DiskTileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskTileStore.class);
+
+    private static final String DATA_SUFFIX = ".tiles";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int INDEX_SNAPSHOT_INTERVAL = 256; // Records appended between index snapshots
+    private static final Pattern SAFE_FILE_NAME = Pattern.compile("[A-Za-z0-9_-]{1,128}");
+
+    @Value("${tiles.store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tiles.store.dir:./tile-store}")
+    private String directory;
+
+    @Value("${tiles.store.max-bytes:2147483648}")
+    private long maxBytes;
+
+    @Value("${tiles.store.max-session-bytes:268435456}")
+    private long maxSessionBytes;
+
+    @Value("${tiles.store.compaction-ratio:0.5}")
+    private double compactionRatio;
+
+    @Value("${tiles.store.max-open-sessions:64}")
+    private int maxOpenSessions;
+
+    private Path root;
+    private final Map<String, SessionTileFile> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    // Access-ordered, so iteration starts at the least recently used open file
+    private final LinkedHashMap<SessionTileFile, Boolean> openFiles = new LinkedHashMap<>(128, 0.75f, true);
+
+    @PostConstruct
+    void open() {
+        if (!enabled) {
+            return;
+        }
+        root = Paths.get(directory).toAbsolutePath();
+        try {
+            Files.createDirectories(root);
+            try (Stream<Path> files = Files.list(root)) {
+                for (Path dataPath : files.filter(p -> p.getFileName().toString().endsWith(DATA_SUFFIX)).toList()) {
+                    String fileName = dataPath.getFileName().toString();
+                    String sessionFileName = fileName.substring(0, fileName.length() - DATA_SUFFIX.length());
+                    sessions.put(sessionFileName,
+                        new SessionTileFile(dataPath, root.resolve(sessionFileName + INDEX_SUFFIX), totalBytes));
+                }
+            }
+            logger.info("Opened tile store at {} - sessions: {}, size: {} bytes", root, sessions.size(), totalBytes.get());
+            enforceTotalLimit();
+        } catch (IOException e) {
+            logger.error("Tile store at {} could not be opened, continuing without it: {}", root, e.getMessage(), e);
+            enabled = false;
+        }
+    }
+
+    /**
+     * Returns the stored tile for {@code key}, calling {@code loader} and writing its result
+     * through to disk on a miss. A null or empty result is stored as a negative entry.
+     *
+     * @return Tile bytes, or {@link TileCache#EMPTY_TILE} if the tile has no features
+     */
+    public byte[] get(TileKey key, Supplier<byte[]> loader) {
+        byte[] stored = getIfPresent(key);
+        if (stored != null) {
+            return stored;
+        }
+
+        byte[] tileData = loader.get();
+        if (tileData == null || tileData.length == 0) {
+            tileData = TileCache.EMPTY_TILE;
+        }
+        put(key, tileData);
+        return tileData;
+    }
+
+    /**
+     * @return Stored tile bytes ({@link TileCache#EMPTY_TILE} for a negative entry), or null if
+     *         the tile is not stored or the store is unavailable
+     */
+    public byte[] getIfPresent(TileKey key) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            SessionTileFile file = sessionFile(key.surveySessionId());
+            byte[] stored = file.read(slot(key), key.contentVersion());
+            used(file);
+            if (stored != null && stored.length == 0) {
+                return TileCache.EMPTY_TILE;
+            }
+            return stored;
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Tile store read failed for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a tile through to disk; failures are logged and otherwise ignored.
+     */
+    public void put(TileKey key, byte[] tileData) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            write(sessionFile(key.surveySessionId()), key, tileData);
+        } catch (UncheckedIOException e) {
+            logger.warn("Tile store write failed for {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes all stored tiles for a survey session.
+     */
+    public void evictSession(String surveySessionId) {
+        if (!enabled) {
+            return;
+        }
+        SessionTileFile file = sessions.remove(fileName(surveySessionId));
+        if (file != null) {
+            delete(file);
+        }
+    }
+
+    public long getSizeBytes() {
+        return totalBytes.get();
+    }
+
+    @PreDestroy
+    void close() {
+        for (SessionTileFile file : sessions.values()) {
+            close(file);
+        }
+        sessions.clear();
+        synchronized (openFiles) {
+            openFiles.clear();
+        }
+    }
+
+    private void write(SessionTileFile file, TileKey key, byte[] tileData) {
+        SessionTileFile.Slot slot = slot(key);
+        try {
+            // A file of another content version is emptied by the append, so it is never full
+            long recordBytes = tileData.length + 64L;
+            if (file.size() + recordBytes > maxSessionBytes && file.hasContentVersion(key.contentVersion())) {
+                if (file.deadBytes() < file.size() * compactionRatio) {
+                    logger.debug("Tile file for session is full, not persisting tile {} ({} bytes)", slot, file.size());
+                    return;
+                }
+                file.compact();
+                if (file.size() + recordBytes > maxSessionBytes) {
+                    return;
+                }
+            }
+
+            file.append(slot, tileData, key.contentVersion());
+            used(file);
+            if (file.unindexedRecords() >= INDEX_SNAPSHOT_INTERVAL) {
+                file.writeIndex();
+            }
+            enforceTotalLimit();
+        } catch (IOException e) {
+            logger.warn("Tile store write failed for {}: {}", slot, e.getMessage());
+        }
+    }
+
+    private SessionTileFile sessionFile(String surveySessionId) {
+        return sessions.computeIfAbsent(fileName(surveySessionId), name -> {
+            try {
+                return new SessionTileFile(root.resolve(name + DATA_SUFFIX), root.resolve(name + INDEX_SUFFIX), totalBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Deletes least recently used sessions until the store fits its byte budget.
+     */
+    private void enforceTotalLimit() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        List<Map.Entry<String, SessionTileFile>> byAccess = sessions.entrySet().stream()
+            .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess()))
+            .toList();
+        for (Map.Entry<String, SessionTileFile> entry : byAccess) {
+            if (totalBytes.get() <= maxBytes) {
+                break;
+            }
+            if (sessions.remove(entry.getKey(), entry.getValue())) {
+                logger.info("Evicting session {} from tile store ({} bytes)", entry.getKey(), entry.getValue().size());
+                delete(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Marks a file as just used and closes the least recently used open files beyond
+     * {@code tiles.store.max-open-sessions}.
+     */
+    private void used(SessionTileFile file) {
+        List<SessionTileFile> overflow = new ArrayList<>();
+        synchronized (openFiles) {
+            openFiles.put(file, Boolean.TRUE);
+            Iterator<SessionTileFile> iterator = openFiles.keySet().iterator();
+            while (openFiles.size() > maxOpenSessions && iterator.hasNext()) {
+                SessionTileFile eldest = iterator.next();
+                if (eldest != file) {
+                    iterator.remove();
+                    overflow.add(eldest);
+                }
+            }
+        }
+        for (SessionTileFile eldest : overflow) {
+            close(eldest);
+        }
+    }
+
+    private void close(SessionTileFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            logger.warn("Error closing tile file: {}", e.getMessage());
+        }
+    }
+
+    private void delete(SessionTileFile file) {
+        synchronized (openFiles) {
+            openFiles.remove(file);
+        }
+        try {
+            file.delete();
+        } catch (IOException e) {
+            logger.warn("Error deleting tile file: {}", e.getMessage());
+        }
+    }
+
+    private static SessionTileFile.Slot slot(TileKey key) {
+        return new SessionTileFile.Slot(key.layer(), key.z(), key.x(), key.y());
+    }
+
+    /**
+     * Ids that are safe file names are used as is, except those starting with {@code x}: that
+     * prefix marks a hex-escaped id, so no two sessions share a file.
+     */
+    private static String fileName(String surveySessionId) {
+        if (SAFE_FILE_NAME.matcher(surveySessionId).matches() && surveySessionId.charAt(0) != 'x') {
+            return surveySessionId;
+        }
+        return "x" + HexFormat.of().formatHex(surveySessionId.getBytes(StandardCharsets.UTF_8));
+    }
+}
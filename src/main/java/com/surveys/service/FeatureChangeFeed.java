@@ -0,0 +1,210 @@
+package com.surveys.service;
+
+import com.surveys.repository.LayerRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells followed streams ({@code follow=true}) when their session gets new features. All followers
+ * share one source of changes instead of each querying the database:
+ *
+ * <ul>
+ *   <li>one connection {@code LISTEN}s on {@code streams.follow.channel} for notifications sent
+ *       by the triggers in {@code db/follow-triggers.sql}</li>
+ *   <li>one poller reads the last key of every followed layer and session every
+ *       {@code streams.follow.poll-interval-ms} while notifications are unavailable (no trigger
+ *       connection, synthetic backend), and every {@code streams.follow.listen-poll-interval-ms}
+ *       as a safety net while they are</li>
+ * </ul>
+ *
+ * <p>A change is fanned out to every subscriber of the layer and session, which then reads the
+ * rows after its own last key. Subscribers also get a heartbeat every
+ * {@code streams.follow.heartbeat-ms}. Callbacks run on virtual threads, so a slow client does not
+ * hold up the others. Nothing is started until the first subscription.
+ */
+@Component
+public class FeatureChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureChangeFeed.class);
+
+    @Autowired
+    private LayerRepository layerRepository;
+
+    @Autowired
+    private SurveysMetrics metrics;
+
+    @Value("${streams.follow.listen:true}")
+    private boolean listen;
+
+    @Value("${streams.follow.channel:survey_features}")
+    private String channel;
+
+    @Value("${streams.follow.poll-interval-ms:2000}")
+    private long pollIntervalMs;
+
+    @Value("${streams.follow.listen-poll-interval-ms:30000}")
+    private long listenPollIntervalMs;
+
+    @Value("${streams.follow.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    private final Map<Topic, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<Topic, String> lastKeys = new ConcurrentHashMap<>();
+    private final ExecutorService callbackExecutor =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("follow-callback-", 0).factory());
+    private ScheduledExecutorService scheduler;
+    private Thread listenerThread;
+    private volatile boolean listening;
+    private volatile boolean running;
+    private long lastPollNanos;
+
+    /**
+     * Receives the signals of one followed stream.
+     */
+    public interface Subscriber {
+
+        /**
+         * Features may have been added to the followed layer and session.
+         */
+        void onChange();
+
+        void onHeartbeat();
+    }
+
+    @PostConstruct
+    void init() {
+        metrics.registerGauge("surveys.streams.followers", "Streams following new features",
+            () -> subscriptions.values().stream().mapToInt(Set::size).sum());
+    }
+
+    /**
+     * Subscribes to changes of a layer of a session until the subscription is closed.
+     */
+    public Subscription subscribe(String layer, String surveySessionId, Subscriber subscriber) {
+        ensureStarted();
+        Topic topic = new Topic(layer, surveySessionId);
+        Subscription subscription = new Subscription(topic, subscriber);
+        subscriptions.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(subscription);
+        logger.debug("Following {} of session {}", layer, surveySessionId);
+        return subscription;
+    }
+
+    private synchronized void ensureStarted() {
+        if (running) {
+            return;
+        }
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+            .name("follow-scheduler").daemon(true).factory());
+        scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        if (listen) {
+            listenerThread = Thread.ofVirtual().name("follow-listener").start(this::listenLoop);
+        }
+        logger.info("Feature change feed started - listen: {}, channel: {}, pollInterval: {}ms",
+            listen, channel, pollIntervalMs);
+    }
+
+    private void listenLoop() {
+        long retryMs = Math.max(pollIntervalMs, 5000);
+        while (running) {
+            try {
+                listening = layerRepository.awaitChanges(channel, 1000,
+                    (layer, surveySessionId) -> signal(new Topic(layer, surveySessionId)));
+                if (!listening) {
+                    Thread.sleep(retryMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                listening = false;
+                logger.warn("Feature change listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void poll() {
+        long now = System.nanoTime();
+        if (listening && now - lastPollNanos < TimeUnit.MILLISECONDS.toNanos(listenPollIntervalMs)) {
+            return;
+        }
+        lastPollNanos = now;
+        for (Topic topic : subscriptions.keySet()) {
+            try {
+                String lastKey = metrics.withConnection("follow",
+                    () -> layerRepository.findLastKey(topic.layer(), topic.surveySessionId()));
+                String previous = lastKey != null ? lastKeys.put(topic, lastKey) : lastKeys.remove(topic);
+                if (!Objects.equals(previous, lastKey)) {
+                    signal(topic);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Polling {} of session {} failed: {}", topic.layer(), topic.surveySessionId(), e.getMessage());
+            }
+        }
+    }
+
+    private void heartbeat() {
+        subscriptions.values().forEach(topicSubscriptions -> topicSubscriptions.forEach(subscription ->
+            callbackExecutor.execute(subscription.subscriber::onHeartbeat)));
+    }
+
+    private void signal(Topic topic) {
+        Set<Subscription> topicSubscriptions = subscriptions.get(topic);
+        if (topicSubscriptions != null) {
+            topicSubscriptions.forEach(subscription -> callbackExecutor.execute(subscription.subscriber::onChange));
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+        callbackExecutor.shutdownNow();
+    }
+
+    private record Topic(String layer, String surveySessionId) {
+    }
+
+    public final class Subscription implements AutoCloseable {
+
+        private final Topic topic;
+        private final Subscriber subscriber;
+
+        private Subscription(Topic topic, Subscriber subscriber) {
+            this.topic = topic;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.computeIfPresent(topic, (t, topicSubscriptions) -> {
+                topicSubscriptions.remove(this);
+                if (topicSubscriptions.isEmpty()) {
+                    lastKeys.remove(t);
+                    return null;
+                }
+                return topicSubscriptions;
+            });
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.surveys.service;
+
+import com.surveys.config.LayerDefinition;
+import com.surveys.config.LayerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks on startup that the {@code geometry-type} of every layer matches the type PostGIS
+ * records for its geometry column in {@code geometry_columns}, and fails startup if one does not.
+ * A layer of a type accepts columns of that type and of its multi-part variant. Columns declared
+ * as generic {@code geometry} cannot be checked here; their features are checked when the Java
+ * tile engine loads them. If the database cannot be reached, the check is skipped with a warning.
+ * Enabled by default with the jdbc layer backend; disable with
+ * {@code layers.verify-geometry-types=false}.
+ */
+@Component
+@ConditionalOnExpression("${layers.verify-geometry-types:true} and '${layers.backend:jdbc}' == 'jdbc'")
+public class GeometryTypeVerifier implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeometryTypeVerifier.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LayerRegistry layerRegistry;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> failures = new ArrayList<>();
+        for (LayerDefinition layer : layerRegistry.all()) {
+            String table = layer.getTable();
+            int dot = table.indexOf('.');
+            String schema = dot < 0 ? "public" : table.substring(0, dot);
+            String tableName = table.substring(dot + 1);
+
+            List<String> types;
+            try {
+                types = jdbcTemplate.queryForList("""
+                    SELECT type
+                    FROM geometry_columns
+                    WHERE f_table_schema = ? AND f_table_name = ? AND f_geometry_column = ?
+                    """, String.class, schema, tableName, layer.getGeometryColumn());
+            } catch (DataAccessException e) {
+                logger.warn("Cannot verify layer geometry types: {}", e.getMessage());
+                return;
+            }
+            if (types.isEmpty()) {
+                logger.warn("Geometry column {}.{} of layer {} is not listed in geometry_columns; its type is not verified",
+                    table, layer.getGeometryColumn(), layer.getName());
+                continue;
+            }
+
+            // Measured types are listed with an M suffix, e.g. POINTM
+            String columnType = types.get(0).toUpperCase().replaceFirst("M$", "");
+            String expected = layer.getGeometryType().name();
+            if (columnType.equals(expected) || columnType.equals("MULTI" + expected)) {
+                logger.info("Layer {} geometry type verified - column: {}.{}, type: {}",
+                    layer.getName(), table, layer.getGeometryColumn(), types.get(0));
+            } else if (columnType.equals("GEOMETRY")) {
+                logger.info("Layer {} geometry column {}.{} is untyped; features are checked against {} when loaded",
+                    layer.getName(), table, layer.getGeometryColumn(), expected.toLowerCase());
+            } else {
+                logger.error("Layer {} is configured as {} but column {}.{} holds {}",
+                    layer.getName(), expected.toLowerCase(), table, layer.getGeometryColumn(), types.get(0));
+                failures.add("layers.definitions." + layer.getName() + ".geometry-type=" + expected.toLowerCase()
+                    + " (column type " + types.get(0) + ")");
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Layer geometry types do not match their columns: " + failures);
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package com.surveys.service;
+
+import com.surveys.config.LayerDefinition;
+import com.surveys.geo.GeometryColumns;
+import com.surveys.geo.GeometryParts;
+import com.surveys.geo.GeometryWriters;
+import com.surveys.geo.MvtLayerEncoder;
+import com.surveys.geo.Simplification;
+import com.surveys.geo.StrTree;
+import com.surveys.geo.TileClipper;
+import com.surveys.geo.TileProjection;
+import com.surveys.repository.GeometrySink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The features of one layer of one session, held by {@link SessionTileEngine} to encode tiles
+ * without going back to PostGIS. Geometries are pre-projected to EPSG:3857 and stored off-heap in
+ * {@link GeometryColumns}, quantized to millimeters, and indexed by an {@link StrTree} over their
+ * bounding boxes. Attribute values are dictionary-encoded per attribute, since most repeat (the
+ * session id always does). Besides the geometry buffers, a layer is a handful of primitive arrays,
+ * however many features it has.
+ *
+ * <p>{@link #encodeTile} reproduces the SQL tile path ({@link TileQueryBuilder} with
+ * {@code ST_AsMVT}/{@code ST_AsMVTGeom}): the same layer name, attribute names and value types,
+ * buffer filter, snapping and simplification below the simplify zoom, grid clustering with a
+ * {@code count} attribute below the cluster zoom, clipping to the buffered tile and dropping of
+ * features smaller than half a tile pixel. Multi-part geometries stay one feature, and polygons
+ * keep their holes. Features are written in key order.
+ *
+ * <p>Instances are immutable once built and safe to share between threads.
+ */
+final class LayerGeometries {
+
+    /**
+     * Generalization settings, as {@code tiles.generalize.*} configures them for the SQL path.
+     */
+    record TileGeneralization(int simplifyBelowZoom, double simplifyTolerancePixels,
+                              int clusterBelowZoom, int clusterCellPixels) {
+    }
+
+    private static final String COUNT_ATTRIBUTE = "count";
+
+    // Quantization step of the stored EPSG:3857 coordinates: 1 mm, a tenth of a tile pixel at z20
+    private static final double RESOLUTION = 0.001;
+
+    private final GeometryWriters.Type type;
+    private final String[] attributeNames;
+    private final String[] clusterAttributeNames;
+    private final GeometryColumns geometry;
+    private final double[] centroids;
+    private final StrTree index;
+    // Per attribute: distinct values, and the index of each feature's value (-1 for null)
+    private final Object[][] dictionaries;
+    private final int[][] codes;
+    private final long sizeBytes;
+
+    private LayerGeometries(Builder builder) {
+        int count = builder.count;
+        this.type = builder.type;
+        this.attributeNames = builder.attributeNames;
+        this.clusterAttributeNames = Arrays.copyOf(attributeNames, attributeNames.length + 1);
+        this.clusterAttributeNames[attributeNames.length] = COUNT_ATTRIBUTE;
+        this.geometry = builder.geometry.build();
+        this.centroids = Arrays.copyOf(builder.centroids, count * 2);
+        this.index = new StrTree(Arrays.copyOf(builder.bounds, count * 4));
+        this.dictionaries = new Object[attributeNames.length][];
+        this.codes = new int[attributeNames.length][];
+        long bytes = 64L + geometry.offHeapBytes() + centroids.length * 8L + index.sizeBytes();
+        for (int a = 0; a < attributeNames.length; a++) {
+            dictionaries[a] = builder.dictionaries.get(a).keySet().toArray();
+            codes[a] = Arrays.copyOf(builder.codes[a], count);
+            bytes += 16L + codes[a].length * 4L;
+            for (Object value : dictionaries[a]) {
+                bytes += value instanceof String s ? 56L + s.length() : 24L;
+            }
+        }
+        this.sizeBytes = bytes;
+    }
+
+    static Builder builder(GeometryWriters.Type type, List<String> attributeNames) {
+        return new Builder(type, attributeNames.toArray(String[]::new));
+    }
+
+    int size() {
+        return geometry.size();
+    }
+
+    /**
+     * @return Approximate size in bytes, on and off the heap, which the engine's memory budget
+     *         counts
+     */
+    long sizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return Uncompressed MVT tile of this layer, or an empty array if no feature is in the tile
+     */
+    byte[] encodeTile(LayerDefinition layer, TileGeneralization generalization, int z, int x, int y) {
+        int extent = layer.getExtent();
+        int buffer = layer.getBuffer();
+        boolean cluster = layer.getGeneralization() == LayerDefinition.Generalization.CLUSTER
+            && z < generalization.clusterBelowZoom();
+        boolean simplify = layer.getGeneralization() == LayerDefinition.Generalization.SIMPLIFY
+            && z < generalization.simplifyBelowZoom();
+
+        Tile tile = new Tile(z, x, y, extent, buffer);
+        double[] filter = TileProjection.mercatorTileBounds(z, x, y, (double) buffer / extent);
+        int[] hits = query(filter);
+
+        MvtLayerEncoder encoder = new MvtLayerEncoder(layer.getMvtLayerName(), extent);
+        if (cluster) {
+            encodeClusters(encoder, tile, hits, tile.pixelSize * generalization.clusterCellPixels());
+        } else {
+            double tolerance = simplify ? tile.pixelSize * generalization.simplifyTolerancePixels() : 0;
+            double[] scratch = new double[64];
+            for (int feature : hits) {
+                if (scratch.length < geometry.vertexCount(feature) * 2) {
+                    scratch = new double[geometry.vertexCount(feature) * 2];
+                }
+                int vertexCount = geometry.copyCoordinates(feature, scratch);
+                encodeFeature(encoder, tile, feature, scratch, vertexCount, tolerance);
+            }
+        }
+        return encoder.encode();
+    }
+
+    /**
+     * @return Features whose bounding box intersects {@code filter}, in key order
+     */
+    private int[] query(double[] filter) {
+        int[][] hits = {new int[64]};
+        int[] hitCount = {0};
+        index.query(filter[0], filter[1], filter[2], filter[3], feature -> {
+            if (hitCount[0] == hits[0].length) {
+                hits[0] = Arrays.copyOf(hits[0], hits[0].length * 2);
+            }
+            hits[0][hitCount[0]++] = feature;
+        });
+        int[] sorted = Arrays.copyOf(hits[0], hitCount[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void encodeFeature(MvtLayerEncoder encoder, Tile tile, int feature, double[] xy, int vertexCount,
+                               double tolerance) {
+        if (type == GeometryWriters.Type.POINT) {
+            encodePoints(encoder, tile, feature, xy, vertexCount, tolerance);
+            return;
+        }
+
+        // Simplified part by part; collapsed rings and lines are dropped, as ST_Simplify drops them,
+        // and the holes of a dropped exterior ring with it
+        int partCount = geometry.partCount(feature);
+        List<double[]> parts = new ArrayList<>(partCount);
+        List<Boolean> holes = new ArrayList<>(partCount);
+        int minVertices = type == GeometryWriters.Type.POLYGON ? 4 : 2;
+        boolean exteriorKept = false;
+        for (int p = 0; p < partCount; p++) {
+            boolean hole = geometry.isHole(feature, p);
+            if (hole && !exteriorKept) {
+                continue;
+            }
+            double[] part = Arrays.copyOfRange(xy, 2 * geometry.partStart(feature, p), 2 * geometry.partStart(feature, p + 1));
+            if (tolerance > 0) {
+                int count = Simplification.snapToGrid(part, part.length / 2, tolerance);
+                part = Simplification.douglasPeucker(part, count, tolerance);
+            }
+            boolean kept = part.length / 2 >= minVertices;
+            if (!hole) {
+                exteriorKept = kept;
+            }
+            if (kept) {
+                parts.add(part);
+                holes.add(hole);
+            }
+        }
+        if (parts.isEmpty()) {
+            return;
+        }
+
+        // ST_AsMVTGeom drops lines and polygons smaller than half a pixel in both directions
+        if (width(parts, 0) < tile.pixelSize / 2 && width(parts, 1) < tile.pixelSize / 2) {
+            return;
+        }
+        for (double[] part : parts) {
+            for (int v = 0; v < part.length; v += 2) {
+                part[v] = tile.x(part[v]);
+                part[v + 1] = tile.y(part[v + 1]);
+            }
+        }
+
+        Object[] values = attributeValues(feature);
+        if (type == GeometryWriters.Type.LINESTRING) {
+            List<int[]> clipped = new ArrayList<>(parts.size());
+            for (double[] part : parts) {
+                for (double[] piece : TileClipper.clipLine(part, part.length / 2, tile.clipMin, tile.clipMax)) {
+                    clipped.add(round(piece));
+                }
+            }
+            int[][] rounded = clipped.toArray(int[][]::new);
+            int[] counts = new int[rounded.length];
+            for (int i = 0; i < rounded.length; i++) {
+                counts[i] = rounded[i].length / 2;
+            }
+            encoder.addLineStrings(rounded, counts, attributeNames, values);
+        } else {
+            int[][] rings = new int[parts.size()][];
+            int[] counts = new int[rings.length];
+            boolean[] interior = new boolean[rings.length];
+            for (int r = 0; r < rings.length; r++) {
+                double[] part = parts.get(r);
+                double[] ring = TileClipper.clipRing(part, part.length / 2, tile.clipMin, tile.clipMax);
+                // A ring left with fewer than three vertices has no area; the encoder drops it
+                rings[r] = round(ring);
+                counts[r] = ring.length >= 6 ? ring.length / 2 : 0;
+                interior[r] = holes.get(r);
+            }
+            encoder.addPolygons(rings, counts, interior, attributeNames, values);
+        }
+    }
+
+    /**
+     * Writes the points of a point or multipoint feature that fall into the buffered tile as one
+     * feature.
+     */
+    private void encodePoints(MvtLayerEncoder encoder, Tile tile, int feature, double[] xy, int vertexCount,
+                              double tolerance) {
+        int[] points = new int[vertexCount * 2];
+        int pointCount = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            double x = xy[2 * v];
+            double y = xy[2 * v + 1];
+            if (tolerance > 0) {
+                x = Math.rint(x / tolerance) * tolerance;
+                y = Math.rint(y / tolerance) * tolerance;
+            }
+            double px = tile.x(x);
+            double py = tile.y(y);
+            if (TileClipper.contains(px, py, tile.clipMin, tile.clipMax)) {
+                points[2 * pointCount] = (int) Math.rint(px);
+                points[2 * pointCount + 1] = (int) Math.rint(py);
+                pointCount++;
+            }
+        }
+        if (pointCount > 0) {
+            encoder.addPoints(points, pointCount, attributeNames, attributeValues(feature));
+        }
+    }
+
+    /**
+     * Groups the features into grid cells by their centroid, like the SQL path's
+     * {@code GROUP BY ST_SnapToGrid(ST_Centroid(geom), cellSize)}, and writes one point per cell
+     * at the mean of the centroids with the minimum of each attribute and a {@code count}.
+     */
+    private void encodeClusters(MvtLayerEncoder encoder, Tile tile, int[] hits, double cellSize) {
+        Map<Long, Cluster> clusters = new LinkedHashMap<>();
+        for (int feature : hits) {
+            double cx = centroids[2 * feature];
+            double cy = centroids[2 * feature + 1];
+            long cell = (((long) Math.rint(cx / cellSize)) << 32) ^ ((long) Math.rint(cy / cellSize) & 0xFFFFFFFFL);
+            Cluster cluster = clusters.computeIfAbsent(cell, c -> new Cluster(attributeNames.length));
+            cluster.sumX += cx;
+            cluster.sumY += cy;
+            cluster.count++;
+            for (int a = 0; a < attributeNames.length; a++) {
+                Object value = value(a, feature);
+                if (value != null && (cluster.min[a] == null || compare(value, cluster.min[a]) < 0)) {
+                    cluster.min[a] = value;
+                }
+            }
+        }
+
+        for (Cluster cluster : clusters.values()) {
+            double px = tile.x(cluster.sumX / cluster.count);
+            double py = tile.y(cluster.sumY / cluster.count);
+            if (!TileClipper.contains(px, py, tile.clipMin, tile.clipMax)) {
+                continue;
+            }
+            Object[] values = Arrays.copyOf(cluster.min, attributeNames.length + 1);
+            values[attributeNames.length] = (long) cluster.count;
+            encoder.addPoint((int) Math.rint(px), (int) Math.rint(py), clusterAttributeNames, values);
+        }
+    }
+
+    private Object[] attributeValues(int feature) {
+        Object[] values = new Object[attributeNames.length];
+        for (int a = 0; a < values.length; a++) {
+            values[a] = value(a, feature);
+        }
+        return values;
+    }
+
+    private Object value(int attribute, int feature) {
+        int code = codes[attribute][feature];
+        return code < 0 ? null : dictionaries[attribute][code];
+    }
+
+    /**
+     * Orders attribute values as SQL {@code min} would for the column types they come from.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a instanceof Number na && b instanceof Number nb) {
+            return Double.compare(na.doubleValue(), nb.doubleValue());
+        }
+        if (a instanceof Comparable ca && a.getClass() == b.getClass()) {
+            return ca.compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static double width(List<double[]> parts, int axis) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double[] part : parts) {
+            for (int v = axis; v < part.length; v += 2) {
+                min = Math.min(min, part[v]);
+                max = Math.max(max, part[v]);
+            }
+        }
+        return max - min;
+    }
+
+    private static int[] round(double[] xy) {
+        int[] rounded = new int[xy.length];
+        for (int i = 0; i < xy.length; i++) {
+            rounded[i] = (int) Math.rint(xy[i]);
+        }
+        return rounded;
+    }
+
+    /**
+     * Maps EPSG:3857 meters into the coordinate space of one tile, as {@code ST_AsMVTGeom} does
+     * with the envelope of {@code ST_TileEnvelope(z, x, y)}.
+     */
+    private static final class Tile {
+
+        final double pixelSize;
+        final double originX;
+        final double originY;
+        final double clipMin;
+        final double clipMax;
+
+        Tile(int z, int x, int y, int extent, int buffer) {
+            double[] envelope = TileProjection.mercatorTileBounds(z, x, y, 0);
+            this.pixelSize = (envelope[2] - envelope[0]) / extent;
+            this.originX = envelope[0];
+            this.originY = envelope[3];
+            this.clipMin = -buffer;
+            this.clipMax = extent + buffer;
+        }
+
+        double x(double mercatorX) {
+            return (mercatorX - originX) / pixelSize;
+        }
+
+        double y(double mercatorY) {
+            return (originY - mercatorY) / pixelSize;
+        }
+    }
+
+    private static final class Cluster {
+
+        final Object[] min;
+        double sumX;
+        double sumY;
+        int count;
+
+        Cluster(int attributes) {
+            this.min = new Object[attributes];
+        }
+    }
+
+    /**
+     * Collects the features handed over by {@link com.surveys.repository.LayerRepository#readGeometries}.
+     */
+    static final class Builder implements GeometrySink {
+
+        private final GeometryWriters.Type type;
+        private final String[] attributeNames;
+        private final List<Map<Object, Integer>> dictionaries;
+        private final int[][] codes;
+        private final GeometryColumns.Builder geometry = GeometryColumns.builder(RESOLUTION);
+        private double[] bounds = new double[512];
+        private double[] centroids = new double[256];
+        private int count;
+
+        private Builder(GeometryWriters.Type type, String[] attributeNames) {
+            this.type = type;
+            this.attributeNames = attributeNames;
+            this.dictionaries = Arrays.stream(attributeNames).<Map<Object, Integer>>map(name -> new LinkedHashMap<>()).toList();
+            this.codes = new int[attributeNames.length][128];
+        }
+
+        @Override
+        public void accept(GeometryParts feature, Object[] attributes) {
+            if (count == centroids.length / 2) {
+                int capacity = count * 2;
+                bounds = Arrays.copyOf(bounds, capacity * 4);
+                centroids = Arrays.copyOf(centroids, capacity * 2);
+                for (int a = 0; a < codes.length; a++) {
+                    codes[a] = Arrays.copyOf(codes[a], capacity);
+                }
+            }
+            geometry.add(feature);
+
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (double[] part : feature.parts()) {
+                for (int v = 0; v < part.length; v += 2) {
+                    minX = Math.min(minX, part[v]);
+                    minY = Math.min(minY, part[v + 1]);
+                    maxX = Math.max(maxX, part[v]);
+                    maxY = Math.max(maxY, part[v + 1]);
+                }
+            }
+            bounds[4 * count] = minX;
+            bounds[4 * count + 1] = minY;
+            bounds[4 * count + 2] = maxX;
+            bounds[4 * count + 3] = maxY;
+            centroid(feature, centroids, 2 * count);
+
+            for (int a = 0; a < attributeNames.length; a++) {
+                Object value = attributes[a];
+                Map<Object, Integer> dictionary = dictionaries.get(a);
+                codes[a][count] = value == null ? -1 : dictionary.computeIfAbsent(value, v -> dictionary.size());
+            }
+            count++;
+        }
+
+        LayerGeometries build() {
+            return new LayerGeometries(this);
+        }
+
+        /**
+         * Writes the centroid {@code ST_Centroid} would compute: area-weighted for polygons, with
+         * holes subtracted, length-weighted for lines.
+         */
+        private void centroid(GeometryParts feature, double[] out, int at) {
+            double[][] parts = feature.parts();
+            double weight = 0;
+            double sumX = 0;
+            double sumY = 0;
+            if (type == GeometryWriters.Type.POLYGON) {
+                // Relative to the first vertex, to keep the products of meter coordinates precise
+                double originX = parts[0][0];
+                double originY = parts[0][1];
+                for (int r = 0; r < parts.length; r++) {
+                    double[] ring = parts[r];
+                    double ringWeight = 0;
+                    double ringX = 0;
+                    double ringY = 0;
+                    for (int i = 0; i < ring.length / 2 - 1; i++) {
+                        double x0 = ring[2 * i] - originX;
+                        double y0 = ring[2 * i + 1] - originY;
+                        double x1 = ring[2 * i + 2] - originX;
+                        double y1 = ring[2 * i + 3] - originY;
+                        double cross = x0 * y1 - x1 * y0;
+                        ringWeight += cross;
+                        ringX += (x0 + x1) * cross;
+                        ringY += (y0 + y1) * cross;
+                    }
+                    // Exterior rings add their area and holes subtract theirs, whatever their winding
+                    double sign = (ringWeight < 0) != feature.holes()[r] ? -1 : 1;
+                    weight += sign * ringWeight;
+                    sumX += sign * ringX;
+                    sumY += sign * ringY;
+                }
+                weight *= 3;
+                if (weight != 0) {
+                    out[at] = originX + sumX / weight;
+                    out[at + 1] = originY + sumY / weight;
+                    return;
+                }
+            } else if (type == GeometryWriters.Type.LINESTRING) {
+                for (double[] line : parts) {
+                    for (int i = 0; i < line.length / 2 - 1; i++) {
+                        double length = Math.hypot(line[2 * i + 2] - line[2 * i], line[2 * i + 3] - line[2 * i + 1]);
+                        weight += length;
+                        sumX += (line[2 * i] + line[2 * i + 2]) / 2 * length;
+                        sumY += (line[2 * i + 1] + line[2 * i + 3]) / 2 * length;
+                    }
+                }
+            }
+            if (weight != 0) {
+                out[at] = sumX / weight;
+                out[at + 1] = sumY / weight;
+                return;
+            }
+            // Points, and degenerate lines and polygons: mean of the vertices
+            sumX = 0;
+            sumY = 0;
+            int vertexCount = 0;
+            for (double[] part : parts) {
+                for (int v = 0; v < part.length; v += 2) {
+                    sumX += part[v];
+                    sumY += part[v + 1];
+                    vertexCount++;
+                }
+            }
+            out[at] = sumX / vertexCount;
+            out[at + 1] = sumY / vertexCount;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.surveys.service;
+
+import com.surveys.config.LayerDefinition;
+import com.surveys.config.LayerRegistry;
+import com.surveys.repository.LayerRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional tile engine that encodes vector tiles in the application instead of with
+ * {@code ST_AsMVT} ({@code tiles.engine=java}). The first tile of a layer of a session reads all of
+ * the session's features of that layer once, pre-projected to EPSG:3857 (see
+ * {@link LayerGeometries}); every later tile of that layer, at any zoom, is clipped and encoded from
+ * memory. This pays off for hot sessions, where the SQL path re-reads and re-transforms the same
+ * geometries for every tile.
+ *
+ * <p>Loaded sessions are held up to {@code tiles.session-cache.max-bytes} and evicted whole, in
+ * least-recently-used order. Like {@link TileCache}, nothing expires; loaded geometries are tagged
+ * with the content version of the session (see {@link SessionVersions}) and only used for tiles of
+ * that version, so a session that changed is read again. Concurrent loads of the same layer and
+ * version of a session share one read.
+ */
+@Component
+public class SessionTileEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTileEngine.class);
+
+    @Autowired
+    private LayerRepository layerRepository;
+
+    @Autowired
+    private LayerRegistry layerRegistry;
+
+    @Autowired
+    private SurveysMetrics metrics;
+
+    @Value("${tiles.engine:postgis}")
+    private String engine;
+
+    @Value("${tiles.session-cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    @Value("${tiles.generalize.simplify-below-zoom:13}")
+    private int simplifyBelowZoom;
+
+    @Value("${tiles.generalize.simplify-tolerance-pixels:1.0}")
+    private double simplifyTolerancePixels;
+
+    @Value("${tiles.generalize.cluster-below-zoom:13}")
+    private int clusterBelowZoom;
+
+    @Value("${tiles.generalize.cluster-cell-pixels:64}")
+    private int clusterCellPixels;
+
+    private boolean enabled;
+    private LayerGeometries.TileGeneralization generalization;
+
+    // Access-ordered, so iteration starts at the least recently used session
+    private final LinkedHashMap<String, CachedSession> sessions = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final SingleFlight<SessionLayer, LayerGeometries> loads = new SingleFlight<>();
+
+    private long sizeBytes;
+
+    @PostConstruct
+    void init() {
+        if (!"java".equalsIgnoreCase(engine) && !"postgis".equalsIgnoreCase(engine)) {
+            throw new IllegalStateException("tiles.engine must be postgis or java, not " + engine);
+        }
+        enabled = "java".equalsIgnoreCase(engine);
+        if (!enabled) {
+            return;
+        }
+        generalization = new LayerGeometries.TileGeneralization(
+            simplifyBelowZoom, simplifyTolerancePixels, clusterBelowZoom, clusterCellPixels);
+        metrics.registerGauge("surveys.tiles.sessions.cached", "Sessions held by the Java tile engine",
+            this::cachedSessions);
+        metrics.registerGauge("surveys.tiles.sessions.bytes", "Bytes of session geometries held by the Java tile engine",
+            this::cachedBytes);
+        logger.info("Java tile engine enabled - maxBytes: {}", maxBytes);
+    }
+
+    /**
+     * @return true if tiles are encoded by this engine ({@code tiles.engine=java})
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Generates uncompressed MVT tiles, one per requested layer, like
+     * {@link LayerRepository#generateTiles}. A layer without features in the tile yields an empty
+     * array.
+     *
+     * @param contentVersion Version of the session the geometries must have been loaded at
+     */
+    public List<byte[]> generateTiles(List<String> layers, int z, int x, int y, String surveySessionId,
+                                      String contentVersion) {
+        long startTime = System.currentTimeMillis();
+        List<byte[]> tiles = new ArrayList<>(layers.size());
+        for (String layer : layers) {
+            LayerDefinition definition = layerRegistry.get(layer);
+            if (z > definition.getMaxZoom()) {
+                throw new IllegalArgumentException("Zoom " + z + " exceeds max zoom of layer " + layer);
+            }
+            tiles.add(geometries(layer, surveySessionId, contentVersion).encodeTile(definition, generalization, z, x, y));
+        }
+        logger.debug("Java MVT tiles generated - layers: {}, z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms",
+            layers, z, x, y, surveySessionId, System.currentTimeMillis() - startTime);
+        return tiles;
+    }
+
+    /**
+     * Drops the loaded geometries of a survey session, so its next tile reads them again.
+     */
+    public synchronized void evictSession(String surveySessionId) {
+        CachedSession session = sessions.remove(surveySessionId);
+        if (session != null) {
+            sizeBytes -= session.sizeBytes;
+        }
+    }
+
+    private LayerGeometries geometries(String layer, String surveySessionId, String contentVersion) {
+        LayerGeometries cached = getIfPresent(layer, surveySessionId, contentVersion);
+        if (cached != null) {
+            return cached;
+        }
+        return loads.execute(new SessionLayer(surveySessionId, layer, contentVersion), () -> {
+            // A load for this layer may have completed between the miss and joining the flight
+            LayerGeometries loaded = getIfPresent(layer, surveySessionId, contentVersion);
+            if (loaded == null) {
+                loaded = load(layer, surveySessionId);
+                put(layer, surveySessionId, contentVersion, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    private LayerGeometries load(String layer, String surveySessionId) {
+        long startTime = System.currentTimeMillis();
+        LayerDefinition definition = layerRegistry.get(layer);
+        LayerGeometries.Builder builder = LayerGeometries.builder(definition.getGeometryType(), definition.getAttributes());
+        metrics.withConnection("mvt", () -> layerRepository.readGeometries(layer, surveySessionId, builder));
+        LayerGeometries geometries = builder.build();
+        logger.info("Session geometries loaded - layer: {}, surveySessionId: {}, features: {}, bytes: {}, loadTime: {}ms",
+            layer, surveySessionId, geometries.size(), geometries.sizeBytes(), System.currentTimeMillis() - startTime);
+        return geometries;
+    }
+
+    private synchronized LayerGeometries getIfPresent(String layer, String surveySessionId, String contentVersion) {
+        CachedSession session = sessions.get(surveySessionId);
+        return session != null && session.contentVersion.equals(contentVersion) ? session.layers.get(layer) : null;
+    }
+
+    private synchronized void put(String layer, String surveySessionId, String contentVersion,
+                                  LayerGeometries geometries) {
+        // The layers of one session are always of the same version; the latest load replaces the rest
+        CachedSession session = sessions.get(surveySessionId);
+        if (session == null || !session.contentVersion.equals(contentVersion)) {
+            if (session != null) {
+                sizeBytes -= session.sizeBytes;
+            }
+            session = new CachedSession(contentVersion);
+            sessions.put(surveySessionId, session);
+        }
+        LayerGeometries previous = session.layers.put(layer, geometries);
+        long delta = geometries.sizeBytes() - (previous != null ? previous.sizeBytes() : 0);
+        session.sizeBytes += delta;
+        sizeBytes += delta;
+
+        // Evict whole sessions, oldest first, but never the one just loaded
+        Iterator<Map.Entry<String, CachedSession>> iterator = sessions.entrySet().iterator();
+        while (sizeBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CachedSession> eldest = iterator.next();
+            if (eldest.getValue() == session) {
+                continue;
+            }
+            iterator.remove();
+            sizeBytes -= eldest.getValue().sizeBytes;
+            logger.debug("Session geometries evicted - surveySessionId: {}, bytes: {}",
+                eldest.getKey(), eldest.getValue().sizeBytes);
+        }
+    }
+
+    private synchronized int cachedSessions() {
+        return sessions.size();
+    }
+
+    private synchronized long cachedBytes() {
+        return sizeBytes;
+    }
+
+    private record SessionLayer(String surveySessionId, String layer, String contentVersion) {
+    }
+
+    private static final class CachedSession {
+
+        final String contentVersion;
+        final Map<String, LayerGeometries> layers = new ConcurrentHashMap<>();
+        long sizeBytes;
+
+        CachedSession(String contentVersion) {
+            this.contentVersion = contentVersion;
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.surveys.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only tile file for a single survey session. Tiles are read with positional reads on the
+ * channel, so reading while the file grows needs no remapping and holds no address space.
+ *
+ * <p>Data file layout: a 40 byte header (magic, format version, content version of the session as
+ * {@code [byte length][31 bytes]}) followed by records of
+ * {@code [int bodyLength][int crc32(body)][body]}, where the body is
+ * {@code [byte layerLength][layer][int z][int x][int y][payload]}, where the payload is the
+ * gzip-compressed tile. An empty payload is a negative entry (the tile was generated and has no
+ * features). Files written in an older format version are discarded on open.
+ *
+ * <p>Every tile in a file belongs to the content version in its header (see
+ * {@link SessionVersions}). Reads for another version miss, and the first append for another
+ * version empties the file, so tiles written before a session changed are not served after it,
+ * even across restarts.
+ *
+ * <p>The in-memory index is periodically snapshotted to a side file together with the data
+ * length it covers (the watermark). On open the snapshot is loaded and only records written
+ * after the watermark are scanned; if the snapshot is missing or corrupt the whole file is
+ * scanned. A torn or corrupt record at the tail (e.g. after a crash mid-write) is truncated.
+ *
+ * <p>The file is opened on first use and can be closed at any time with {@link #close()}, which
+ * also drops the in-memory index; the next read or append opens it again. Its size is tracked
+ * in the store-wide byte count passed in, whether it is open or not.
+ */
+final class SessionTileFile implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTileFile.class);
+
+    private static final int FILE_MAGIC = 0x53565453; // "SVTS"
+    private static final int INDEX_MAGIC = 0x53565449; // "SVTI"
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_BYTES = 40;
+    private static final int MAX_CONTENT_VERSION_BYTES = 31;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    record Slot(String layer, int z, int x, int y) {
+    }
+
+    private record Location(long recordOffset, int recordBytes, int payloadLength) {
+        long payloadOffset() {
+            return recordOffset + recordBytes - payloadLength;
+        }
+    }
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Slot, Location> index = new HashMap<>();
+    private final AtomicLong storeBytes;
+
+    private FileChannel channel; // Null while closed
+    private boolean deleted;
+    private volatile String contentVersion; // Null until read from the header, or if none is recorded
+    private volatile long size;
+    private long deadBytes;
+    private int unindexedRecords;
+    private volatile long lastAccess;
+
+    /**
+     * A session file, existing or not, that is opened (or created) on first use.
+     *
+     * @param storeBytes Byte count of the whole store, adjusted whenever this file changes size
+     */
+    SessionTileFile(Path dataPath, Path indexPath, AtomicLong storeBytes) throws IOException {
+        this.dataPath = dataPath;
+        this.indexPath = indexPath;
+        this.storeBytes = storeBytes;
+        if (Files.exists(dataPath)) {
+            resize(Files.size(dataPath));
+            lastAccess = Files.getLastModifiedTime(dataPath).toMillis();
+        } else {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @return Stored tile bytes ({@code byte[0]} for a negative entry), or null if not stored for
+     *         that content version
+     */
+    byte[] read(Slot slot, String contentVersion) throws IOException {
+        lastAccess = System.currentTimeMillis();
+        while (true) {
+            lock.readLock().lock();
+            try {
+                if (deleted) {
+                    return null;
+                }
+                if (channel != null) {
+                    if (!contentVersion.equals(this.contentVersion)) {
+                        return null;
+                    }
+                    Location location = index.get(slot);
+                    if (location == null) {
+                        return null;
+                    }
+                    ByteBuffer payload = ByteBuffer.allocate(location.payloadLength());
+                    readFully(channel, payload, location.payloadOffset());
+                    return payload.array();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            // Closed: open under the write lock, then read again (it may be closed again meanwhile)
+            lock.writeLock().lock();
+            try {
+                ensureOpen();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Appends a tile record. A later record for the same slot supersedes the earlier one, whose
+     * bytes are counted as dead until the next compaction. If the file holds tiles of another
+     * content version, they are dropped first.
+     *
+     * @return Number of bytes appended to the file
+     */
+    int append(Slot slot, byte[] payload, String contentVersion) throws IOException {
+        byte[] layer = slot.layer().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 1 + layer.length + 12 + payload.length;
+        ByteBuffer body = ByteBuffer.allocate(bodyLength)
+            .put((byte) layer.length)
+            .put(layer)
+            .putInt(slot.z())
+            .putInt(slot.x())
+            .putInt(slot.y())
+            .put(payload)
+            .flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + bodyLength)
+            .putInt(bodyLength)
+            .putInt((int) crc.getValue())
+            .put(body)
+            .flip();
+
+        lock.writeLock().lock();
+        try {
+            if (deleted) {
+                return 0;
+            }
+            ensureOpen();
+            if (!contentVersion.equals(this.contentVersion)) {
+                reset(contentVersion);
+            }
+            long recordOffset = size;
+            writeFully(channel, record, recordOffset);
+            Location previous = index.put(slot, new Location(recordOffset, record.capacity(), payload.length));
+            if (previous != null) {
+                deadBytes += previous.recordBytes();
+            }
+            resize(size + record.capacity());
+            unindexedRecords++;
+            lastAccess = System.currentTimeMillis();
+            return record.capacity();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live records, dropping superseded ones.
+     *
+     * @return Number of bytes reclaimed
+     */
+    long compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (deleted) {
+                return 0;
+            }
+            ensureOpen();
+            Path tempPath = dataPath.resolveSibling(dataPath.getFileName() + ".compact");
+            Map<Slot, Location> compacted = new HashMap<>(index.size() * 2);
+            long newSize = HEADER_BYTES;
+            try (FileChannel target = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(target, header(contentVersion), 0);
+                for (Map.Entry<Slot, Location> entry : index.entrySet()) {
+                    Location location = entry.getValue();
+                    ByteBuffer record = ByteBuffer.allocate(location.recordBytes());
+                    readFully(channel, record, location.recordOffset());
+                    writeFully(target, record.flip(), newSize);
+                    compacted.put(entry.getKey(),
+                        new Location(newSize, location.recordBytes(), location.payloadLength()));
+                    newSize += location.recordBytes();
+                }
+                target.force(true);
+            }
+
+            // A stale snapshot must never be paired with the rewritten data file
+            Files.deleteIfExists(indexPath);
+            channel.close();
+            Files.move(tempPath, dataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            long reclaimed = size - newSize;
+            index.clear();
+            index.putAll(compacted);
+            resize(newSize);
+            deadBytes = 0;
+            writeIndexLocked();
+            logger.debug("Compacted tile file {} - reclaimed: {} bytes, size: {} bytes", dataPath, reclaimed, size);
+            return reclaimed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces appended data to disk and snapshots the index, so the next open only has to scan
+     * records appended after this point.
+     */
+    void writeIndex() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null && (unindexedRecords > 0 || Files.notExists(indexPath))) {
+                writeIndexLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    long deadBytes() {
+        return deadBytes;
+    }
+
+    int unindexedRecords() {
+        return unindexedRecords;
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * @return true if the file is known to hold tiles of this content version; false if it holds
+     *         another version or has not been opened yet
+     */
+    boolean hasContentVersion(String contentVersion) {
+        return contentVersion.equals(this.contentVersion);
+    }
+
+    /**
+     * Snapshots the index, closes the channel and drops the in-memory index. The file is opened
+     * again on its next read or append.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null) {
+                writeIndex();
+                channel.close();
+                channel = null;
+                index.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the file and removes it (and its index) from disk. A deleted file stays empty; reads
+     * miss and appends are dropped.
+     */
+    void delete() throws IOException {
+        lock.writeLock().lock();
+        try {
+            deleted = true;
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            index.clear();
+            Files.deleteIfExists(dataPath);
+            Files.deleteIfExists(indexPath);
+            resize(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Opens (or creates) the data file and recovers its index, unless it is open already. Called
+     * with the write lock held.
+     */
+    private void ensureOpen() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        channel = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        deadBytes = 0;
+        unindexedRecords = 0;
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            channel = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Drops every tile and records a new content version. The index snapshot goes first and the
+     * records next, so a crash part way leaves an empty file of either version. Called with the
+     * write lock held.
+     */
+    private void reset(String newContentVersion) throws IOException {
+        Files.deleteIfExists(indexPath);
+        channel.truncate(HEADER_BYTES);
+        writeFully(channel, header(newContentVersion), 0);
+        logger.debug("Reset tile file {} for content version {} (was {}, {} bytes)",
+            dataPath, newContentVersion, contentVersion, size);
+        index.clear();
+        deadBytes = 0;
+        unindexedRecords = 0;
+        resize(HEADER_BYTES);
+        contentVersion = newContentVersion;
+    }
+
+    private void resize(long newSize) {
+        storeBytes.addAndGet(newSize - size);
+        size = newSize;
+    }
+
+    private void recover() throws IOException {
+        resize(channel.size());
+        if (size < HEADER_BYTES || !readHeader()) {
+            if (size > 0) {
+                logger.warn("Discarding tile file with unknown format: {}", dataPath);
+            }
+            channel.truncate(0);
+            contentVersion = null;
+            writeFully(channel, header(null), 0);
+            resize(HEADER_BYTES);
+            Files.deleteIfExists(indexPath);
+            return;
+        }
+
+        long scanFrom = loadIndex();
+        long validEnd = scan(scanFrom);
+        if (unindexedRecords > 0) {
+            logger.debug("Recovered {} unindexed records from tile file {}", unindexedRecords, dataPath);
+        }
+        if (validEnd < size) {
+            logger.warn("Truncating torn tail of tile file {} at {} (was {} bytes)", dataPath, validEnd, size);
+            channel.truncate(validEnd);
+            resize(validEnd);
+        }
+    }
+
+    /**
+     * Checks the header and reads the content version from it.
+     *
+     * @return false if the file is not in the current format
+     */
+    private boolean readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != FILE_MAGIC || header.getInt() != FORMAT_VERSION) {
+            return false;
+        }
+        int length = header.get() & 0xFF;
+        if (length > MAX_CONTENT_VERSION_BYTES) {
+            return false;
+        }
+        byte[] version = new byte[length];
+        header.get(version);
+        contentVersion = length > 0 ? new String(version, StandardCharsets.UTF_8) : null;
+        return true;
+    }
+
+    /**
+     * Loads the index snapshot if it is intact and consistent with the data file.
+     *
+     * @return Data offset from which records still need to be scanned
+     */
+    private long loadIndex() {
+        if (Files.notExists(indexPath)) {
+            return HEADER_BYTES;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            if (buffer.remaining() < 24) {
+                throw new IOException("index too short");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, buffer.limit() - 4);
+            if (buffer.getInt(buffer.limit() - 4) != (int) crc.getValue()) {
+                throw new IOException("index checksum mismatch");
+            }
+            if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("unknown index format");
+            }
+            long watermark = buffer.getLong();
+            int count = buffer.getInt();
+            if (watermark < HEADER_BYTES || watermark > size) {
+                throw new IOException("index watermark " + watermark + " beyond data length " + size);
+            }
+            for (int i = 0; i < count; i++) {
+                byte[] layer = new byte[buffer.get() & 0xFF];
+                buffer.get(layer);
+                Slot slot = new Slot(new String(layer, StandardCharsets.UTF_8),
+                    buffer.getInt(), buffer.getInt(), buffer.getInt());
+                Location location = new Location(buffer.getLong(), buffer.getInt(), buffer.getInt());
+                if (location.recordOffset() + location.recordBytes() > watermark) {
+                    throw new IOException("index entry beyond watermark");
+                }
+                index.put(slot, location);
+            }
+            deadBytes = buffer.getLong();
+            return watermark;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Rebuilding tile index for {} from data file: {}", dataPath, e.getMessage());
+            index.clear();
+            deadBytes = 0;
+            return HEADER_BYTES;
+        }
+    }
+
+    /**
+     * Scans records from {@code offset}, adding them to the index.
+     *
+     * @return Offset just past the last intact record
+     */
+    private long scan(long offset) throws IOException {
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while (offset + RECORD_HEADER_BYTES <= size) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, offset);
+            recordHeader.flip();
+            int bodyLength = recordHeader.getInt();
+            int expectedCrc = recordHeader.getInt();
+            if (bodyLength < 13 || bodyLength > MAX_RECORD_BYTES
+                    || offset + RECORD_HEADER_BYTES + bodyLength > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            readFully(channel, body, offset + RECORD_HEADER_BYTES);
+            body.flip();
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                break;
+            }
+
+            byte[] layer = new byte[body.get() & 0xFF];
+            if (layer.length + 13 > bodyLength) {
+                break;
+            }
+            body.get(layer);
+            Slot slot = new Slot(new String(layer, StandardCharsets.UTF_8), body.getInt(), body.getInt(), body.getInt());
+            int recordBytes = RECORD_HEADER_BYTES + bodyLength;
+            Location previous = index.put(slot, new Location(offset, recordBytes, body.remaining()));
+            if (previous != null) {
+                deadBytes += previous.recordBytes();
+            }
+            offset += recordBytes;
+            unindexedRecords++;
+        }
+        return offset;
+    }
+
+    private void writeIndexLocked() throws IOException {
+        channel.force(false);
+
+        int capacity = 4 + 4 + 8 + 4 + 8 + 4;
+        for (Slot slot : index.keySet()) {
+            capacity += 1 + slot.layer().getBytes(StandardCharsets.UTF_8).length + 12 + 16;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(capacity)
+            .putInt(INDEX_MAGIC)
+            .putInt(FORMAT_VERSION)
+            .putLong(size)
+            .putInt(index.size());
+        for (Map.Entry<Slot, Location> entry : index.entrySet()) {
+            Slot slot = entry.getKey();
+            Location location = entry.getValue();
+            byte[] layer = slot.layer().getBytes(StandardCharsets.UTF_8);
+            buffer.put((byte) layer.length).put(layer)
+                .putInt(slot.z()).putInt(slot.x()).putInt(slot.y())
+                .putLong(location.recordOffset()).putInt(location.recordBytes()).putInt(location.payloadLength());
+        }
+        buffer.putLong(deadBytes);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        Files.write(tempPath, buffer.array());
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        unindexedRecords = 0;
+    }
+
+    private static ByteBuffer header(String contentVersion) {
+        byte[] version = contentVersion != null ? contentVersion.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (version.length > MAX_CONTENT_VERSION_BYTES) {
+            throw new IllegalArgumentException("Content version too long for tile file header: " + contentVersion);
+        }
+        return ByteBuffer.allocate(HEADER_BYTES)
+            .putInt(FILE_MAGIC)
+            .putInt(FORMAT_VERSION)
+            .put((byte) version.length)
+            .put(version)
+            .position(HEADER_BYTES)
+            .flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of tile file " + position);
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.surveys.service;
+
+import com.surveys.repository.LayerRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content versions of survey sessions, used as HTTP validators (ETags) for tiles and streams. A
+ * version is a short hash of the session's content fingerprint (see
+ * {@link LayerRepository#findContentFingerprint}), so it changes whenever features are added to,
+ * removed from or (with the change counter of {@code db/session-changes.sql}) updated in any layer
+ * of the session.
+ *
+ * <p>Versions are cached for {@code http.cache.version-ttl-ms}, so validating a request usually
+ * costs a map lookup; concurrent lookups of the same session share one query. Tiles are cached
+ * under the version they were generated for, and the tile store records it in each session file,
+ * so tiles of an older version are never served for a newer one. When a lookup finds that a
+ * session's version changed, the session's old tiles are evicted from {@link TileCache},
+ * {@link DiskTileStore} and {@link SessionTileEngine} to free their space. At most
+ * {@code http.cache.max-sessions} versions are kept, least recently used first out; dropping one
+ * only means the next request for that session looks it up again.
+ */
+@Component
+public class SessionVersions {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionVersions.class);
+
+    @Autowired
+    private LayerRepository layerRepository;
+
+    @Autowired
+    private TileCache tileCache;
+
+    @Autowired
+    private DiskTileStore diskTileStore;
+
+    @Autowired
+    private SessionTileEngine sessionTileEngine;
+
+    @Autowired
+    private SurveysMetrics metrics;
+
+    @Value("${http.cache.version-ttl-ms:5000}")
+    private long ttlMs;
+
+    @Value("${http.cache.max-sessions:100000}")
+    private int maxSessions;
+
+    // Access-ordered, so iteration starts at the least recently used session
+    private final LinkedHashMap<String, Version> versions = new LinkedHashMap<>(1024, 0.75f, true);
+
+    private final SingleFlight<String, String> lookups = new SingleFlight<>();
+
+    @PostConstruct
+    void init() {
+        metrics.registerGauge("surveys.http.session-versions.cached", "Session content versions held for HTTP validation",
+            this::cachedVersions);
+    }
+
+    /**
+     * @return Content version of the session, at most {@code http.cache.version-ttl-ms} old
+     */
+    public String get(String surveySessionId) {
+        Version cached = getIfFresh(surveySessionId);
+        if (cached != null) {
+            return cached.value();
+        }
+        return lookups.execute(surveySessionId, () -> {
+            // A lookup for this session may have completed between the miss and joining the flight
+            Version current = getIfFresh(surveySessionId);
+            return current != null ? current.value() : lookup(surveySessionId);
+        });
+    }
+
+    /**
+     * @return Combined content version of several sessions; the version of the session itself if
+     *         there is only one
+     */
+    public String get(List<String> surveySessionIds) {
+        if (surveySessionIds.size() == 1) {
+            return get(surveySessionIds.get(0));
+        }
+        StringBuilder combined = new StringBuilder();
+        for (String surveySessionId : surveySessionIds) {
+            combined.append(surveySessionId).append('=').append(get(surveySessionId)).append(';');
+        }
+        return hash(combined.toString());
+    }
+
+    private String lookup(String surveySessionId) {
+        long startTime = System.currentTimeMillis();
+        String fingerprint = metrics.withConnection("version",
+            () -> layerRepository.findContentFingerprint(surveySessionId));
+        String version = hash(fingerprint);
+        logger.debug("Session version looked up - surveySessionId: {}, version: {}, executionTime: {}ms",
+            surveySessionId, version, System.currentTimeMillis() - startTime);
+
+        Version previous = put(surveySessionId, new Version(version, System.nanoTime()));
+        if (previous != null && !previous.value().equals(version)) {
+            logger.info("Session content changed - surveySessionId: {}, version: {} -> {}",
+                surveySessionId, previous.value(), version);
+            evictTiles(surveySessionId);
+        }
+        return version;
+    }
+
+    private void evictTiles(String surveySessionId) {
+        tileCache.evictSession(surveySessionId);
+        diskTileStore.evictSession(surveySessionId);
+        sessionTileEngine.evictSession(surveySessionId);
+    }
+
+    private synchronized Version getIfFresh(String surveySessionId) {
+        Version version = versions.get(surveySessionId);
+        if (version == null || System.nanoTime() - version.checkedNanos() > ttlMs * 1_000_000L) {
+            return null;
+        }
+        return version;
+    }
+
+    private synchronized Version put(String surveySessionId, Version version) {
+        Version previous = versions.put(surveySessionId, version);
+        Iterator<Map.Entry<String, Version>> iterator = versions.entrySet().iterator();
+        while (versions.size() > maxSessions && iterator.hasNext()) {
+            Map.Entry<String, Version> eldest = iterator.next();
+            if (!eldest.getKey().equals(surveySessionId)) {
+                iterator.remove();
+            }
+        }
+        return previous;
+    }
+
+    private synchronized int cachedVersions() {
+        return versions.size();
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Version(String value, long checkedNanos) {
+    }
+}
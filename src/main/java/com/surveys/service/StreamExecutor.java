@@ -0,0 +1,140 @@
+package com.surveys.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs SSE stream workers on virtual threads behind admission control. Each stream holds a
+ * database connection for its whole lifetime, so the number of concurrently running streams is
+ * capped globally ({@code streams.max-concurrent}, kept below the connection pool size so tile
+ * requests always find a connection) and per endpoint ({@code streams.max-concurrent-per-endpoint}).
+ *
+ * <p>A request that finds no free slot waits in a bounded queue ({@code streams.max-queued}) for
+ * up to {@code streams.queue-timeout-ms}; if the queue is full or the wait times out the stream is
+ * rejected, and the caller answers 503 with a Retry-After header.
+ */
+@Component
+public class StreamExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamExecutor.class);
+
+    @Value("${streams.max-concurrent:12}")
+    private int maxConcurrent;
+
+    @Value("${streams.max-concurrent-per-endpoint:6}")
+    private int maxConcurrentPerEndpoint;
+
+    @Value("${streams.max-queued:32}")
+    private int maxQueued;
+
+    @Value("${streams.queue-timeout-ms:2000}")
+    private long queueTimeoutMs;
+
+    @Value("${streams.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    private final ExecutorService executorService =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-stream-", 0).factory());
+    private final Map<String, Semaphore> endpointPermits = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private Semaphore globalPermits;
+
+    @Autowired
+    private SurveysMetrics metrics;
+
+    @PostConstruct
+    void init() {
+        globalPermits = new Semaphore(maxConcurrent, true);
+        metrics.registerGauge("surveys.streams.active", "Streams currently running", active::get);
+        metrics.registerGauge("surveys.streams.queued", "Streams waiting for admission", queued::get);
+    }
+
+    /**
+     * Admits and starts a stream, waiting in the queue if all slots are taken.
+     *
+     * @param endpoint Endpoint name the per-endpoint limit applies to
+     * @return false if the stream was rejected; the task has not been run
+     */
+    public boolean submit(String endpoint, Runnable task) {
+        return submit(endpoint, 1, task);
+    }
+
+    /**
+     * Admits and starts a stream that holds {@code connections} database connections at once, e.g.
+     * a session stream reading several layers concurrently. It takes one global slot per
+     * connection and one slot of its endpoint.
+     *
+     * @return false if the stream was rejected; the task has not been run
+     */
+    public boolean submit(String endpoint, int connections, Runnable task) {
+        int slots = Math.max(1, Math.min(connections, maxConcurrent));
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            logger.warn("Stream rejected for {} - queue full ({} waiting)", endpoint, maxQueued);
+            return false;
+        }
+
+        Semaphore endpointSlot = endpointPermits.computeIfAbsent(endpoint, name -> new Semaphore(maxConcurrentPerEndpoint, true));
+        Semaphore globalSlot = globalPermits;
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+            if (!endpointSlot.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("Stream rejected for {} - endpoint limit of {} reached", endpoint, maxConcurrentPerEndpoint);
+                return false;
+            }
+            if (!globalSlot.tryAcquire(slots, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                endpointSlot.release();
+                logger.warn("Stream rejected for {} - global limit of {} reached", endpoint, maxConcurrent);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+
+        active.incrementAndGet();
+        executorService.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                globalSlot.release(slots);
+                endpointSlot.release();
+            }
+        });
+        return true;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getActiveStreams() {
+        return active.get();
+    }
+
+    public int getQueuedStreams() {
+        return queued.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,156 @@
+package com.surveys.service;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded hand-off between the reader stage of a stream (cursor fetch and row mapping) and its
+ * writer stage (serialization and {@code emitter.send}). The queue is bounded by rows, not
+ * batches: batches queued together hold at most {@code maxRows} rows whatever the batch size, so
+ * the budget holds however many readers share the pipeline. When the client falls behind the
+ * reader blocks in {@link #put} and stops advancing the cursor. A batch larger than
+ * {@code maxRows} takes the whole budget and is queued alone; callers keep batches within it.
+ *
+ * <p>Either side can end the pipeline: the reader with {@link #complete} or {@link #fail}, the
+ * writer with {@link #cancel}, which makes a blocked reader give up within one poll interval.
+ *
+ * <p>A writer multiplexing several pipelines passes each the same {@code ready} semaphore, which
+ * gets one permit per batch or end marker handed over, and drains them with {@link #poll}.
+ *
+ * <p>Each batch carries the repository key of its last row, so the writer can tell clients where
+ * to resume.
+ */
+final class StreamPipeline<T> {
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    // Terminal marker; a Throwable in the queue marks a failed reader
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    // Rows that can still be queued
+    private final Semaphore rowPermits;
+    private final int maxRows;
+    private final Semaphore ready;
+    private volatile boolean cancelled;
+    private boolean finished;
+
+    /**
+     * @param surveySessionId Session all rows of the batch belong to
+     * @param lastKey Repository key of the last row in {@code rows}
+     */
+    record Batch<T>(String surveySessionId, List<T> rows, String lastKey) {
+    }
+
+    StreamPipeline(int maxRows) {
+        this(maxRows, null);
+    }
+
+    /**
+     * @param maxRows Rows queued at most, across all batches
+     * @param ready Released once for every batch, end marker or failure handed to the writer
+     */
+    StreamPipeline(int maxRows, Semaphore ready) {
+        this.maxRows = Math.max(1, maxRows);
+        this.rowPermits = new Semaphore(this.maxRows);
+        this.ready = ready;
+    }
+
+    /**
+     * Hands a batch to the writer, blocking until the queue has room for its rows.
+     *
+     * @return false if the writer cancelled the stream; the reader should stop
+     */
+    boolean put(Batch<T> batch) throws InterruptedException {
+        int permits = permits(batch);
+        while (!cancelled) {
+            if (rowPermits.tryAcquire(permits, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                hand(batch);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks the end of the rows; never blocks, as end markers take no room.
+     */
+    void complete() {
+        if (!cancelled) {
+            hand(END);
+        }
+    }
+
+    void fail(Throwable error) {
+        if (!cancelled) {
+            hand(error);
+        }
+    }
+
+    /**
+     * @return Next batch, or null once the reader has completed
+     * @throws RuntimeException the reader's failure
+     */
+    Batch<T> take() throws InterruptedException {
+        return unwrap(queue.take());
+    }
+
+    /**
+     * Non-blocking {@link #take}.
+     *
+     * @return Next batch, or null if none is queued or the reader has completed; see
+     *         {@link #isFinished}
+     * @throws RuntimeException the reader's failure
+     */
+    Batch<T> poll() {
+        Object next = queue.poll();
+        return next != null ? unwrap(next) : null;
+    }
+
+    /**
+     * @return true once the writer has taken the reader's end marker
+     */
+    boolean isFinished() {
+        return finished;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Batch<T> unwrap(Object next) {
+        if (next == END) {
+            finished = true;
+            return null;
+        }
+        if (next instanceof RuntimeException e) {
+            throw e;
+        }
+        if (next instanceof Throwable t) {
+            throw new RuntimeException(t);
+        }
+        Batch<T> batch = (Batch<T>) next;
+        rowPermits.release(permits(batch));
+        return batch;
+    }
+
+    void cancel() {
+        cancelled = true;
+        queue.clear();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    private int permits(Batch<T> batch) {
+        return Math.min(Math.max(1, batch.rows().size()), maxRows);
+    }
+
+    private void hand(Object item) {
+        queue.add(item);
+        if (ready != null) {
+            ready.release();
+        }
+    }
+}
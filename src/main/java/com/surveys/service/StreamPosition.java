@@ -0,0 +1,40 @@
+package com.surveys.service;
+
+/**
+ * Position of a client in an SSE layer stream, sent as the id of every batch event. A browser
+ * that loses its connection sends the id of the last event it received back in
+ * {@code Last-Event-ID}, and the stream resumes right after that row.
+ *
+ * <p>The id is {@code <delivered>:<lastKey>}: the number of rows delivered so far, which keeps
+ * {@code totalProcessed} continuous across reconnects, and the repository key of the last row,
+ * which the resumed read continues after. Keys may themselves contain colons.
+ *
+ * @param delivered Rows delivered to the client up to and including the event
+ * @param lastKey Repository key of the last delivered row
+ */
+public record StreamPosition(int delivered, String lastKey) {
+
+    /**
+     * @throws IllegalArgumentException if {@code eventId} is not a stream position
+     */
+    public static StreamPosition parse(String eventId) {
+        int separator = eventId.indexOf(':');
+        if (separator <= 0 || separator == eventId.length() - 1) {
+            throw new IllegalArgumentException("Invalid stream position: " + eventId);
+        }
+        int delivered;
+        try {
+            delivered = Integer.parseInt(eventId, 0, separator, 10);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid stream position: " + eventId);
+        }
+        if (delivered < 1) {
+            throw new IllegalArgumentException("Invalid stream position: " + eventId);
+        }
+        return new StreamPosition(delivered, eventId.substring(separator + 1));
+    }
+
+    public String eventId() {
+        return delivered + ":" + lastKey;
+    }
+}
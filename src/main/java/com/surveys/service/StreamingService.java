@@ -1,611 +1,904 @@
 package com.surveys.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.surveys.config.LayerDefinition;
+import com.surveys.config.LayerRegistry;
 import com.surveys.dto.BatchResponse;
-import com.surveys.dto.BreadcrumbResponse;
 import com.surveys.dto.ErrorResponse;
-import com.surveys.dto.FovResponse;
-import com.surveys.dto.LisaResponse;
+import com.surveys.dto.FeatureResponse;
+import com.surveys.dto.RawJson;
+import com.surveys.dto.SessionStreamSummary;
+import com.surveys.repository.FeatureFilter;
+import com.surveys.repository.FeatureQuery;
+import com.surveys.repository.GeometryEncoding;
+import com.surveys.repository.LayerRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.Map;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class StreamingService {
 
     private static final Logger logger = LoggerFactory.getLogger(StreamingService.class);
 
+    private static final MediaType BINARY_MEDIA_TYPE = MediaType.parseMediaType(BinaryFrames.MEDIA_TYPE);
+
+    @Autowired
+    private LayerRepository layerRepository;
+
+    @Autowired
+    private LayerRegistry layerRegistry;
+
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private FeatureChangeFeed featureChangeFeed;
+
+    @Autowired
+    private StreamExecutor streamExecutor;
 
     @Autowired
     private ObjectMapper objectMapper;
 
-    public void streamFovData(String surveySessionId, int limit, int batchSize, SseEmitter emitter) throws IOException {
-        final int dbBatchSize = 1000; // Database query batch size
-        int offset = 0;
-        int totalRows = 0;
-        List<FovResponse> emitBatch = new ArrayList<>();
+    @Autowired
+    private TileCache tileCache;
 
-        try {
-            while (totalRows < limit) {
-                int remainingLimit = limit - totalRows;
-                int currentDbBatchSize = Math.min(dbBatchSize, remainingLimit);
+    @Autowired
+    private DiskTileStore diskTileStore;
 
-                if (currentDbBatchSize <= 0) {
-                    break;
-                }
+    @Autowired
+    private TileCompression tileCompression;
 
-                String query = """
-                    SELECT
-                        "surveySessionId",
-                        ST_AsGeoJSON(geom)::json AS geometry
-                    FROM public.layer_fov_copy
-                    WHERE "surveySessionId" = ?
-                    ORDER BY ctid
-                    LIMIT ? OFFSET ?
-                    """;
-
-                List<FovResponse> results = jdbcTemplate.query(
-                    query,
-                    new ArgumentPreparedStatementSetter(new Object[]{surveySessionId, currentDbBatchSize, offset}),
-                    this::mapFovRow
-                );
-
-                if (results.isEmpty() || totalRows >= limit) {
-                    break;
-                }
+    @Autowired
+    private SessionTileEngine sessionTileEngine;
 
-                // Add results to emit batch
-                for (FovResponse row : results) {
-                    emitBatch.add(row);
-                    totalRows++;
-
-                    // Emit batch when it reaches the specified size
-                    if (emitBatch.size() >= batchSize) {
-                        BatchResponse<FovResponse> batchResponse = new BatchResponse<>(
-                            new ArrayList<>(emitBatch),
-                            totalRows
-                        );
-                        emitter.send(SseEmitter.event()
-                            .data(objectMapper.writeValueAsString(batchResponse)));
-                        emitBatch.clear();
-                    }
+    @Autowired
+    private SurveysMetrics metrics;
 
-                    if (totalRows >= limit) {
-                        break;
-                    }
-                }
+    @Value("${streams.binary.precision:6}")
+    private int binaryPrecision;
 
-                offset += results.size();
+    @Value("${streams.pipeline.max-buffered-rows:8000}")
+    private int maxBufferedRows;
 
-                if (totalRows >= limit || results.size() < dbBatchSize) {
-                    break;
-                }
+    @Value("${streams.multi-session.max-connections:4}")
+    private int multiSessionConnections;
+
+    /**
+     * Streams a layer as SSE events, each carrying one JSON batch of features. Every event's id is
+     * the {@link StreamPosition} after its batch, so a reconnecting client can resume the stream.
+     *
+     * @param layer Layer name from the {@link LayerRegistry}
+     * @param filter Viewport and time window; a resumed stream keeps the filter of its request
+     * @param resumeFrom Position from the client's {@code Last-Event-ID}, or null to start from the
+     *                   first row; {@code limit} counts the rows already delivered
+     * @param follow Keep the stream open after the backlog and push features added later; see
+     *               {@link FeatureChangeFeed}. Rows the backlog left out because of {@code limit}
+     *               are not sent: following starts after the session's last row as of the
+     *               start of the stream
+     */
+    public void streamLayerData(String layer, String surveySessionId, FeatureFilter filter, int limit, int batchSize,
+                                StreamPosition resumeFrom, boolean follow, SseEmitter emitter) {
+        LayerDefinition definition = layerRegistry.get(layer);
+        try {
+            int delivered = resumeFrom != null ? resumeFrom.delivered() : 0;
+            if (resumeFrom != null) {
+                logger.info("Resuming {} stream - surveySessionId: {}, delivered: {}, afterKey: {}",
+                    layer, surveySessionId, delivered, resumeFrom.lastKey());
+            }
+            // Last row of the session before the backlog is read; newer rows are the ones to follow
+            String watermark = follow
+                ? metrics.withConnection(layer, () -> layerRepository.findLastKey(layer, surveySessionId))
+                : null;
+            StreamPosition[] position = {resumeFrom};
+            boolean backlogComplete = false;
+            if (delivered < limit) {
+                FeatureQuery query = new FeatureQuery(layer, surveySessionId,
+                    resumeFrom != null ? resumeFrom.lastKey() : null, filter, limit - delivered,
+                    GeometryEncoding.GEOJSON, 0);
+                int rows = streamQuery(query, "json", delivered,
+                    (sessionId, geometry) -> mapFeatureRow(definition, sessionId, geometry), batchSize,
+                    this::encodeJsonBatch,
+                    (frame, batchPosition) -> {
+                        emitter.send(SseEmitter.event().id(batchPosition.eventId()).data(frame));
+                        position[0] = batchPosition;
+                    });
+                backlogComplete = rows < limit - delivered;
+            } else {
+                logger.debug("{} stream backlog already delivered at {} rows", layer, delivered);
             }
 
-            // Emit any remaining records as final batch
-            if (!emitBatch.isEmpty()) {
-                BatchResponse<FovResponse> batchResponse = new BatchResponse<>(
-                    emitBatch,
-                    totalRows
-                );
-                emitter.send(SseEmitter.event()
-                    .data(objectMapper.writeValueAsString(batchResponse)));
+            if (follow) {
+                // A backlog cut short by limit leaves older rows unread, which following must skip
+                StreamPosition followFrom = position[0];
+                if ((!backlogComplete || followFrom == null) && watermark != null) {
+                    followFrom = new StreamPosition(followFrom != null ? followFrom.delivered() : delivered, watermark);
+                }
+                new Follower(definition, surveySessionId, filter, batchSize, followFrom, emitter).start();
+            } else {
+                emitter.complete();
             }
+        } catch (Exception e) {
+            sendError(emitter, "Error streaming " + layer + " data", e);
+        }
+    }
 
+    /**
+     * Streams a layer of several sessions as one SSE stream. The sessions are read in parallel by
+     * at most {@code streams.multi-session.max-connections} readers, each holding one connection
+     * and taking the next unread session when it finishes one; batches are sent in the order they
+     * are read. Every batch holds rows of one session and is tagged with its
+     * {@code surveySessionId}; {@code totalProcessed} and {@code limit} count per session.
+     *
+     * @param layer Layer name from the {@link LayerRegistry}
+     */
+    public void streamLayerSessions(String layer, List<String> surveySessionIds, FeatureFilter filter, int limit,
+                                    int batchSize, SseEmitter emitter) {
+        LayerDefinition definition = layerRegistry.get(layer);
+        try {
+            streamSessionsQuery(layer, surveySessionIds, filter, limit, GeometryEncoding.GEOJSON, 0, "json",
+                (sessionId, geometry) -> mapFeatureRow(definition, sessionId, geometry), batchSize,
+                (sessionId, batch, totalProcessed) ->
+                    objectMapper.writeValueAsBytes(new BatchResponse<>(sessionId, batch, totalProcessed)),
+                frame -> emitter.send(SseEmitter.event().data(frame)));
             emitter.complete();
         } catch (Exception e) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("Error streaming FOV data", e.getMessage())
-                    )));
-            } catch (IOException ioException) {
-                // Ignore if emitter is already closed
-            }
-            emitter.completeWithError(e);
+            sendError(emitter, "Error streaming " + layer + " data", e);
         }
     }
 
-    public void streamBreadcrumbData(String surveySessionId, int limit, int batchSize, SseEmitter emitter) throws IOException {
-        final int dbBatchSize = 1000; // Database query batch size
-        int offset = 0;
-        int totalRows = 0;
-        List<BreadcrumbResponse> emitBatch = new ArrayList<>();
-
+    /**
+     * Binary variant of {@link #streamLayerSessions}. Features carry their session id; the end
+     * frame holds the row count of all sessions.
+     */
+    public void streamBinarySessions(String layer, List<String> surveySessionIds, FeatureFilter filter, int limit,
+                                     int batchSize, ResponseBodyEmitter emitter) {
         try {
-            while (totalRows < limit) {
-                int remainingLimit = limit - totalRows;
-                int currentDbBatchSize = Math.min(dbBatchSize, remainingLimit);
+            int total = streamSessionsQuery(layer, surveySessionIds, filter, limit, GeometryEncoding.TWKB, binaryPrecision,
+                "binary", StreamingService::mapBinaryRow, batchSize,
+                (sessionId, batch, totalProcessed) -> BinaryFrames.batch(batch, totalProcessed),
+                frame -> emitter.send(frame, BINARY_MEDIA_TYPE));
+            emitter.send(BinaryFrames.end(total), BINARY_MEDIA_TYPE);
+            emitter.complete();
+        } catch (Exception e) {
+            sendBinaryError(emitter, "Error streaming " + layer + " data", e);
+        }
+    }
 
-                if (currentDbBatchSize <= 0) {
-                    break;
-                }
+    /**
+     * Number of readers, and so of database connections, a multi-session stream of
+     * {@code sessions} sessions uses.
+     */
+    public int sessionReaders(int sessions) {
+        return Math.max(1, Math.min(multiSessionConnections, sessions));
+    }
 
-                String query = """
-                    SELECT
-                        "surveySessionId",
-                        ST_AsGeoJSON(coordinates)::json AS coordinates
-                    FROM public.layer_breadcrumb
-                    WHERE "surveySessionId" = ?
-                    ORDER BY ctid
-                    LIMIT ? OFFSET ?
-                    """;
-
-                List<BreadcrumbResponse> results = jdbcTemplate.query(
-                    query,
-                    new ArgumentPreparedStatementSetter(new Object[]{surveySessionId, currentDbBatchSize, offset}),
-                    this::mapBreadcrumbRow
-                );
-
-                if (results.isEmpty() || totalRows >= limit) {
-                    break;
-                }
+    /**
+     * Streams several layers of a session over one SSE connection. Every layer is read
+     * concurrently by its own reader; batches are sent as events named after their layer, taking
+     * turns between the layers that have a batch ready so a large layer cannot hold back the
+     * others. {@code limit} caps the rows of all layers together. A final {@code complete} event
+     * carries the row count of each layer.
+     *
+     * @param batchSize Rows per batch, or null for each layer's default batch size
+     */
+    public void streamSessionData(String surveySessionId, List<String> layers, int limit, Integer batchSize,
+                                  SseEmitter emitter) {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        Semaphore ready = new Semaphore(0);
+        List<SessionLayer> active = new ArrayList<>(layers.size());
+        try {
+            for (String layer : layers) {
+                LayerDefinition definition = layerRegistry.get(layer);
+                int layerBatchSize = batchSize != null ? batchSize : definition.getDefaultBatchSize();
+                // Layers share the stream's row budget
+                StreamPipeline<FeatureResponse> pipeline = new StreamPipeline<>(maxBufferedRows / layers.size(), ready);
+                Thread reader = startReader(
+                    new FeatureQuery(layer, surveySessionId, null, FeatureFilter.NONE, limit, GeometryEncoding.GEOJSON, 0),
+                    "json",
+                    (sessionId, geometry) -> mapFeatureRow(definition, sessionId, geometry), layerBatchSize, pipeline);
+                active.add(new SessionLayer(layer, pipeline, reader));
+            }
+        } catch (RuntimeException e) {
+            active.forEach(SessionLayer::stop);
+            sendError(emitter, "Error streaming session " + surveySessionId, e);
+            return;
+        }
 
-                // Add results to emit batch
-                for (BreadcrumbResponse row : results) {
-                    emitBatch.add(row);
-                    totalRows++;
-
-                    // Emit batch when it reaches the specified size
-                    if (emitBatch.size() >= batchSize) {
-                        BatchResponse<BreadcrumbResponse> batchResponse = new BatchResponse<>(
-                            new ArrayList<>(emitBatch),
-                            totalRows
-                        );
-                        emitter.send(SseEmitter.event()
-                            .data(objectMapper.writeValueAsString(batchResponse)));
-                        emitBatch.clear();
+        List<SessionLayer> streams = List.copyOf(active);
+        Map<String, Integer> layerRows = new LinkedHashMap<>();
+        layers.forEach(layer -> layerRows.put(layer, 0));
+        int totalRows = 0;
+        int next = 0;
+        try {
+            while (!active.isEmpty() && totalRows < limit) {
+                // One permit per batch or end marker queued on any of the pipelines
+                ready.acquire();
+                for (int i = 0; i < active.size(); i++) {
+                    int index = (next + i) % active.size();
+                    SessionLayer stream = active.get(index);
+                    StreamPipeline.Batch<FeatureResponse> batch = stream.pipeline().poll();
+                    if (batch == null) {
+                        if (stream.pipeline().isFinished()) {
+                            active.remove(index);
+                            next = index;
+                            break;
+                        }
+                        continue;
                     }
 
-                    if (totalRows >= limit) {
-                        break;
+                    String layer = stream.layer();
+                    int rows = layerRows.get(layer);
+                    if (rows == 0) {
+                        metrics.recordStreamFirstBatch(layer, "json", System.nanoTime() - startNanos);
                     }
-                }
-
-                offset += results.size();
-
-                if (totalRows >= limit || results.size() < dbBatchSize) {
+                    List<FeatureResponse> results = batch.rows();
+                    if (results.size() > limit - totalRows) {
+                        results = results.subList(0, limit - totalRows);
+                    }
+                    rows += results.size();
+                    totalRows += results.size();
+                    layerRows.put(layer, rows);
+
+                    long serializeStart = System.nanoTime();
+                    byte[] frame = encodeJsonBatch(results, rows);
+                    long sendStart = System.nanoTime();
+                    emitter.send(SseEmitter.event().name(layer).data(frame));
+                    metrics.recordStreamSerialize(layer, "json", sendStart - serializeStart);
+                    metrics.recordStreamSend(layer, "json", System.nanoTime() - sendStart);
+                    next = index + 1;
                     break;
                 }
             }
 
-            // Emit any remaining records as final batch
-            if (!emitBatch.isEmpty()) {
-                BatchResponse<BreadcrumbResponse> batchResponse = new BatchResponse<>(
-                    emitBatch,
-                    totalRows
-                );
-                emitter.send(SseEmitter.event()
-                    .data(objectMapper.writeValueAsString(batchResponse)));
-            }
+            emitter.send(SseEmitter.event()
+                .name("complete")
+                .data(objectMapper.writeValueAsString(new SessionStreamSummary(surveySessionId, layerRows, totalRows))));
+            emitter.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.completeWithError(e);
+            return;
+        } catch (Exception e) {
+            sendError(emitter, "Error streaming session " + surveySessionId, e);
+            return;
+        } finally {
+            streams.forEach(SessionLayer::stop);
+        }
 
+        long nanos = System.nanoTime() - startNanos;
+        layerRows.forEach((layer, rows) -> metrics.recordStreamCompleted(layer, "json", rows, nanos));
+        logger.debug("Session {} stream completed - layers: {}, rows: {}, executionTime: {}ms",
+            surveySessionId, layerRows, totalRows, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Streams a layer in the binary {@link BinaryFrames} format instead of SSE JSON. Rows, limit and
+     * batching are the same as for the SSE streams; geometries are sent as TWKB with
+     * {@code streams.binary.precision} decimal places.
+     *
+     * @param layer Layer name from the {@link LayerRegistry}
+     */
+    public void streamBinaryData(String layer, String surveySessionId, FeatureFilter filter, int limit, int batchSize,
+                                 ResponseBodyEmitter emitter) {
+        try {
+            FeatureQuery query = new FeatureQuery(layer, surveySessionId, null, filter, limit, GeometryEncoding.TWKB,
+                binaryPrecision);
+            int total = streamQuery(query, "binary", 0, StreamingService::mapBinaryRow, batchSize,
+                BinaryFrames::batch, (frame, position) -> emitter.send(frame, BINARY_MEDIA_TYPE));
+            emitter.send(BinaryFrames.end(total), BINARY_MEDIA_TYPE);
             emitter.complete();
         } catch (Exception e) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("Error streaming breadcrumb data", e.getMessage())
-                    )));
-            } catch (IOException ioException) {
-                // Ignore if emitter is already closed
-            }
-            emitter.completeWithError(e);
+            sendBinaryError(emitter, "Error streaming " + layer + " data", e);
         }
     }
 
-    public void streamLisaData(String surveySessionId, int limit, int batchSize, SseEmitter emitter) throws IOException {
-        final int dbBatchSize = 1000; // Database query batch size
-        int offset = 0;
-        int totalRows = 0;
-        List<LisaResponse> emitBatch = new ArrayList<>();
+    /**
+     * Reads a layer from the {@link LayerRepository} and sends features in batches of
+     * {@code batchSize} as they arrive.
+     *
+     * <p>The stream is pipelined: a reader thread walks the repository cursor and maps features into
+     * batches while the calling thread serializes and sends them, so database fetches overlap with
+     * network writes. At most {@code streams.pipeline.max-buffered-rows} rows are queued between the
+     * two; when the client falls behind the reader blocks and the cursor is not advanced. A client
+     * disconnect cancels the reader, which releases its connection.
+     *
+     * @param format Wire format ({@code json} or {@code binary}), used for logs and metric tags
+     * @param delivered Rows delivered by earlier connections of a resumed stream
+     * @return Number of rows emitted
+     */
+    private <T> int streamQuery(FeatureQuery query, String format, int delivered, FeatureMapper<T> mapper,
+                                int batchSize, BatchEncoder<T> encoder, FrameSender sender) {
+        String layer = query.layer();
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        StreamPipeline<T> pipeline = new StreamPipeline<>(maxBufferedRows);
+        Thread reader = startReader(query, format, mapper, batchSize, pipeline);
 
+        int totalRows = 0;
         try {
-            while (totalRows < limit) {
-                int remainingLimit = limit - totalRows;
-                int currentDbBatchSize = Math.min(dbBatchSize, remainingLimit);
-
-                if (currentDbBatchSize <= 0) {
-                    break;
+            StreamPipeline.Batch<T> batch;
+            while ((batch = pipeline.take()) != null) {
+                if (totalRows == 0) {
+                    metrics.recordStreamFirstBatch(layer, format, System.nanoTime() - startNanos);
+                    logger.debug("First {} {} batch ready - timeToFirstBatch: {}ms",
+                        layer, format, System.currentTimeMillis() - startTime);
                 }
+                totalRows += batch.rows().size();
+                StreamPosition position = new StreamPosition(delivered + totalRows, batch.lastKey());
+
+                long serializeStart = System.nanoTime();
+                byte[] frame = encoder.encode(batch.rows(), position.delivered());
+                long sendStart = System.nanoTime();
+                sender.send(frame, position);
+                metrics.recordStreamSerialize(layer, format, sendStart - serializeStart);
+                metrics.recordStreamSend(layer, format, System.nanoTime() - sendStart);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(layer + " stream interrupted", e);
+        } finally {
+            pipeline.cancel();
+            joinReader(reader);
+        }
 
-                String query = """
-                    SELECT
-                        "surveySessionId",
-                        ST_AsGeoJSON(geom)::json AS geometry
-                    FROM public.layer_peak_copy
-                    WHERE "surveySessionId" = ?
-                    ORDER BY ctid
-                    LIMIT ? OFFSET ?
-                    """;
-
-                List<LisaResponse> results = jdbcTemplate.query(
-                    query,
-                    new ArgumentPreparedStatementSetter(new Object[]{surveySessionId, currentDbBatchSize, offset}),
-                    this::mapLisaRow
-                );
-
-                if (results.isEmpty() || totalRows >= limit) {
-                    break;
-                }
+        metrics.recordStreamCompleted(layer, format, totalRows, System.nanoTime() - startNanos);
+        logger.debug("{} {} stream completed - rows: {}, executionTime: {}ms",
+            layer, format, totalRows, System.currentTimeMillis() - startTime);
+        return totalRows;
+    }
 
-                // Add results to emit batch
-                for (LisaResponse row : results) {
-                    emitBatch.add(row);
-                    totalRows++;
-
-                    // Emit batch when it reaches the specified size
-                    if (emitBatch.size() >= batchSize) {
-                        BatchResponse<LisaResponse> batchResponse = new BatchResponse<>(
-                            new ArrayList<>(emitBatch),
-                            totalRows
-                        );
-                        emitter.send(SseEmitter.event()
-                            .data(objectMapper.writeValueAsString(batchResponse)));
-                        emitBatch.clear();
+    /**
+     * Reads a layer of several sessions with {@link #sessionReaders} partitioned readers that all
+     * feed one pipeline, and sends the batches as they arrive.
+     *
+     * @return Number of rows emitted across all sessions
+     */
+    private <T> int streamSessionsQuery(String layer, List<String> surveySessionIds, FeatureFilter filter, int limit,
+                                        GeometryEncoding encoding, int precision, String format,
+                                        FeatureMapper<T> mapper, int batchSize, SessionBatchEncoder<T> encoder,
+                                        SessionFrameSender sender) {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        StreamPipeline<T> pipeline = new StreamPipeline<>(maxBufferedRows);
+        Queue<String> pending = new ConcurrentLinkedQueue<>(surveySessionIds);
+        int readerCount = sessionReaders(surveySessionIds.size());
+        AtomicInteger running = new AtomicInteger(readerCount);
+
+        List<Thread> readers = new ArrayList<>(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            readers.add(Thread.ofVirtual()
+                .name("sse-session-reader-" + layer + "-", i)
+                .start(() -> {
+                    try {
+                        metrics.withConnection(layer, () -> {
+                            String surveySessionId;
+                            while (!pipeline.isCancelled() && (surveySessionId = pending.poll()) != null) {
+                                int rowCount = readQuery(
+                                    new FeatureQuery(layer, surveySessionId, null, filter, limit, encoding, precision),
+                                    format, mapper, batchSize, pipeline);
+                                logger.debug("{} {} session {} read - rows: {}",
+                                    layer, format, surveySessionId, rowCount);
+                            }
+                            return null;
+                        });
+                        // The last reader to finish ends the stream
+                        if (running.decrementAndGet() == 0 && !pipeline.isCancelled()) {
+                            pipeline.complete();
+                        }
+                    } catch (Throwable e) {
+                        pipeline.fail(e);
                     }
+                }));
+        }
 
-                    if (totalRows >= limit) {
-                        break;
-                    }
+        Map<String, Integer> sessionRows = new HashMap<>();
+        int totalRows = 0;
+        try {
+            StreamPipeline.Batch<T> batch;
+            while ((batch = pipeline.take()) != null) {
+                if (totalRows == 0) {
+                    metrics.recordStreamFirstBatch(layer, format, System.nanoTime() - startNanos);
                 }
+                int rows = sessionRows.merge(batch.surveySessionId(), batch.rows().size(), Integer::sum);
+                totalRows += batch.rows().size();
+
+                long serializeStart = System.nanoTime();
+                byte[] frame = encoder.encode(batch.surveySessionId(), batch.rows(), rows);
+                long sendStart = System.nanoTime();
+                sender.send(frame);
+                metrics.recordStreamSerialize(layer, format, sendStart - serializeStart);
+                metrics.recordStreamSend(layer, format, System.nanoTime() - sendStart);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(layer + " stream interrupted", e);
+        } finally {
+            pipeline.cancel();
+            readers.forEach(this::joinReader);
+        }
 
-                offset += results.size();
+        metrics.recordStreamCompleted(layer, format, totalRows, System.nanoTime() - startNanos);
+        logger.debug("{} {} multi-session stream completed - sessions: {}, readers: {}, rows: {}, executionTime: {}ms",
+            layer, format, surveySessionIds.size(), readerCount, totalRows, System.currentTimeMillis() - startTime);
+        return totalRows;
+    }
 
-                if (totalRows >= limit || results.size() < dbBatchSize) {
-                    break;
+    /**
+     * Starts the reader stage of a stream on a virtual thread holding one database connection.
+     */
+    private <T> Thread startReader(FeatureQuery query, String format, FeatureMapper<T> mapper,
+                                   int batchSize, StreamPipeline<T> pipeline) {
+        String layer = query.layer();
+        long startTime = System.currentTimeMillis();
+        return Thread.ofVirtual()
+            .name("sse-reader-" + layer)
+            .start(() -> {
+                try {
+                    int rowCount = metrics.withConnection(layer,
+                        () -> readQuery(query, format, mapper, batchSize, pipeline));
+                    if (!pipeline.isCancelled()) {
+                        pipeline.complete();
+                    }
+                    logger.debug("{} {} reader finished - rows: {}, cancelled: {}, readTime: {}ms",
+                        layer, format, rowCount, pipeline.isCancelled(), System.currentTimeMillis() - startTime);
+                } catch (Throwable e) {
+                    pipeline.fail(e);
                 }
-            }
+            });
+    }
 
-            // Emit any remaining records as final batch
-            if (!emitBatch.isEmpty()) {
-                BatchResponse<LisaResponse> batchResponse = new BatchResponse<>(
-                    emitBatch,
-                    totalRows
-                );
-                emitter.send(SseEmitter.event()
-                    .data(objectMapper.writeValueAsString(batchResponse)));
+    /**
+     * Reader stage: maps features read from the repository into batches and hands them to the
+     * pipeline until the layer is exhausted or the writer cancels. Time blocked on a full pipeline
+     * is not counted as read time.
+     *
+     * @return Number of rows read
+     */
+    private <T> int readQuery(FeatureQuery query, String format, FeatureMapper<T> mapper,
+                              int batchSize, StreamPipeline<T> pipeline) {
+        String layer = query.layer();
+        List<List<T>> batch = new ArrayList<>(1);
+        batch.add(new ArrayList<>(batchSize));
+        String[] lastKey = new String[1];
+        long[] batchStart = {System.nanoTime()};
+
+        int rowCount = layerRepository.readFeatures(query, (surveySessionId, key, geometry) -> {
+            List<T> current = batch.get(0);
+            current.add(mapper.map(surveySessionId, geometry));
+            lastKey[0] = key;
+            if (current.size() < batchSize) {
+                return true;
             }
-
-            emitter.complete();
-        } catch (Exception e) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(
-                        new ErrorResponse("Error streaming LISA data", e.getMessage())
-                    )));
-            } catch (IOException ioException) {
-                // Ignore if emitter is already closed
+            metrics.recordStreamRead(layer, format, System.nanoTime() - batchStart[0]);
+            if (!putBatch(pipeline, new StreamPipeline.Batch<>(query.surveySessionId(), current, key))) {
+                return false;
             }
-            emitter.completeWithError(e);
+            batch.set(0, new ArrayList<>(batchSize));
+            batchStart[0] = System.nanoTime();
+            return true;
+        });
+
+        // Hand over any remaining records as final batch
+        List<T> remaining = batch.get(0);
+        if (!remaining.isEmpty() && !pipeline.isCancelled()) {
+            metrics.recordStreamRead(layer, format, System.nanoTime() - batchStart[0]);
+            putBatch(pipeline, new StreamPipeline.Batch<>(query.surveySessionId(), remaining, lastKey[0]));
+        }
+        return rowCount;
+    }
+
+    private static <T> boolean putBatch(StreamPipeline<T> pipeline, StreamPipeline.Batch<T> batch) {
+        try {
+            return pipeline.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Stream reader interrupted", e);
         }
     }
 
-    private FovResponse mapFovRow(ResultSet rs, int rowNum) throws SQLException {
-        FovResponse response = new FovResponse();
-        response.setSurveySessionId(rs.getString("surveySessionId"));
-        
-        // Handle JSON geometry - PostgreSQL returns JSON as string or PGobject
-        Object geometry = parseCoordinates(rs, "geometry");
-        response.setGeometry(geometry);
-        
-        return response;
+    /**
+     * Waits for a cancelled reader to release its connection, so the stream's admission slot is
+     * not freed while the connection is still held.
+     */
+    private void joinReader(Thread reader) {
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    private BreadcrumbResponse mapBreadcrumbRow(ResultSet rs, int rowNum) throws SQLException {
-        BreadcrumbResponse response = new BreadcrumbResponse();
-        response.setSurveySessionId(rs.getString("surveySessionId"));
-        
-        // Handle JSON coordinates
-        Object coordinates = parseCoordinates(rs, "coordinates");
-        response.setCoordinates(coordinates);
-        
-        return response;
+    private <T> byte[] encodeJsonBatch(List<T> batch, int totalProcessed) throws IOException {
+        return objectMapper.writeValueAsBytes(new BatchResponse<>(batch, totalProcessed));
     }
 
-    private LisaResponse mapLisaRow(ResultSet rs, int rowNum) throws SQLException {
-        LisaResponse response = new LisaResponse();
-        response.setSurveySessionId(rs.getString("surveySessionId"));
-        
-        // Handle JSON geometry
-        Object geometry = parseCoordinates(rs, "geometry");
-        response.setGeometry(geometry);
-        
-        return response;
+    private void sendError(SseEmitter emitter, String error, Exception e) {
+        if (isClientDisconnect(e)) {
+            logger.debug("{} - client disconnected", error);
+            emitter.complete();
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event()
+                .name("error")
+                .data(objectMapper.writeValueAsString(
+                    new ErrorResponse(error, e.getMessage())
+                )));
+        } catch (IOException ioException) {
+            // Ignore if emitter is already closed
+        }
+        emitter.completeWithError(e);
+    }
+
+    private void sendBinaryError(ResponseBodyEmitter emitter, String error, Exception e) {
+        if (isClientDisconnect(e)) {
+            logger.debug("{} - client disconnected", error);
+            emitter.complete();
+            return;
+        }
+        try {
+            emitter.send(BinaryFrames.error(objectMapper.writeValueAsBytes(new ErrorResponse(error, e.getMessage()))),
+                BINARY_MEDIA_TYPE);
+        } catch (IOException ioException) {
+            // Ignore if emitter is already closed
+        }
+        emitter.completeWithError(e);
     }
 
     /**
-     * Parses PostgreSQL JSON/JSONB object into a Map for proper JSON serialization.
-     * Handles PGobject by extracting the JSON string and parsing it.
+     * A write to a client that went away is not a stream failure; completing the emitter with an
+     * error would only make the error handler try to answer on the dead connection.
      */
-    private Object parseCoordinates(ResultSet rs, String columnName) throws SQLException {
-        try {
-            // Try to get as string first (works for JSON columns)
-            String jsonString = rs.getString(columnName);
-            if (jsonString == null || jsonString.trim().isEmpty()) {
-                return null;
+    private static boolean isClientDisconnect(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AsyncRequestNotUsableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Follow mode of a layer stream: once the backlog is sent, pushes the rows added after the
+     * position it starts from (the last delivered key, or the session's last key when the stream
+     * started if the backlog stopped at its limit) whenever the {@link FeatureChangeFeed} signals a change. Each catch-up
+     * read is admitted by the {@link StreamExecutor} like a stream of its own, so an idle follower
+     * holds neither a connection nor an admission slot. Signals arriving during a read trigger
+     * another read; a read that is not admitted is retried on the next signal or heartbeat.
+     */
+    private final class Follower implements FeatureChangeFeed.Subscriber {
+
+        private final LayerDefinition layer;
+        private final String surveySessionId;
+        private final FeatureFilter filter;
+        private final int batchSize;
+        private final SseEmitter emitter;
+        private final AtomicBoolean reading = new AtomicBoolean();
+        private volatile StreamPosition position;
+        private volatile boolean pending = true;
+        private volatile boolean closed;
+        private FeatureChangeFeed.Subscription subscription;
+
+        Follower(LayerDefinition layer, String surveySessionId, FeatureFilter filter, int batchSize,
+                 StreamPosition position, SseEmitter emitter) {
+            this.layer = layer;
+            this.surveySessionId = surveySessionId;
+            this.filter = filter;
+            this.batchSize = batchSize;
+            this.position = position;
+            this.emitter = emitter;
+        }
+
+        void start() {
+            subscription = featureChangeFeed.subscribe(layer.getName(), surveySessionId, this);
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(e -> close());
+            logger.info("Following {} stream - surveySessionId: {}, position: {}",
+                layer.getName(), surveySessionId, position != null ? position.eventId() : null);
+            // Catch up on rows added while the backlog was read
+            read();
+        }
+
+        @Override
+        public void onChange() {
+            pending = true;
+            read();
+        }
+
+        @Override
+        public void onHeartbeat() {
+            if (closed) {
+                return;
             }
-            // Parse JSON string into Map for proper serialization
-            return objectMapper.readValue(jsonString, new TypeReference<Map<String, Object>>() {});
-        } catch (Exception e) {
-            // Fallback: try to get as object and handle PGobject via reflection
             try {
-                Object obj = rs.getObject(columnName);
-                if (obj == null) {
-                    return null;
-                }
-                
-                // Check if it's a PGobject using reflection (to avoid import issues)
-                if (obj.getClass().getName().equals("org.postgresql.util.PGobject")) {
-                    String jsonValue = (String) obj.getClass().getMethod("getValue").invoke(obj);
-                    if (jsonValue == null || jsonValue.trim().isEmpty()) {
-                        return null;
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException | IllegalStateException e) {
+                close();
+                return;
+            }
+            if (pending) {
+                read();
+            }
+        }
+
+        private void read() {
+            if (closed || !reading.compareAndSet(false, true)) {
+                return;
+            }
+            boolean admitted = streamExecutor.submit(layer.getName(), () -> {
+                try {
+                    while (pending && !closed) {
+                        pending = false;
+                        readNewRows();
+                    }
+                } catch (Exception e) {
+                    if (!isClientDisconnect(e)) {
+                        logger.warn("Following {} of session {} failed: {}", layer.getName(), surveySessionId, e.getMessage());
                     }
-                    return objectMapper.readValue(jsonValue, new TypeReference<Map<String, Object>>() {});
-                } else if (obj instanceof String) {
-                    return objectMapper.readValue((String) obj, new TypeReference<Map<String, Object>>() {});
-                } else if (obj instanceof Map) {
-                    return obj;
-                } else {
-                    // Try to convert to string and parse
-                    return objectMapper.readValue(obj.toString(), new TypeReference<Map<String, Object>>() {});
+                    close();
+                    sendError(emitter, "Error following " + layer.getName() + " data", e);
+                } finally {
+                    reading.set(false);
                 }
-            } catch (Exception ex) {
-                // If all parsing fails, return null
-                return null;
+                // A signal may have arrived after the loop checked for one
+                if (pending) {
+                    read();
+                }
+            });
+            if (!admitted) {
+                reading.set(false);
+            }
+        }
+
+        private void readNewRows() {
+            FeatureQuery query = new FeatureQuery(layer.getName(), surveySessionId,
+                position != null ? position.lastKey() : null, filter, Integer.MAX_VALUE, GeometryEncoding.GEOJSON, 0);
+            int rows = streamQuery(query, "json", position != null ? position.delivered() : 0,
+                (sessionId, geometry) -> mapFeatureRow(layer, sessionId, geometry), batchSize,
+                StreamingService.this::encodeJsonBatch,
+                (frame, batchPosition) -> {
+                    emitter.send(SseEmitter.event().id(batchPosition.eventId()).data(frame));
+                    position = batchPosition;
+                });
+            if (rows > 0) {
+                logger.debug("Followed {} of session {} - new rows: {}", layer.getName(), surveySessionId, rows);
+            }
+        }
+
+        private void close() {
+            closed = true;
+            if (subscription != null) {
+                subscription.close();
             }
         }
     }
 
     /**
-     * Retrieves MVT (Mapbox Vector Tile) data for FOV layer.
-     * 
-     * @param z Zoom level
-     * @param x Tile X coordinate
-     * @param y Tile Y coordinate
-     * @param surveySessionId Survey session ID
-     * @return Binary MVT tile data
+     * One layer of a session stream.
      */
-    public byte[] getFovMvtTile(int z, int x, int y, String surveySessionId) {
-        String query = """
-            SELECT ST_AsMVT(tile, 'fov_layer', 4096, 'geom')
-            FROM (
-              SELECT
-               "surveySessionId",
-                ST_AsMVTGeom(
-                  ST_Transform(geom, 3857),
-                  ST_TileEnvelope(?, ?, ?),
-                  4096,
-                  256,
-                  true
-                ) AS geom
-              FROM public.layer_fov_copy
-              WHERE ST_Transform(geom, 3857) && ST_TileEnvelope(?, ?, ?)
-              AND "surveySessionId" = ?
-            ) tile;
-            """;
-
-        Object[] queryParams = new Object[]{z, x, y, z, x, y, surveySessionId};
-        
-        // Log the query template and parameters for debugging
-        logger.debug("Executing MVT query template:\n{}", query);
-        logger.debug("Query parameters: [z={}, x={}, y={}, z={}, x={}, y={}, surveySessionId='{}']", 
-            z, x, y, z, x, y, surveySessionId);
-        
-        // Log formatted query with parameters (for easier debugging)
-        String formattedQuery = String.format(
-            "SELECT ST_AsMVT(tile, 'fov_layer', 4096, 'geom') " +
-            "FROM (SELECT \"surveySessionId\", ST_AsMVTGeom(ST_Transform(geom, 3857), ST_TileEnvelope(%d, %d, %d), 4096, 256, true) AS geom " +
-            "FROM public.layer_fov_copy WHERE ST_Transform(geom, 3857) && ST_TileEnvelope(%d, %d, %d) AND \"surveySessionId\" = '%s') tile;",
-            z, x, y, z, x, y, surveySessionId
-        );
-        logger.debug("Formatted query (for reference):\n{}", formattedQuery);
+    private record SessionLayer(String layer, StreamPipeline<FeatureResponse> pipeline, Thread reader) {
 
-        long queryStartTime = System.currentTimeMillis();
-        try {
-            List<byte[]> results = jdbcTemplate.query(
-                query,
-                new ArgumentPreparedStatementSetter(queryParams),
-                (rs, rowNum) -> {
-                    // ST_AsMVT returns bytea (byte array)
-                    byte[] tileData = rs.getBytes(1);
-                    logger.debug("Retrieved MVT tile data, size: {} bytes", tileData != null ? tileData.length : 0);
-                    return tileData;
-                }
-            );
-            
-            long queryExecutionTime = System.currentTimeMillis() - queryStartTime;
-            
-            if (results == null || results.isEmpty()) {
-                logger.debug("MVT query returned no results - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms", 
-                    z, x, y, surveySessionId, queryExecutionTime);
-                return null;
+        /**
+         * Cancels the reader and waits for it to release its connection.
+         */
+        void stop() {
+            pipeline.cancel();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            
-            byte[] tileData = results.get(0);
-            logger.debug("MVT query completed successfully - z: {}, x: {}, y: {}, surveySessionId: {}, tileSize: {} bytes, executionTime: {}ms", 
-                z, x, y, surveySessionId, tileData != null ? tileData.length : 0, queryExecutionTime);
-            
-            return tileData;
-        } catch (Exception e) {
-            long queryExecutionTime = System.currentTimeMillis() - queryStartTime;
-            logger.error("Database error retrieving MVT tile - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms, error: {}", 
-                z, x, y, surveySessionId, queryExecutionTime, e.getMessage(), e);
-            throw new RuntimeException("Error retrieving MVT tile", e);
         }
     }
 
     /**
-     * Retrieves MVT (Mapbox Vector Tile) data for LISA layer.
-     * 
-     * @param z Zoom level
-     * @param x Tile X coordinate
-     * @param y Tile Y coordinate
+     * Serializes one batch of a stream into a frame, given the running row count.
+     */
+    @FunctionalInterface
+    private interface BatchEncoder<T> {
+        byte[] encode(List<T> batch, int totalProcessed) throws IOException;
+    }
+
+    /**
+     * Writes one serialized frame to the client, given the stream position after it.
+     */
+    @FunctionalInterface
+    private interface FrameSender {
+        void send(byte[] frame, StreamPosition position) throws IOException;
+    }
+
+    /**
+     * Serializes one batch of a multi-session stream, given the session's running row count.
+     */
+    @FunctionalInterface
+    private interface SessionBatchEncoder<T> {
+        byte[] encode(String surveySessionId, List<T> batch, int totalProcessed) throws IOException;
+    }
+
+    /**
+     * Writes one serialized frame of a multi-session stream to the client.
+     */
+    @FunctionalInterface
+    private interface SessionFrameSender {
+        void send(byte[] frame) throws IOException;
+    }
+
+    /**
+     * Maps one feature read from the {@link LayerRepository} to a stream element.
+     */
+    @FunctionalInterface
+    private interface FeatureMapper<T> {
+        T map(String surveySessionId, byte[] geometry);
+    }
+
+    /**
+     * GeoJSON geometries are passed through to the response as the raw UTF-8 bytes read from the
+     * repository, without being parsed.
+     */
+    static FeatureResponse mapFeatureRow(LayerDefinition layer, String surveySessionId, byte[] geometry) {
+        return new FeatureResponse(surveySessionId, layer.getGeometryField(), RawJson.of(geometry));
+    }
+
+    static BinaryFrames.Feature mapBinaryRow(String surveySessionId, byte[] geometry) {
+        return new BinaryFrames.Feature(surveySessionId, geometry);
+    }
+
+    /**
+     * Computes the bounding box of all FOV, breadcrumb and LISA geometries of a survey session.
+     *
      * @param surveySessionId Survey session ID
-     * @return Binary MVT tile data
+     * @return {minLon, minLat, maxLon, maxLat} in EPSG:4326, or null if the session has no geometry
+     */
+    public double[] getSessionExtent(String surveySessionId) {
+        return layerRepository.findSessionExtent(surveySessionId);
+    }
+
+    /**
+     * Returns a single vector tile holding several layers. Layers already present in the tile
+     * caches are reused; all missing layers are generated by one SQL statement with one
+     * {@code ST_AsMVT} column per layer. MVT layers are independent protobuf messages, so the
+     * tile is the concatenation of the per-layer tiles in the requested order. Concurrent requests
+     * for the same layer combination and tile share one execution, and the compressed composite
+     * is cached under the layer combination so repeat requests are not recompressed.
+     *
+     * @param layers Layer names from the {@link LayerRegistry}, without duplicates
+     * @param contentVersion Version of the session from {@link SessionVersions}, which the tile is
+     *                       cached under
+     * @return Gzip-compressed MVT tile, or {@link TileCache#EMPTY_TILE} if no layer has features
      */
-    public byte[] getLisaMvtTile(int z, int x, int y, String surveySessionId) {
-        String query = """
-            SELECT ST_AsMVT(tile, 'lisa_layer', 4096, 'geom')
-            FROM (
-              SELECT
-               "surveySessionId",
-               "time",
-                ST_AsMVTGeom(
-                  ST_Transform(geom, 3857),
-                  ST_TileEnvelope(?, ?, ?),
-                  4096,
-                  256,
-                  true
-                ) AS geom
-              FROM public.layer_peak_copy
-              WHERE ST_Transform(geom, 3857) && ST_TileEnvelope(?, ?, ?)
-              AND "surveySessionId" = ?
-            ) tile;
-            """;
-
-        Object[] queryParams = new Object[]{z, x, y, z, x, y, surveySessionId};
-        
-        // Log the query template and parameters for debugging
-        logger.debug("Executing MVT query template for LISA:\n{}", query);
-        logger.debug("Query parameters: [z={}, x={}, y={}, z={}, x={}, y={}, surveySessionId='{}']", 
-            z, x, y, z, x, y, surveySessionId);
-        
-        // Log formatted query with parameters (for easier debugging)
-        String formattedQuery = String.format(
-            "SELECT ST_AsMVT(tile, 'lisa_layer', 4096, 'geom') " +
-            "FROM (SELECT \"surveySessionId\", \"time\", ST_AsMVTGeom(ST_Transform(geom, 3857), ST_TileEnvelope(%d, %d, %d), 4096, 256, true) AS geom " +
-            "FROM public.layer_peak_copy WHERE ST_Transform(geom, 3857) && ST_TileEnvelope(%d, %d, %d) AND \"surveySessionId\" = '%s') tile;",
-            z, x, y, z, x, y, surveySessionId
-        );
-        logger.debug("Formatted query (for reference):\n{}", formattedQuery);
+    public byte[] getMultiLayerMvtTile(List<String> layers, int z, int x, int y, String surveySessionId,
+                                       String contentVersion) {
+        TileKey compositeKey = new TileKey(String.join(",", layers), surveySessionId, contentVersion, z, x, y);
+        return tileCache.get(compositeKey,
+            () -> assembleMultiLayerMvtTile(layers, z, x, y, surveySessionId, contentVersion));
+    }
 
-        long queryStartTime = System.currentTimeMillis();
-        try {
-            List<byte[]> results = jdbcTemplate.query(
-                query,
-                new ArgumentPreparedStatementSetter(queryParams),
-                (rs, rowNum) -> {
-                    // ST_AsMVT returns bytea (byte array)
-                    byte[] tileData = rs.getBytes(1);
-                    logger.debug("Retrieved MVT tile data for LISA, size: {} bytes", tileData != null ? tileData.length : 0);
-                    return tileData;
+    private byte[] assembleMultiLayerMvtTile(List<String> layers, int z, int x, int y, String surveySessionId,
+                                             String contentVersion) {
+        Map<String, byte[]> layerTiles = new HashMap<>();
+        List<String> missingLayers = new ArrayList<>();
+        for (String layer : layers) {
+            TileKey key = new TileKey(layer, surveySessionId, contentVersion, z, x, y);
+            byte[] cached = tileCache.getIfPresent(key);
+            if (cached == null) {
+                cached = diskTileStore.getIfPresent(key);
+                if (cached != null) {
+                    tileCache.put(key, cached);
                 }
-            );
-            
-            long queryExecutionTime = System.currentTimeMillis() - queryStartTime;
-            
-            if (results == null || results.isEmpty()) {
-                logger.debug("MVT query returned no results for LISA - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms", 
-                    z, x, y, surveySessionId, queryExecutionTime);
-                return null;
             }
-            
-            byte[] tileData = results.get(0);
-            logger.debug("MVT query completed successfully for LISA - z: {}, x: {}, y: {}, surveySessionId: {}, tileSize: {} bytes, executionTime: {}ms", 
-                z, x, y, surveySessionId, tileData != null ? tileData.length : 0, queryExecutionTime);
-            
-            return tileData;
-        } catch (Exception e) {
-            long queryExecutionTime = System.currentTimeMillis() - queryStartTime;
-            logger.error("Database error retrieving MVT tile for LISA - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms, error: {}", 
-                z, x, y, surveySessionId, queryExecutionTime, e.getMessage(), e);
-            throw new RuntimeException("Error retrieving MVT tile for LISA", e);
+            if (cached != null) {
+                layerTiles.put(layer, cached);
+            } else {
+                missingLayers.add(layer);
+            }
+        }
+
+        if (!missingLayers.isEmpty()) {
+            List<byte[]> generated = queryMultiLayerMvtTile(missingLayers, z, x, y, surveySessionId, contentVersion);
+            for (int i = 0; i < missingLayers.size(); i++) {
+                byte[] tileData = tileCompression.compress(missingLayers.get(i), generated.get(i));
+                TileKey key = new TileKey(missingLayers.get(i), surveySessionId, contentVersion, z, x, y);
+                diskTileStore.put(key, tileData);
+                tileCache.put(key, tileData);
+                layerTiles.put(missingLayers.get(i), tileData);
+            }
+        }
+
+        List<String> nonEmptyLayers = layers.stream().filter(layer -> layerTiles.get(layer).length > 0).toList();
+        if (nonEmptyLayers.size() <= 1) {
+            return nonEmptyLayers.isEmpty() ? TileCache.EMPTY_TILE : layerTiles.get(nonEmptyLayers.get(0));
+        }
+
+        // Layers are stored compressed; the composite is inflated, concatenated and compressed once
+        ByteArrayOutputStream tile = new ByteArrayOutputStream();
+        for (String layer : nonEmptyLayers) {
+            tile.writeBytes(tileCompression.decompress(layer, layerTiles.get(layer)));
         }
+        return tileCompression.compress(String.join(",", nonEmptyLayers), tile.toByteArray());
+    }
+
+    private List<byte[]> queryMultiLayerMvtTile(List<String> layers, int z, int x, int y, String surveySessionId,
+                                                String contentVersion) {
+        long queryStartNanos = System.nanoTime();
+        List<byte[]> results = generateTiles(layers, z, x, y, surveySessionId, contentVersion);
+        metrics.recordTileQuery(String.join(",", layers), z, System.nanoTime() - queryStartNanos);
+        return results;
     }
 
     /**
-     * Retrieves MVT (Mapbox Vector Tile) data for Breadcrumb layer.
-     * 
-     * @param z Zoom level
-     * @param x Tile X coordinate
-     * @param y Tile Y coordinate
-     * @param surveySessionId Survey session ID
-     * @return Binary MVT tile data
+     * Returns the MVT tile of one layer from the in-memory cache, falling back to the on-disk tile
+     * store and finally to the layer repository.
+     *
+     * @param layer Layer name from the {@link LayerRegistry}
+     * @param contentVersion Version of the session from {@link SessionVersions}, which the tile is
+     *                       cached under
+     * @return Gzip-compressed MVT tile, or {@link TileCache#EMPTY_TILE} if the tile has no features
+     */
+    public byte[] getMvtTile(String layer, int z, int x, int y, String surveySessionId, String contentVersion) {
+        return getMvtTile(layer, z, x, y, surveySessionId, contentVersion, tileCompression.getLevel());
+    }
+
+    /**
+     * Like {@link #getMvtTile(String, int, int, int, String, String)}, compressing a generated
+     * tile at {@code compressionLevel} instead of {@code tiles.compression.level}.
      */
-    public byte[] getBreadcrumbMvtTile(int z, int x, int y, String surveySessionId) {
-        String query = """
-            SELECT ST_AsMVT(tile, 'breadcrumb_layer', 4096, 'geom')
-            FROM (
-              SELECT
-               "surveySessionId",
-                ST_AsMVTGeom(
-                  ST_Transform(coordinates, 3857),
-                  ST_TileEnvelope(?, ?, ?),
-                  4096,
-                  256,
-                  true
-                ) AS geom
-              FROM public.layer_breadcrumb
-              WHERE ST_Transform(coordinates, 3857) && ST_TileEnvelope(?, ?, ?)
-              AND "surveySessionId" = ?
-            ) tile;
-            """;
-
-        Object[] queryParams = new Object[]{z, x, y, z, x, y, surveySessionId};
-        
-        // Log the query template and parameters for debugging
-        logger.debug("Executing MVT query template for Breadcrumb:\n{}", query);
-        logger.debug("Query parameters: [z={}, x={}, y={}, z={}, x={}, y={}, surveySessionId='{}']", 
-            z, x, y, z, x, y, surveySessionId);
-        
-        // Log formatted query with parameters (for easier debugging)
-        String formattedQuery = String.format(
-            "SELECT ST_AsMVT(tile, 'breadcrumb_layer', 4096, 'geom') " +
-            "FROM (SELECT \"surveySessionId\", ST_AsMVTGeom(ST_Transform(coordinates, 3857), ST_TileEnvelope(%d, %d, %d), 4096, 256, true) AS geom " +
-            "FROM public.layer_breadcrumb WHERE ST_Transform(coordinates, 3857) && ST_TileEnvelope(%d, %d, %d) AND \"surveySessionId\" = '%s') tile;",
-            z, x, y, z, x, y, surveySessionId
-        );
-        logger.debug("Formatted query (for reference):\n{}", formattedQuery);
+    public byte[] getMvtTile(String layer, int z, int x, int y, String surveySessionId, String contentVersion,
+                             int compressionLevel) {
+        TileKey key = new TileKey(layer, surveySessionId, contentVersion, z, x, y);
+        return tileCache.get(key, () -> diskTileStore.get(key, () -> tileCompression.compress(layer,
+            queryMvtTile(layer, z, x, y, surveySessionId, contentVersion), compressionLevel)));
+    }
 
+    /**
+     * Generates the MVT (Mapbox Vector Tile) data of a single layer.
+     *
+     * @return Binary MVT tile data, or null if the tile has no features
+     */
+    private byte[] queryMvtTile(String layer, int z, int x, int y, String surveySessionId, String contentVersion) {
         long queryStartTime = System.currentTimeMillis();
-        try {
-            List<byte[]> results = jdbcTemplate.query(
-                query,
-                new ArgumentPreparedStatementSetter(queryParams),
-                (rs, rowNum) -> {
-                    // ST_AsMVT returns bytea (byte array)
-                    byte[] tileData = rs.getBytes(1);
-                    logger.debug("Retrieved MVT tile data for Breadcrumb, size: {} bytes", tileData != null ? tileData.length : 0);
-                    return tileData;
-                }
-            );
-            
-            long queryExecutionTime = System.currentTimeMillis() - queryStartTime;
-            
-            if (results == null || results.isEmpty()) {
-                logger.debug("MVT query returned no results for Breadcrumb - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms", 
-                    z, x, y, surveySessionId, queryExecutionTime);
-                return null;
-            }
-            
-            byte[] tileData = results.get(0);
-            logger.debug("MVT query completed successfully for Breadcrumb - z: {}, x: {}, y: {}, surveySessionId: {}, tileSize: {} bytes, executionTime: {}ms", 
-                z, x, y, surveySessionId, tileData != null ? tileData.length : 0, queryExecutionTime);
-            
-            return tileData;
-        } catch (Exception e) {
-            long queryExecutionTime = System.currentTimeMillis() - queryStartTime;
-            logger.error("Database error retrieving MVT tile for Breadcrumb - z: {}, x: {}, y: {}, surveySessionId: {}, executionTime: {}ms, error: {}", 
-                z, x, y, surveySessionId, queryExecutionTime, e.getMessage(), e);
-            throw new RuntimeException("Error retrieving MVT tile for Breadcrumb", e);
+        long queryStartNanos = System.nanoTime();
+        byte[] tileData = generateTiles(List.of(layer), z, x, y, surveySessionId, contentVersion).get(0);
+        metrics.recordTileQuery(layer, z, System.nanoTime() - queryStartNanos);
+
+        logger.debug("MVT tile generated for {} - z: {}, x: {}, y: {}, surveySessionId: {}, tileSize: {} bytes, executionTime: {}ms",
+            layer, z, x, y, surveySessionId, tileData != null ? tileData.length : 0, System.currentTimeMillis() - queryStartTime);
+        return tileData;
+    }
+
+    /**
+     * Generates tiles with the configured engine: {@code ST_AsMVT} in PostGIS, or the
+     * {@link SessionTileEngine} from session geometries held in memory.
+     */
+    private List<byte[]> generateTiles(List<String> layers, int z, int x, int y, String surveySessionId,
+                                       String contentVersion) {
+        if (sessionTileEngine.isEnabled()) {
+            return sessionTileEngine.generateTiles(layers, z, x, y, surveySessionId, contentVersion);
         }
+        return metrics.withConnection("mvt", () -> layerRepository.generateTiles(layers, z, x, y, surveySessionId));
     }
 }
-
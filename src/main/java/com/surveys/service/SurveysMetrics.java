@@ -0,0 +1,213 @@
+package com.surveys.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation for the tile and streaming hot paths, exported through the
+ * actuator Prometheus endpoint. Latency timers and size summaries publish percentile histograms
+ * so percentiles can be aggregated across instances.
+ *
+ * <p>Database connection usage is tracked per endpoint ({@code fov}, {@code breadcrumb},
+ * {@code lisa} for streams, {@code mvt} for tile generation): Hikari's own pool metrics only see
+ * the pool as a whole, so connections are counted and timed here while a code path holds one.
+ */
+@Component
+public class SurveysMetrics {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final Map<String, AtomicInteger> connectionsInUse = new ConcurrentHashMap<>();
+    private final Map<String, TileCounts> tileCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Records a served tile: end-to-end latency (including cache lookups), compressed size and
+     * whether it was empty. Latency and size are tagged with the zoom level, so the bounds that
+     * low-zoom generalization keeps can be watched per zoom.
+     */
+    public void recordTile(String layer, int z, long nanos, int sizeBytes) {
+        Timer.builder("surveys.tile.latency")
+            .description("Tile request latency including cache lookups")
+            .tag("layer", layer)
+            .tag("z", String.valueOf(z))
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+
+        boolean empty = sizeBytes == 0;
+        if (!empty) {
+            DistributionSummary.builder("surveys.tile.size")
+                .description("Size of served tiles, gzip-compressed")
+                .baseUnit("bytes")
+                .tag("layer", layer)
+                .tag("z", String.valueOf(z))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(sizeBytes);
+        }
+        Counter.builder("surveys.tile.requests")
+            .tag("layer", layer)
+            .tag("empty", String.valueOf(empty))
+            .register(registry)
+            .increment();
+
+        TileCounts counts = tileCounts.computeIfAbsent(layer, this::registerEmptyRatio);
+        counts.total.incrementAndGet();
+        if (empty) {
+            counts.empty.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the PostGIS time spent generating a tile at zoom level {@code z}.
+     */
+    public void recordTileQuery(String layer, int z, long nanos) {
+        Timer.builder("surveys.tile.query")
+            .description("Database time generating tiles")
+            .tag("layer", layer)
+            .tag("z", String.valueOf(z))
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time spent compressing a generated tile.
+     */
+    public void recordTileCompression(String layer, long nanos) {
+        Timer.builder("surveys.tile.compress")
+            .description("Time compressing generated tiles")
+            .tag("layer", layer)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the reader stage of one stream batch: cursor fetch and row mapping.
+     */
+    public void recordStreamRead(String layer, String format, long nanos) {
+        streamTimer("surveys.stream.db", "Database fetch and row mapping time per batch", layer, format)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the serialization of one stream batch.
+     */
+    public void recordStreamSerialize(String layer, String format, long nanos) {
+        streamTimer("surveys.stream.serialize", "Serialization time per batch", layer, format)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records writing one serialized batch to the client.
+     */
+    public void recordStreamSend(String layer, String format, long nanos) {
+        streamTimer("surveys.stream.send", "Time writing a batch to the client", layer, format)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStreamFirstBatch(String layer, String format, long nanos) {
+        streamTimer("surveys.stream.first.batch", "Time from stream start to the first batch", layer, format)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a finished stream; {@code surveys.stream.rows} gives the fleet-wide row rate and
+     * {@code surveys.stream.throughput} the distribution of per-stream rows per second.
+     */
+    public void recordStreamCompleted(String layer, String format, int rows, long nanos) {
+        Counter.builder("surveys.stream.rows")
+            .tag("layer", layer)
+            .tag("format", format)
+            .register(registry)
+            .increment(rows);
+        if (nanos > 0) {
+            DistributionSummary.builder("surveys.stream.throughput")
+                .description("Rows per second of completed streams")
+                .tag("layer", layer)
+                .tag("format", format)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(rows * 1e9 / nanos);
+        }
+    }
+
+    /**
+     * Runs {@code work} while counting it as holding a database connection for {@code endpoint}.
+     */
+    public <T> T withConnection(String endpoint, Supplier<T> work) {
+        AtomicInteger inUse = connectionsInUse.computeIfAbsent(endpoint, this::registerConnectionGauge);
+        inUse.incrementAndGet();
+        long startTime = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            inUse.decrementAndGet();
+            Timer.builder("surveys.db.connection.usage")
+                .description("Time a database connection is held")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Registers a gauge reading an integer value, e.g. active stream count.
+     */
+    public void registerGauge(String name, String description, Supplier<Number> value) {
+        Gauge.builder(name, value)
+            .description(description)
+            .register(registry);
+    }
+
+    private Timer streamTimer(String name, String description, String layer, String format) {
+        return Timer.builder(name)
+            .description(description)
+            .tag("layer", layer)
+            .tag("format", format)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    private AtomicInteger registerConnectionGauge(String endpoint) {
+        AtomicInteger inUse = new AtomicInteger();
+        Gauge.builder("surveys.db.connections.active", inUse, AtomicInteger::get)
+            .description("Database connections currently held")
+            .tag("endpoint", endpoint)
+            .register(registry);
+        return inUse;
+    }
+
+    private TileCounts registerEmptyRatio(String layer) {
+        TileCounts counts = new TileCounts();
+        Gauge.builder("surveys.tile.empty.ratio", counts, TileCounts::emptyRatio)
+            .description("Share of served tiles without features since startup")
+            .tag("layer", layer)
+            .register(registry);
+        return counts;
+    }
+
+    private static final class TileCounts {
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong empty = new AtomicLong();
+
+        double emptyRatio() {
+            long requests = total.get();
+            return requests == 0 ? 0.0 : (double) empty.get() / requests;
+        }
+    }
+}
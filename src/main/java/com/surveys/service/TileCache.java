@@ -0,0 +1,140 @@
+package com.surveys.service;
+
+import com.surveys.dto.TileCacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * In-memory LRU cache for MVT tiles, bounded by the total number of bytes held rather than by
+ * entry count. Survey sessions rarely change once uploaded, so entries never expire; they are
+ * evicted when the byte budget is exceeded, or for a whole session when {@link SessionVersions}
+ * sees its content change. Empty tiles are cached as negative entries so
+ * panning over areas without data does not go back to PostGIS either. Tiles are held
+ * gzip-compressed (see {@link TileCompression}), so the budget counts compressed bytes.
+ *
+ * <p>Loads are coalesced: concurrent misses for the same key share one loader execution.
+ */
+@Component
+public class TileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TileCache.class);
+
+    /**
+     * Marker for a tile that was generated but holds no features.
+     */
+    public static final byte[] EMPTY_TILE = new byte[0];
+
+    @Value("${tiles.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<TileKey, byte[]> entries = new LinkedHashMap<>(1024, 0.75f, true);
+
+    private final SingleFlight<TileKey, byte[]> loads = new SingleFlight<>();
+
+    private long sizeBytes;
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Returns the cached tile for {@code key}, loading and caching it on a miss. The loader runs
+     * outside the cache lock, at most once at a time per key; a null result from the loader is
+     * cached as {@link #EMPTY_TILE}. Loader exceptions propagate and nothing is cached.
+     *
+     * @return Tile bytes, or {@link #EMPTY_TILE} if the tile has no features
+     */
+    public byte[] get(TileKey key, Supplier<byte[]> loader) {
+        byte[] cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        return loads.execute(key, () -> {
+            // A load for this key may have completed between the miss and joining the flight
+            byte[] loaded = peek(key);
+            if (loaded == null) {
+                loaded = loader.get();
+                if (loaded == null || loaded.length == 0) {
+                    loaded = EMPTY_TILE;
+                }
+                put(key, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * @return Cached tile bytes ({@link #EMPTY_TILE} for a negative entry), or null on a miss
+     */
+    public synchronized byte[] getIfPresent(TileKey key) {
+        byte[] cached = entries.get(key);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (cached.length == 0) {
+            negativeHits++;
+        }
+        return cached;
+    }
+
+    private synchronized byte[] peek(TileKey key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(TileKey key, byte[] tileData) {
+        long entrySize = key.estimatedSizeBytes() + tileData.length;
+        if (entrySize > maxBytes) {
+            logger.debug("Tile too large to cache - key: {}, size: {} bytes", key, tileData.length);
+            return;
+        }
+
+        byte[] previous = entries.put(key, tileData);
+        if (previous != null) {
+            sizeBytes -= key.estimatedSizeBytes() + previous.length;
+        }
+        sizeBytes += entrySize;
+
+        Iterator<Map.Entry<TileKey, byte[]>> iterator = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<TileKey, byte[]> eldest = iterator.next();
+            sizeBytes -= eldest.getKey().estimatedSizeBytes() + eldest.getValue().length;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes every tile of a survey session, including composite tiles.
+     */
+    public synchronized void evictSession(String surveySessionId) {
+        Iterator<Map.Entry<TileKey, byte[]>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TileKey, byte[]> entry = iterator.next();
+            if (entry.getKey().surveySessionId().equals(surveySessionId)) {
+                sizeBytes -= entry.getKey().estimatedSizeBytes() + entry.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized TileCacheStats getStats() {
+        return new TileCacheStats(hits, negativeHits, misses, evictions, entries.size(), sizeBytes, maxBytes,
+            loads.getExecutions(), loads.getCoalesced());
+    }
+}
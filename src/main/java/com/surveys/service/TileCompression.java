@@ -0,0 +1,139 @@
+package com.surveys.service;
+
+import com.surveys.dto.CompressionStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression for MVT tiles. Tiles are compressed once, when they are generated, and kept
+ * compressed in the in-memory cache and the on-disk store, so a cache hit is served to a
+ * gzip-capable client without any compression work. Clients that do not accept gzip get the
+ * tile inflated on the way out.
+ *
+ * <p>Tiles generated for requests are compressed at {@code tiles.compression.level}; seed jobs,
+ * which are off the request path, can use a higher level (see {@link TileSeedService}).
+ *
+ * <p>Compression ratio and time are tracked per layer and reported by {@link #getStats()}.
+ */
+@Component
+public class TileCompression {
+
+    @Autowired
+    private SurveysMetrics metrics;
+
+    @Value("${tiles.compression.level:6}")
+    private int level;
+
+    private final Map<String, LayerCounters> counters = new TreeMap<>();
+
+    /**
+     * Compresses at {@code tiles.compression.level}.
+     *
+     * @param layer Layer name the statistics are recorded under
+     * @return Gzip-compressed tile, or {@link TileCache#EMPTY_TILE} for a null or empty tile
+     */
+    public byte[] compress(String layer, byte[] tileData) {
+        return compress(layer, tileData, level);
+    }
+
+    /**
+     * @param layer Layer name the statistics are recorded under
+     * @param level Deflate level, 1 (fastest) to 9 (smallest)
+     * @return Gzip-compressed tile, or {@link TileCache#EMPTY_TILE} for a null or empty tile
+     */
+    public byte[] compress(String layer, byte[] tileData, int level) {
+        if (tileData == null || tileData.length == 0) {
+            return TileCache.EMPTY_TILE;
+        }
+
+        long startTime = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(tileData.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(tileData);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] compressed = out.toByteArray();
+
+        LayerCounters layerCounters = counters(layer);
+        layerCounters.tiles.incrementAndGet();
+        layerCounters.rawBytes.addAndGet(tileData.length);
+        layerCounters.compressedBytes.addAndGet(compressed.length);
+        long compressNanos = System.nanoTime() - startTime;
+        layerCounters.compressNanos.addAndGet(compressNanos);
+        metrics.recordTileCompression(layer, compressNanos);
+        return compressed;
+    }
+
+    /**
+     * @param layer Layer name the statistics are recorded under
+     * @return Uncompressed tile; {@link TileCache#EMPTY_TILE} stays empty
+     */
+    public byte[] decompress(String layer, byte[] compressed) {
+        if (compressed == null || compressed.length == 0) {
+            return TileCache.EMPTY_TILE;
+        }
+
+        long startTime = System.nanoTime();
+        byte[] tileData;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            tileData = gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        LayerCounters layerCounters = counters(layer);
+        layerCounters.decompressions.incrementAndGet();
+        layerCounters.decompressNanos.addAndGet(System.nanoTime() - startTime);
+        return tileData;
+    }
+
+    /**
+     * @return Deflate level of {@link #compress(String, byte[])}
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public List<CompressionStats> getStats() {
+        List<CompressionStats> stats = new ArrayList<>();
+        synchronized (counters) {
+            counters.forEach((layer, c) -> stats.add(new CompressionStats(layer, c.tiles.get(), c.rawBytes.get(),
+                c.compressedBytes.get(), c.compressNanos.get() / 1_000_000, c.decompressions.get(),
+                c.decompressNanos.get() / 1_000_000)));
+        }
+        return stats;
+    }
+
+    private LayerCounters counters(String layer) {
+        synchronized (counters) {
+            return counters.computeIfAbsent(layer, name -> new LayerCounters());
+        }
+    }
+
+    private static final class LayerCounters {
+        final AtomicLong tiles = new AtomicLong();
+        final AtomicLong rawBytes = new AtomicLong();
+        final AtomicLong compressedBytes = new AtomicLong();
+        final AtomicLong compressNanos = new AtomicLong();
+        final AtomicLong decompressions = new AtomicLong();
+        final AtomicLong decompressNanos = new AtomicLong();
+    }
+}
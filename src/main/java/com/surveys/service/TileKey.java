@@ -0,0 +1,16 @@
+package com.surveys.service;
+
+/**
+ * Identifies a single vector tile of one layer for one survey session, as of one content version
+ * of the session (see {@link SessionVersions}). A tile loaded for an older version is cached under
+ * that version, so it is never served for a newer one.
+ */
+public record TileKey(String layer, String surveySessionId, String contentVersion, int z, int x, int y) {
+
+    /**
+     * Approximate heap footprint of the key itself, used for byte-budgeted caching.
+     */
+    long estimatedSizeBytes() {
+        return 64L + 2L * (layer.length() + surveySessionId.length() + contentVersion.length());
+    }
+}
@@ -0,0 +1,102 @@
+package com.surveys.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.surveys.config.LayerRegistry;
+import com.surveys.repository.JdbcLayerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verification mode for tile query plans, enabled with {@code tiles.query.verify-plans=true}.
+ * On startup it runs {@code EXPLAIN} for every tile layer against the configured database and
+ * fails startup if any plan scans a layer table sequentially. Intended for a local PostGIS with
+ * representative data and the indexes from {@code db/tile-indexes.sql}; on near-empty tables
+ * the planner legitimately prefers sequential scans. Skipped with the synthetic layer backend.
+ */
+@Component
+@ConditionalOnExpression("${tiles.query.verify-plans:false} and '${layers.backend:jdbc}' == 'jdbc'")
+public class TilePlanVerifier implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TilePlanVerifier.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StreamingService streamingService;
+
+    @Autowired
+    private JdbcLayerRepository layerRepository;
+
+    @Autowired
+    private LayerRegistry layerRegistry;
+
+    @Value("${tiles.query.verify-plans.survey-session-id:}")
+    private String surveySessionId;
+
+    @Value("${tiles.query.verify-plans.zoom:14}")
+    private int zoom;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String sessionId = surveySessionId.isEmpty()
+            ? jdbcTemplate.queryForObject("SELECT \"surveySessionId\" FROM " + layerRegistry.all().iterator().next().getTable()
+                + " LIMIT 1", String.class)
+            : surveySessionId;
+        double[] extent = streamingService.getSessionExtent(sessionId);
+        if (extent == null) {
+            throw new IllegalStateException("Cannot verify tile plans: session " + sessionId + " has no geometry");
+        }
+        int x = TileSeedService.lonToTileX((extent[0] + extent[2]) / 2, zoom);
+        int y = TileSeedService.latToTileY((extent[1] + extent[3]) / 2, zoom);
+
+        List<String> failures = new ArrayList<>();
+        for (String layer : layerRegistry.names()) {
+            String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN (FORMAT JSON) " + layerRepository.tileSql(layer, zoom),
+                String.class,
+                zoom, x, y, zoom, x, y, sessionId
+            );
+            List<String> seqScans = new ArrayList<>();
+            collectSeqScans(objectMapper.readTree(plan), seqScans);
+            if (seqScans.isEmpty()) {
+                logger.info("Tile query plan for {} uses indexes - z: {}, x: {}, y: {}", layer, zoom, x, y);
+            } else {
+                logger.error("Tile query plan for {} falls back to sequential scan on {}:\n{}", layer, seqScans, plan);
+                failures.add(layer + " " + seqScans);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Tile queries use sequential scans: " + failures);
+        }
+    }
+
+    private static void collectSeqScans(JsonNode node, List<String> relations) {
+        if (node.isArray()) {
+            node.forEach(child -> collectSeqScans(child, relations));
+            return;
+        }
+        if (!node.isObject()) {
+            return;
+        }
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            relations.add(node.path("Relation Name").asText("?"));
+        }
+        node.forEach(child -> collectSeqScans(child, relations));
+    }
+}
@@ -0,0 +1,197 @@
+package com.surveys.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds the {@code ST_AsMVT} query for one layer of a vector tile.
+ *
+ * <p>The bounding-box filter compares the stored geometry column against the tile envelope
+ * transformed into the column's SRID, instead of transforming every row into EPSG:3857. The
+ * envelope is a constant for the query, so the comparison can use a GiST index on the column.
+ * The envelope used for filtering is widened by the tile buffer so features that only reach
+ * into the buffer are still selected and clipped by {@code ST_AsMVTGeom}.
+ *
+ * <p>Low zooms can be generalized: below {@code simplifyBelowZoom} geometries are snapped to
+ * the tile pixel grid and simplified with a tolerance of a fraction of a pixel, and below
+ * {@code clusterBelowZoom} features are grouped into grid cells and emitted as one point per
+ * cell with a {@code count} attribute. Both keep tile size and generation time roughly
+ * independent of how many features a long survey has.
+ *
+ * <p>Generated statements take the parameters {@code z, x, y, z, x, y, surveySessionId}.
+ */
+public final class TileQueryBuilder {
+
+    public static final int DEFAULT_EXTENT = 4096;
+    public static final int DEFAULT_BUFFER = 256;
+    public static final int PARAMETER_COUNT = 7;
+
+    // Width of the EPSG:3857 world in meters
+    private static final double WORLD_SIZE = 40075016.685578488;
+
+    private final String table;
+    private String layerName;
+    private String geometryColumn = "geom";
+    private int srid = 4326;
+    private int extent = DEFAULT_EXTENT;
+    private int buffer = DEFAULT_BUFFER;
+    private int simplifyBelowZoom;
+    private double simplifyTolerancePixels = 1.0;
+    private int clusterBelowZoom;
+    private int clusterCellPixels = 64;
+    private final List<String> attributes = new ArrayList<>();
+
+    private TileQueryBuilder(String table) {
+        this.table = table;
+    }
+
+    /**
+     * @param table Schema-qualified table name, e.g. {@code public.layer_fov_copy}
+     */
+    public static TileQueryBuilder forTable(String table) {
+        return new TileQueryBuilder(table);
+    }
+
+    /**
+     * Name of the layer inside the MVT, e.g. {@code fov_layer}.
+     */
+    public TileQueryBuilder layerName(String layerName) {
+        this.layerName = layerName;
+        return this;
+    }
+
+    public TileQueryBuilder geometryColumn(String geometryColumn) {
+        this.geometryColumn = geometryColumn;
+        return this;
+    }
+
+    /**
+     * SRID of the stored geometry column; the tile envelope is transformed into it.
+     */
+    public TileQueryBuilder srid(int srid) {
+        this.srid = srid;
+        return this;
+    }
+
+    public TileQueryBuilder extent(int extent) {
+        this.extent = extent;
+        return this;
+    }
+
+    public TileQueryBuilder buffer(int buffer) {
+        this.buffer = buffer;
+        return this;
+    }
+
+    /**
+     * Columns carried into the tile as feature attributes.
+     */
+    public TileQueryBuilder attributes(String... columns) {
+        attributes.addAll(List.of(columns));
+        return this;
+    }
+
+    /**
+     * Snap and simplify geometries on tiles below this zoom (0 disables simplification).
+     */
+    public TileQueryBuilder simplifyBelowZoom(int zoom) {
+        this.simplifyBelowZoom = zoom;
+        return this;
+    }
+
+    public TileQueryBuilder simplifyTolerancePixels(double pixels) {
+        this.simplifyTolerancePixels = pixels;
+        return this;
+    }
+
+    /**
+     * Cluster features into points carrying a {@code count} attribute on tiles below this zoom
+     * (0 disables clustering). Other attributes are aggregated with {@code min}.
+     */
+    public TileQueryBuilder clusterBelowZoom(int zoom) {
+        this.clusterBelowZoom = zoom;
+        return this;
+    }
+
+    public TileQueryBuilder clusterCellPixels(int pixels) {
+        this.clusterCellPixels = pixels;
+        return this;
+    }
+
+    /**
+     * @param z Zoom level the query is generated for; generalization depends on it
+     * @return The tile query, without a trailing semicolon so it can be used as a subquery
+     */
+    public String build(int z) {
+        if (layerName == null) {
+            throw new IllegalStateException("layerName is required for table " + table);
+        }
+
+        boolean cluster = z < clusterBelowZoom;
+        boolean simplify = !cluster && z < simplifyBelowZoom;
+        // Size of one tile pixel (one unit of the MVT extent) in EPSG:3857 meters at this zoom
+        double pixelSize = WORLD_SIZE / (1L << z) / extent;
+
+        StringBuilder columns = new StringBuilder();
+        for (String attribute : attributes) {
+            String column = "t." + quote(attribute);
+            columns.append("    ")
+                .append(cluster ? "min(" + column + ") AS " + quote(attribute) : column)
+                .append(",\n");
+        }
+        if (cluster) {
+            columns.append("    count(*) AS \"count\",\n");
+        }
+
+        String tileGeometry = srid == 3857
+            ? "t." + quote(geometryColumn)
+            : "ST_Transform(t." + quote(geometryColumn) + ", 3857)";
+        String mvtGeometry = tileGeometry;
+        if (cluster) {
+            mvtGeometry = "ST_Centroid(ST_Collect(ST_Centroid(" + tileGeometry + ")))";
+        } else if (simplify) {
+            String tolerance = number(pixelSize * simplifyTolerancePixels);
+            mvtGeometry = "ST_Simplify(ST_SnapToGrid(" + tileGeometry + ", " + tolerance + "), " + tolerance + ")";
+        }
+
+        String filterEnvelope = "ST_TileEnvelope(?, ?, ?, margin => " + margin() + ")";
+        if (srid != 3857) {
+            filterEnvelope = "ST_Transform(" + filterEnvelope + ", " + srid + ")";
+        }
+
+        return "SELECT ST_AsMVT(tile, '" + layerName + "', " + extent + ", 'geom')\n"
+            + "FROM (\n"
+            + "  SELECT\n"
+            + columns
+            + "    ST_AsMVTGeom(\n"
+            + "      " + mvtGeometry + ",\n"
+            + "      ST_TileEnvelope(?, ?, ?),\n"
+            + "      " + extent + ",\n"
+            + "      " + buffer + ",\n"
+            + "      true\n"
+            + "    ) AS geom\n"
+            + "  FROM " + table + " t\n"
+            + "  WHERE t." + quote(geometryColumn) + " && " + filterEnvelope + "\n"
+            + "  AND t.\"surveySessionId\" = ?\n"
+            + (cluster
+                ? "  GROUP BY ST_SnapToGrid(ST_Centroid(" + tileGeometry + "), "
+                    + number(pixelSize * clusterCellPixels) + ")\n"
+                : "")
+            + ") tile\n"
+            // Simplification can collapse small features; drop them instead of encoding empties
+            + "WHERE tile.geom IS NOT NULL\n";
+    }
+
+    private String margin() {
+        return number((double) buffer / extent);
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
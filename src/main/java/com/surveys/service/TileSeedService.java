@@ -0,0 +1,300 @@
+package com.surveys.service;
+
+import com.surveys.dto.SeedJobResponse;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-generates the tiles of a survey session over a zoom range so the first viewer render is
+ * served from the tile caches. Seeding runs on a small dedicated pool ({@code tiles.seed.concurrency}
+ * threads shared by all jobs), which bounds the number of database connections it can hold, and
+ * it backs off whenever live requests are waiting for a pooled connection.
+ */
+@Service
+public class TileSeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TileSeedService.class);
+
+    private static final double MAX_LATITUDE = 85.0511287798066;
+    private static final long FINISHED_JOB_RETENTION_MS = 3600000L;
+    private static final long BACKOFF_MS = 50;
+
+    @Autowired
+    private StreamingService streamingService;
+
+    @Autowired
+    private SessionVersions sessionVersions;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${tiles.seed.concurrency:2}")
+    private int concurrency;
+
+    @Value("${tiles.seed.max-tiles:50000}")
+    private long maxTiles;
+
+    @Value("${tiles.seed.compression-level:${tiles.compression.level:6}}")
+    private int compressionLevel;
+
+    private final Map<String, SeedJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private volatile ExecutorService executorService;
+
+    /**
+     * Starts seeding a session. The session extent is resolved synchronously; tile generation
+     * continues in the background.
+     *
+     * @throws IllegalArgumentException if the session has no geometry or the range is too large
+     */
+    public SeedJobResponse startJob(String surveySessionId, int minZoom, int maxZoom, List<String> layers) {
+        double[] extent = streamingService.getSessionExtent(surveySessionId);
+        if (extent == null) {
+            throw new IllegalArgumentException("Survey session has no geometry: " + surveySessionId);
+        }
+
+        SeedJob job = new SeedJob(UUID.randomUUID().toString(), surveySessionId, minZoom, maxZoom, layers, extent);
+        if (job.totalTiles > maxTiles) {
+            throw new IllegalArgumentException("Seed range covers " + job.totalTiles
+                + " tiles, more than the allowed " + maxTiles);
+        }
+
+        pruneFinishedJobs();
+        jobs.put(job.jobId, job);
+        logger.info("Starting tile seed job {} - surveySessionId: {}, zoom: {}-{}, layers: {}, tiles: {}",
+            job.jobId, surveySessionId, minZoom, maxZoom, layers, job.totalTiles);
+
+        ExecutorService executor = executor();
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(() -> runWorker(job));
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * @return Job progress, or null if the job is unknown
+     */
+    public SeedJobResponse getJob(String jobId) {
+        SeedJob job = jobs.get(jobId);
+        return job != null ? job.toResponse() : null;
+    }
+
+    /**
+     * Cancels a job; tiles already being generated finish, no new ones are started.
+     *
+     * @return Job progress, or null if the job is unknown
+     */
+    public SeedJobResponse cancelJob(String jobId) {
+        SeedJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        job.cancelled = true;
+        logger.info("Cancelled tile seed job {} after {} tiles", jobId, job.completed.get());
+        return job.toResponse();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(job -> job.cancelled = true);
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void runWorker(SeedJob job) {
+        job.activeWorkers.incrementAndGet();
+        try {
+            SeedTile tile;
+            while (!job.cancelled && (tile = job.nextTile()) != null) {
+                waitForIdleConnections(job);
+                try {
+                    renderTile(job.surveySessionId, tile);
+                    job.completed.incrementAndGet();
+                } catch (Exception e) {
+                    job.failed.incrementAndGet();
+                    logger.debug("Tile seed failed - job: {}, tile: {}, error: {}", job.jobId, tile, e.getMessage());
+                }
+            }
+        } finally {
+            if (job.activeWorkers.decrementAndGet() == 0 && job.finishedAt == 0) {
+                job.finishedAt = System.currentTimeMillis();
+                logger.info("Tile seed job {} {} - completed: {}, failed: {}, tilesPerSecond: {}",
+                    job.jobId, job.state().toLowerCase(), job.completed.get(), job.failed.get(),
+                    String.format("%.1f", job.tilesPerSecond()));
+            }
+        }
+    }
+
+    private void renderTile(String surveySessionId, SeedTile tile) {
+        streamingService.getMvtTile(tile.layer(), tile.z(), tile.x(), tile.y(), surveySessionId,
+            sessionVersions.get(surveySessionId), compressionLevel);
+    }
+
+    /**
+     * Yields to live traffic while request threads are queued for a database connection.
+     */
+    private void waitForIdleConnections(SeedJob job) {
+        if (!(dataSource instanceof HikariDataSource hikari)) {
+            return;
+        }
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        while (!job.cancelled && pool != null && pool.getThreadsAwaitingConnection() > 0) {
+            try {
+                Thread.sleep(BACKOFF_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.cancelled = true;
+            }
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executorService == null) {
+            synchronized (this) {
+                if (executorService == null) {
+                    executorService = Executors.newFixedThreadPool(concurrency, runnable -> {
+                        Thread thread = new Thread(runnable, "tile-seed-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executorService;
+    }
+
+    private void pruneFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - FINISHED_JOB_RETENTION_MS;
+        jobs.values().removeIf(job -> job.finishedAt != 0 && job.finishedAt < cutoff);
+    }
+
+    /**
+     * Converts a longitude to a tile column at zoom {@code z}.
+     */
+    static int lonToTileX(double lon, int z) {
+        int n = 1 << z;
+        int x = (int) Math.floor((lon + 180.0) / 360.0 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    /**
+     * Converts a latitude to a tile row (XYZ scheme, origin top-left) at zoom {@code z}.
+     */
+    static int latToTileY(double lat, int z) {
+        int n = 1 << z;
+        double latRad = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat)));
+        int y = (int) Math.floor((1.0 - Math.log(Math.tan(latRad) + 1.0 / Math.cos(latRad)) / Math.PI) / 2.0 * n);
+        return Math.max(0, Math.min(n - 1, y));
+    }
+
+    record SeedTile(String layer, int z, int x, int y) {
+    }
+
+    private static final class SeedJob {
+        final String jobId;
+        final String surveySessionId;
+        final int minZoom;
+        final int maxZoom;
+        final List<String> layers;
+        final double[] extent;
+        final long totalTiles;
+        final long startedAt = System.currentTimeMillis();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicInteger activeWorkers = new AtomicInteger();
+        volatile boolean cancelled;
+        volatile long finishedAt;
+
+        // Iteration cursor, guarded by nextTile()
+        private int z;
+        private int x;
+        private int y;
+        private int layerIndex;
+
+        SeedJob(String jobId, String surveySessionId, int minZoom, int maxZoom, List<String> layers, double[] extent) {
+            this.jobId = jobId;
+            this.surveySessionId = surveySessionId;
+            this.minZoom = minZoom;
+            this.maxZoom = maxZoom;
+            this.layers = layers;
+            this.extent = extent;
+
+            long total = 0;
+            for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+                long columns = lonToTileX(extent[2], zoom) - lonToTileX(extent[0], zoom) + 1L;
+                long rows = latToTileY(extent[1], zoom) - latToTileY(extent[3], zoom) + 1L;
+                total += columns * rows * layers.size();
+            }
+            this.totalTiles = total;
+
+            this.z = minZoom;
+            this.x = lonToTileX(extent[0], minZoom);
+            this.y = latToTileY(extent[3], minZoom);
+        }
+
+        /**
+         * @return Next tile to render (zoom by zoom, then column, row and layer), or null when done
+         */
+        synchronized SeedTile nextTile() {
+            if (z > maxZoom) {
+                return null;
+            }
+            SeedTile tile = new SeedTile(layers.get(layerIndex), z, x, y);
+
+            if (++layerIndex < layers.size()) {
+                return tile;
+            }
+            layerIndex = 0;
+            if (++y <= latToTileY(extent[1], z)) {
+                return tile;
+            }
+            y = latToTileY(extent[3], z);
+            if (++x <= lonToTileX(extent[2], z)) {
+                return tile;
+            }
+            z++;
+            if (z <= maxZoom) {
+                x = lonToTileX(extent[0], z);
+                y = latToTileY(extent[3], z);
+            }
+            return tile;
+        }
+
+        String state() {
+            if (finishedAt == 0) {
+                return cancelled ? "CANCELLING" : "RUNNING";
+            }
+            return cancelled ? "CANCELLED" : "COMPLETED";
+        }
+
+        double tilesPerSecond() {
+            long end = finishedAt != 0 ? finishedAt : System.currentTimeMillis();
+            long elapsed = Math.max(1, end - startedAt);
+            return (completed.get() + failed.get()) * 1000.0 / elapsed;
+        }
+
+        SeedJobResponse toResponse() {
+            long end = finishedAt != 0 ? finishedAt : System.currentTimeMillis();
+            return new SeedJobResponse(jobId, surveySessionId, layers, minZoom, maxZoom, state(),
+                totalTiles, completed.get(), failed.get(), end - startedAt, tilesPerSecond());
+        }
+    }
+}
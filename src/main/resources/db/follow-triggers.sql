@@ -0,0 +1,27 @@
+-- Change notifications for followed streams (follow=true, see FeatureChangeFeed).
+-- Every insert notifies channel survey_features (streams.follow.channel) with
+-- '<schema>.<table>:<surveySessionId>'; PostgreSQL delivers identical notifications of one
+-- transaction once, so a batch insert wakes followers once per session.
+-- Without these triggers followed streams fall back to polling.
+
+CREATE OR REPLACE FUNCTION notify_survey_features() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('survey_features', TG_TABLE_SCHEMA || '.' || TG_TABLE_NAME || ':' || NEW."surveySessionId");
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS layer_fov_copy_notify ON public.layer_fov_copy;
+CREATE TRIGGER layer_fov_copy_notify
+    AFTER INSERT ON public.layer_fov_copy
+    FOR EACH ROW EXECUTE FUNCTION notify_survey_features();
+
+DROP TRIGGER IF EXISTS layer_peak_copy_notify ON public.layer_peak_copy;
+CREATE TRIGGER layer_peak_copy_notify
+    AFTER INSERT ON public.layer_peak_copy
+    FOR EACH ROW EXECUTE FUNCTION notify_survey_features();
+
+DROP TRIGGER IF EXISTS layer_breadcrumb_notify ON public.layer_breadcrumb;
+CREATE TRIGGER layer_breadcrumb_notify
+    AFTER INSERT ON public.layer_breadcrumb
+    FOR EACH ROW EXECUTE FUNCTION notify_survey_features();
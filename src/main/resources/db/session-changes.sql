@@ -0,0 +1,81 @@
+-- Change counter of each survey session, part of the session content version (see
+-- JdbcLayerRepository.findContentFingerprint and layers.change-counter-table). Feature counts and
+-- last keys only reveal inserts and deletes; the counter also moves when features are updated in
+-- place, so tile and stream ETags change and clients stop being answered 304 with stale geometry.
+-- Statement-level triggers bump each affected session once per statement, so bulk loads cost one
+-- upsert per session rather than one per row.
+
+CREATE TABLE IF NOT EXISTS public.survey_session_changes (
+    "surveySessionId" text PRIMARY KEY,
+    changes bigint NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION count_survey_session_changes() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO public.survey_session_changes ("surveySessionId", changes)
+        SELECT DISTINCT "surveySessionId"::text, 1 FROM new_rows
+        ON CONFLICT ("surveySessionId") DO UPDATE SET changes = survey_session_changes.changes + 1;
+    ELSIF TG_OP = 'UPDATE' THEN
+        -- Rows may move between sessions, which changes both
+        INSERT INTO public.survey_session_changes ("surveySessionId", changes)
+        SELECT "surveySessionId"::text, 1 FROM new_rows
+        UNION
+        SELECT "surveySessionId"::text, 1 FROM old_rows
+        ON CONFLICT ("surveySessionId") DO UPDATE SET changes = survey_session_changes.changes + 1;
+    ELSE
+        INSERT INTO public.survey_session_changes ("surveySessionId", changes)
+        SELECT DISTINCT "surveySessionId"::text, 1 FROM old_rows
+        ON CONFLICT ("surveySessionId") DO UPDATE SET changes = survey_session_changes.changes + 1;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS layer_fov_copy_changes_insert ON public.layer_fov_copy;
+CREATE TRIGGER layer_fov_copy_changes_insert
+    AFTER INSERT ON public.layer_fov_copy
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
+DROP TRIGGER IF EXISTS layer_fov_copy_changes_update ON public.layer_fov_copy;
+CREATE TRIGGER layer_fov_copy_changes_update
+    AFTER UPDATE ON public.layer_fov_copy
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
+DROP TRIGGER IF EXISTS layer_fov_copy_changes_delete ON public.layer_fov_copy;
+CREATE TRIGGER layer_fov_copy_changes_delete
+    AFTER DELETE ON public.layer_fov_copy
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
+
+DROP TRIGGER IF EXISTS layer_peak_copy_changes_insert ON public.layer_peak_copy;
+CREATE TRIGGER layer_peak_copy_changes_insert
+    AFTER INSERT ON public.layer_peak_copy
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
+DROP TRIGGER IF EXISTS layer_peak_copy_changes_update ON public.layer_peak_copy;
+CREATE TRIGGER layer_peak_copy_changes_update
+    AFTER UPDATE ON public.layer_peak_copy
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
+DROP TRIGGER IF EXISTS layer_peak_copy_changes_delete ON public.layer_peak_copy;
+CREATE TRIGGER layer_peak_copy_changes_delete
+    AFTER DELETE ON public.layer_peak_copy
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
+
+DROP TRIGGER IF EXISTS layer_breadcrumb_changes_insert ON public.layer_breadcrumb;
+CREATE TRIGGER layer_breadcrumb_changes_insert
+    AFTER INSERT ON public.layer_breadcrumb
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
+DROP TRIGGER IF EXISTS layer_breadcrumb_changes_update ON public.layer_breadcrumb;
+CREATE TRIGGER layer_breadcrumb_changes_update
+    AFTER UPDATE ON public.layer_breadcrumb
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
+DROP TRIGGER IF EXISTS layer_breadcrumb_changes_delete ON public.layer_breadcrumb;
+CREATE TRIGGER layer_breadcrumb_changes_delete
+    AFTER DELETE ON public.layer_breadcrumb
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION count_survey_session_changes();
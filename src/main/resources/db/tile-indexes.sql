@@ -0,0 +1,31 @@
+-- Indexes used by the vector tile queries (see TileQueryBuilder).
+-- Tile queries filter with "<geometry column> && ST_Transform(ST_TileEnvelope(...), <column SRID>)",
+-- which a GiST index on the untransformed column can serve.
+
+CREATE INDEX IF NOT EXISTS layer_fov_copy_geom_gist
+    ON public.layer_fov_copy USING gist (geom);
+CREATE INDEX IF NOT EXISTS layer_fov_copy_survey_session_id
+    ON public.layer_fov_copy ("surveySessionId");
+
+CREATE INDEX IF NOT EXISTS layer_peak_copy_geom_gist
+    ON public.layer_peak_copy USING gist (geom);
+CREATE INDEX IF NOT EXISTS layer_peak_copy_survey_session_id
+    ON public.layer_peak_copy ("surveySessionId");
+
+CREATE INDEX IF NOT EXISTS layer_breadcrumb_coordinates_gist
+    ON public.layer_breadcrumb USING gist (coordinates);
+CREATE INDEX IF NOT EXISTS layer_breadcrumb_survey_session_id
+    ON public.layer_breadcrumb ("surveySessionId");
+
+-- Keyset indexes for the SSE streams, which read each session ordered by the layer's key column
+-- (layers.definitions.<name>.key-column) and resume after the last delivered key.
+CREATE INDEX IF NOT EXISTS layer_fov_copy_survey_session_id_key
+    ON public.layer_fov_copy ("surveySessionId", id);
+CREATE INDEX IF NOT EXISTS layer_peak_copy_survey_session_id_key
+    ON public.layer_peak_copy ("surveySessionId", id);
+CREATE INDEX IF NOT EXISTS layer_breadcrumb_survey_session_id_key
+    ON public.layer_breadcrumb ("surveySessionId", id);
+
+-- Time window filter of the LISA stream (layers.definitions.lisa.time-column)
+CREATE INDEX IF NOT EXISTS layer_peak_copy_survey_session_id_time
+    ON public.layer_peak_copy ("surveySessionId", "time");
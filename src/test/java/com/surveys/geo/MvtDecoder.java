@@ -0,0 +1,216 @@
+package com.surveys.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes Mapbox Vector Tiles (MVT 2.1) for tests: the layers, their feature geometry command
+ * streams, and the key and value tables with the wire type of each value.
+ */
+public final class MvtDecoder {
+
+    public static final int VALUE_STRING = 1;
+    public static final int VALUE_DOUBLE = 3;
+    public static final int VALUE_UINT = 5;
+    public static final int VALUE_SINT = 6;
+    public static final int VALUE_BOOL = 7;
+
+    public record Value(int type, Object value) {
+    }
+
+    public record Feature(int type, int[] tags, int[] geometry) {
+    }
+
+    public record Layer(int version, String name, int extent, List<String> keys, List<Value> values,
+                        List<Feature> features) {
+
+        /**
+         * @return Attributes of a feature by name, in tag order
+         */
+        public Map<String, Value> attributes(Feature feature) {
+            Map<String, Value> attributes = new LinkedHashMap<>();
+            for (int i = 0; i < feature.tags().length; i += 2) {
+                attributes.put(keys.get(feature.tags()[i]), values.get(feature.tags()[i + 1]));
+            }
+            return attributes;
+        }
+    }
+
+    private MvtDecoder() {
+    }
+
+    public static List<Layer> decode(byte[] tile) {
+        List<Layer> layers = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(tile);
+        while (buffer.hasRemaining()) {
+            long tag = readVarint(buffer);
+            if (tag >>> 3 == 3 && (tag & 7) == 2) {
+                layers.add(layer(bytes(buffer)));
+            } else {
+                skip(buffer, (int) (tag & 7));
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * @return The single layer of a tile
+     */
+    public static Layer decodeLayer(byte[] tile) {
+        List<Layer> layers = decode(tile);
+        if (layers.size() != 1) {
+            throw new IllegalStateException("Expected one layer, found " + layers.size());
+        }
+        return layers.get(0);
+    }
+
+    /**
+     * Follows a geometry command stream and returns its paths in absolute tile coordinates, one
+     * {@code x0, y0, x1, y1, ...} array per MoveTo (per point of a MoveTo with several points).
+     */
+    public static List<int[]> paths(int[] geometry) {
+        List<int[]> paths = new ArrayList<>();
+        List<Integer> path = null;
+        int x = 0;
+        int y = 0;
+        int i = 0;
+        while (i < geometry.length) {
+            int id = geometry[i] & 7;
+            int count = geometry[i] >>> 3;
+            i++;
+            if (id == 7) {
+                continue;
+            }
+            for (int c = 0; c < count; c++) {
+                x += unzigzag(geometry[i++]);
+                y += unzigzag(geometry[i++]);
+                if (id == 1) {
+                    if (path != null) {
+                        paths.add(toArray(path));
+                    }
+                    path = new ArrayList<>();
+                }
+                path.add(x);
+                path.add(y);
+            }
+        }
+        if (path != null) {
+            paths.add(toArray(path));
+        }
+        return paths;
+    }
+
+    private static Layer layer(ByteBuffer buffer) {
+        int version = 1;
+        String name = null;
+        int extent = 4096;
+        List<String> keys = new ArrayList<>();
+        List<Value> values = new ArrayList<>();
+        List<Feature> features = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            long tag = readVarint(buffer);
+            switch ((int) (tag >>> 3)) {
+                case 15 -> version = (int) readVarint(buffer);
+                case 1 -> name = string(buffer);
+                case 2 -> features.add(feature(bytes(buffer)));
+                case 3 -> keys.add(string(buffer));
+                case 4 -> values.add(value(bytes(buffer)));
+                case 5 -> extent = (int) readVarint(buffer);
+                default -> skip(buffer, (int) (tag & 7));
+            }
+        }
+        return new Layer(version, name, extent, keys, values, features);
+    }
+
+    private static Feature feature(ByteBuffer buffer) {
+        int type = 0;
+        int[] tags = new int[0];
+        int[] geometry = new int[0];
+        while (buffer.hasRemaining()) {
+            long tag = readVarint(buffer);
+            switch ((int) (tag >>> 3)) {
+                case 2 -> tags = packed(bytes(buffer));
+                case 3 -> type = (int) readVarint(buffer);
+                case 4 -> geometry = packed(bytes(buffer));
+                default -> skip(buffer, (int) (tag & 7));
+            }
+        }
+        return new Feature(type, tags, geometry);
+    }
+
+    private static Value value(ByteBuffer buffer) {
+        long tag = readVarint(buffer);
+        int type = (int) (tag >>> 3);
+        Object value = switch (type) {
+            case VALUE_STRING -> string(buffer);
+            case 2 -> buffer.order(ByteOrder.LITTLE_ENDIAN).getFloat();
+            case VALUE_DOUBLE -> buffer.order(ByteOrder.LITTLE_ENDIAN).getDouble();
+            case 4, VALUE_UINT -> readVarint(buffer);
+            case VALUE_SINT -> unzigzag(readVarint(buffer));
+            case VALUE_BOOL -> readVarint(buffer) != 0;
+            default -> throw new IllegalStateException("Unknown value type " + type);
+        };
+        return new Value(type, value);
+    }
+
+    private static int[] packed(ByteBuffer buffer) {
+        List<Integer> values = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            values.add((int) readVarint(buffer));
+        }
+        return toArray(values);
+    }
+
+    private static ByteBuffer bytes(ByteBuffer buffer) {
+        int length = (int) readVarint(buffer);
+        ByteBuffer slice = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        ByteBuffer bytes = bytes(buffer);
+        byte[] text = new byte[bytes.remaining()];
+        bytes.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static void skip(ByteBuffer buffer, int wireType) {
+        switch (wireType) {
+            case 0 -> readVarint(buffer);
+            case 1 -> buffer.position(buffer.position() + 8);
+            case 2 -> bytes(buffer);
+            case 5 -> buffer.position(buffer.position() + 4);
+            default -> throw new IllegalStateException("Unknown wire type " + wireType);
+        }
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
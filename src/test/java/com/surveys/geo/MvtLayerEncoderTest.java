@@ -0,0 +1,210 @@
+package com.surveys.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares encoded features with the command streams {@code ST_AsMVT} writes for the same
+ * geometries in tile coordinates. The fixtures are the worked examples of the MVT 2.1
+ * specification (section 4.3.5), which {@code ST_AsMVT} follows: absolute MoveTo for the first
+ * vertex, the cursor carried over between parts, ClosePath instead of the closing vertex, exterior
+ * rings clockwise and holes counter-clockwise with the y axis pointing down.
+ */
+class MvtLayerEncoderTest {
+
+    private static final String[] NO_NAMES = {};
+    private static final Object[] NO_VALUES = {};
+
+    @Test
+    void point() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addPoint(25, 17, Map.of());
+
+        assertThat(feature(encoder).type()).isEqualTo(1);
+        assertThat(feature(encoder).geometry()).containsExactly(9, 50, 34);
+    }
+
+    @Test
+    void multiPoint() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addPoints(new int[]{5, 7, 3, 2}, 2, NO_NAMES, NO_VALUES);
+
+        assertThat(feature(encoder).type()).isEqualTo(1);
+        assertThat(feature(encoder).geometry()).containsExactly(17, 10, 14, 3, 9);
+    }
+
+    @Test
+    void lineString() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addLineString(new int[]{2, 2, 2, 10, 10, 10}, 3, Map.of());
+
+        assertThat(feature(encoder).type()).isEqualTo(2);
+        assertThat(feature(encoder).geometry()).containsExactly(9, 4, 4, 18, 0, 16, 16, 0);
+    }
+
+    @Test
+    void repeatedVerticesAreSkipped() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addLineString(new int[]{2, 2, 2, 2, 2, 10, 10, 10, 10, 10}, 5, Map.of());
+
+        assertThat(feature(encoder).geometry()).containsExactly(9, 4, 4, 18, 0, 16, 16, 0);
+    }
+
+    @Test
+    void multiLineStringCarriesCursorBetweenParts() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addLineStrings(new int[][]{{2, 2, 2, 10, 10, 10}, {1, 1, 3, 5}}, new int[]{3, 2}, NO_NAMES, NO_VALUES);
+
+        assertThat(feature(encoder).type()).isEqualTo(2);
+        assertThat(feature(encoder).geometry()).containsExactly(9, 4, 4, 18, 0, 16, 16, 0, 9, 17, 17, 10, 4, 8);
+    }
+
+    @Test
+    void collapsedLinePartIsDropped() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addLineStrings(new int[][]{{7, 7, 7, 7}, {2, 2, 2, 10, 10, 10}}, new int[]{2, 3}, NO_NAMES, NO_VALUES);
+
+        assertThat(feature(encoder).geometry()).containsExactly(9, 4, 4, 18, 0, 16, 16, 0);
+    }
+
+    @Test
+    void polygon() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addPolygon(new int[]{3, 6, 8, 12, 20, 34}, 3, Map.of());
+
+        assertThat(feature(encoder).type()).isEqualTo(3);
+        assertThat(feature(encoder).geometry()).containsExactly(9, 6, 12, 18, 10, 12, 24, 44, 15);
+    }
+
+    @Test
+    void closedAndCounterClockwiseRingsEncodeAlike() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addPolygon(new int[]{3, 6, 8, 12, 20, 34, 3, 6}, 4, Map.of());
+        encoder.addPolygon(new int[]{3, 6, 20, 34, 8, 12}, 3, Map.of());
+        encoder.addPolygon(new int[]{3, 6, 20, 34, 8, 12, 3, 6}, 4, Map.of());
+
+        MvtDecoder.Layer layer = MvtDecoder.decodeLayer(encoder.encode());
+        assertThat(layer.features()).hasSize(3).allSatisfy(feature ->
+            assertThat(feature.geometry()).containsExactly(9, 6, 12, 18, 10, 12, 24, 44, 15));
+    }
+
+    @Test
+    void multiPolygonWithHole() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addPolygons(new int[][]{
+            {0, 0, 10, 0, 10, 10, 0, 10},
+            {11, 11, 20, 11, 20, 20, 11, 20},
+            {13, 13, 13, 17, 17, 17, 17, 13}
+        }, new int[]{4, 4, 4}, new boolean[]{false, false, true}, NO_NAMES, NO_VALUES);
+
+        assertThat(feature(encoder).type()).isEqualTo(3);
+        assertThat(feature(encoder).geometry()).containsExactly(
+            9, 0, 0, 26, 20, 0, 0, 20, 19, 0, 15,
+            9, 22, 2, 26, 18, 0, 0, 18, 17, 0, 15,
+            9, 4, 13, 26, 0, 8, 8, 0, 0, 7, 15);
+    }
+
+    @Test
+    void ringsAreReorientedKeepingTheirFirstVertex() {
+        // Closed rings in the opposite winding, as a geometry with OGC orientation arrives
+        MvtLayerEncoder encoder = encoder();
+        encoder.addPolygons(new int[][]{
+            {0, 0, 0, 10, 10, 10, 10, 0, 0, 0},
+            {11, 11, 11, 20, 20, 20, 20, 11, 11, 11},
+            {13, 13, 17, 13, 17, 17, 13, 17, 13, 13}
+        }, new int[]{5, 5, 5}, new boolean[]{false, false, true}, NO_NAMES, NO_VALUES);
+
+        assertThat(feature(encoder).geometry()).containsExactly(
+            9, 0, 0, 26, 20, 0, 0, 20, 19, 0, 15,
+            9, 22, 2, 26, 18, 0, 0, 18, 17, 0, 15,
+            9, 4, 13, 26, 0, 8, 8, 0, 0, 7, 15);
+    }
+
+    @Test
+    void ringWithoutAreaIsDroppedWithItsHoles() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addPolygons(new int[][]{
+            {30, 30, 40, 30, 50, 30},
+            {35, 30, 36, 31, 37, 30},
+            {3, 6, 8, 12, 20, 34}
+        }, new int[]{3, 3, 3}, new boolean[]{false, true, false}, NO_NAMES, NO_VALUES);
+        encoder.addPolygon(new int[]{1, 1, 2, 2, 3, 3}, 3, Map.of());
+
+        MvtDecoder.Layer layer = MvtDecoder.decodeLayer(encoder.encode());
+        assertThat(layer.features()).hasSize(1);
+        assertThat(layer.features().get(0).geometry()).containsExactly(9, 6, 12, 18, 10, 12, 24, 44, 15);
+    }
+
+    @Test
+    void attributesAreDeduplicatedAndTypedAsStAsMvtWritesThem() {
+        MvtLayerEncoder encoder = encoder();
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("surveySessionId", "session-1");
+        first.put("speed", 1.5);
+        first.put("count", 3);
+        first.put("offset", -2L);
+        first.put("valid", true);
+        encoder.addPoint(1, 1, first);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("surveySessionId", "session-1");
+        second.put("speed", null);
+        second.put("count", 3L);
+        encoder.addPoint(2, 2, second);
+
+        MvtDecoder.Layer layer = MvtDecoder.decodeLayer(encoder.encode());
+        assertThat(layer.version()).isEqualTo(2);
+        assertThat(layer.name()).isEqualTo("fov_layer");
+        assertThat(layer.extent()).isEqualTo(4096);
+        assertThat(layer.keys()).containsExactly("surveySessionId", "speed", "count", "offset", "valid");
+        assertThat(layer.values()).containsExactly(
+            new MvtDecoder.Value(MvtDecoder.VALUE_STRING, "session-1"),
+            new MvtDecoder.Value(MvtDecoder.VALUE_DOUBLE, 1.5),
+            new MvtDecoder.Value(MvtDecoder.VALUE_UINT, 3L),
+            new MvtDecoder.Value(MvtDecoder.VALUE_SINT, -2L),
+            new MvtDecoder.Value(MvtDecoder.VALUE_BOOL, true));
+        assertThat(layer.features().get(0).tags()).containsExactly(0, 0, 1, 1, 2, 2, 3, 3, 4, 4);
+        assertThat(layer.features().get(1).tags()).containsExactly(0, 0, 2, 2);
+    }
+
+    @Test
+    void layerWithoutFeaturesEncodesNothing() {
+        MvtLayerEncoder encoder = encoder();
+        encoder.addPoints(new int[0], 0, NO_NAMES, NO_VALUES);
+        encoder.addLineString(new int[]{5, 5}, 1, Map.of());
+
+        assertThat(encoder.getFeatureCount()).isZero();
+        assertThat(encoder.encode()).isEmpty();
+    }
+
+    @Test
+    void layersConcatenateIntoOneTile() {
+        MvtLayerEncoder fov = encoder();
+        fov.addPoint(25, 17, Map.of());
+        MvtLayerEncoder peaks = new MvtLayerEncoder("peak_layer", 4096);
+        peaks.addPoint(5, 7, Map.of());
+
+        byte[] fovTile = fov.encode();
+        byte[] peakTile = peaks.encode();
+        byte[] tile = new byte[fovTile.length + peakTile.length];
+        System.arraycopy(fovTile, 0, tile, 0, fovTile.length);
+        System.arraycopy(peakTile, 0, tile, fovTile.length, peakTile.length);
+
+        List<MvtDecoder.Layer> layers = MvtDecoder.decode(tile);
+        assertThat(layers).extracting(MvtDecoder.Layer::name).containsExactly("fov_layer", "peak_layer");
+    }
+
+    private static MvtLayerEncoder encoder() {
+        return new MvtLayerEncoder("fov_layer", 4096);
+    }
+
+    private static MvtDecoder.Feature feature(MvtLayerEncoder encoder) {
+        MvtDecoder.Layer layer = MvtDecoder.decodeLayer(encoder.encode());
+        assertThat(layer.features()).hasSize(1);
+        return layer.features().get(0);
+    }
+}
@@ -0,0 +1,110 @@
+package com.surveys.service;
+
+import com.surveys.geo.GeometryWriters;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinaryFramesTest {
+
+    @Test
+    void batchFrameRepeatsSessionIdsAsZeroLength() {
+        byte[] first = GeometryWriters.twkb(GeometryWriters.Type.POINT, new double[]{-121.97, 37.39}, 6);
+        byte[] second = GeometryWriters.twkb(GeometryWriters.Type.LINESTRING,
+            new double[]{-121.97, 37.39, -121.96, 37.4}, 6);
+        byte[] third = GeometryWriters.twkb(GeometryWriters.Type.POINT, new double[]{-121.9, 37.3}, 6);
+
+        byte[] frame = BinaryFrames.batch(List.of(
+            new BinaryFrames.Feature("session-a", first),
+            new BinaryFrames.Feature("session-a", second),
+            new BinaryFrames.Feature("session-b", third)), 203);
+
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        assertThat(buffer.get()).isEqualTo(BinaryFrames.BATCH);
+        assertThat(buffer.getInt()).isEqualTo(frame.length - 5);
+        assertThat(buffer.getInt()).isEqualTo(203);
+        assertThat(buffer.getInt()).isEqualTo(3);
+
+        assertThat(readString(buffer)).isEqualTo("session-a");
+        assertThat(readBytes(buffer)).isEqualTo(first);
+        assertThat(readVarint(buffer)).isZero();
+        assertThat(readBytes(buffer)).isEqualTo(second);
+        assertThat(readString(buffer)).isEqualTo("session-b");
+        assertThat(readBytes(buffer)).isEqualTo(third);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void batchFrameWritesLengthsAsVarints() {
+        byte[] twkb = new byte[300];
+        Arrays.fill(twkb, (byte) 7);
+
+        byte[] frame = BinaryFrames.batch(List.of(new BinaryFrames.Feature("s", twkb)), 1);
+
+        ByteBuffer buffer = ByteBuffer.wrap(frame, 13, frame.length - 13);
+        assertThat(readString(buffer)).isEqualTo("s");
+        // 300 = 0b10_0101100: two varint bytes
+        assertThat(frame[15]).isEqualTo((byte) 0xAC);
+        assertThat(frame[16]).isEqualTo((byte) 0x02);
+        assertThat(readBytes(buffer)).isEqualTo(twkb);
+    }
+
+    @Test
+    void batchFrameWritesMissingValuesAsEmpty() {
+        byte[] frame = BinaryFrames.batch(List.of(new BinaryFrames.Feature(null, null)), 1);
+
+        ByteBuffer buffer = ByteBuffer.wrap(frame, 13, frame.length - 13);
+        assertThat(readVarint(buffer)).isZero();
+        assertThat(readVarint(buffer)).isZero();
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void endFrameCarriesTotal() {
+        ByteBuffer buffer = ByteBuffer.wrap(BinaryFrames.end(100_000));
+
+        assertThat(buffer.get()).isEqualTo(BinaryFrames.END);
+        assertThat(buffer.getInt()).isEqualTo(4);
+        assertThat(buffer.getInt()).isEqualTo(100_000);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void errorFrameCarriesJson() {
+        byte[] json = "{\"error\":\"limit must be a positive integer\",\"message\":null}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(BinaryFrames.error(json));
+
+        assertThat(buffer.get()).isEqualTo(BinaryFrames.ERROR);
+        assertThat(buffer.getInt()).isEqualTo(json.length);
+        byte[] payload = new byte[json.length];
+        buffer.get(payload);
+        assertThat(payload).isEqualTo(json);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarint(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
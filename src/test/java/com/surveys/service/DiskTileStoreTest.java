@@ -0,0 +1,124 @@
+package com.surveys.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskTileStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<DiskTileStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() {
+        opened.forEach(DiskTileStore::close);
+    }
+
+    @Test
+    void tilesSurviveRestart() {
+        DiskTileStore store = open(1 << 20, 1 << 20, 64);
+        store.put(key("fov", "session-1", "v1", 1), tile("fov"));
+        store.put(key("lisa", "session-1", "v1", 1), TileCache.EMPTY_TILE);
+        store.put(key("fov", "session/2", "v1", 1), tile("other session"));
+        store.close();
+
+        DiskTileStore restarted = open(1 << 20, 1 << 20, 64);
+        assertThat(restarted.getIfPresent(key("fov", "session-1", "v1", 1))).isEqualTo(tile("fov"));
+        assertThat(restarted.getIfPresent(key("lisa", "session-1", "v1", 1))).isSameAs(TileCache.EMPTY_TILE);
+        assertThat(restarted.getIfPresent(key("fov", "session/2", "v1", 1))).isEqualTo(tile("other session"));
+        assertThat(restarted.getIfPresent(key("fov", "session-1", "v1", 2))).isNull();
+        assertThat(restarted.getSizeBytes()).isEqualTo(store.getSizeBytes());
+    }
+
+    @Test
+    void newContentVersionMissesAndReplacesSession() {
+        DiskTileStore store = open(1 << 20, 1 << 20, 64);
+        store.put(key("fov", "session-1", "v1", 1), tile("fov v1"));
+        store.put(key("fov", "session-1", "v1", 2), tile("fov v1, second tile"));
+        long sizeV1 = store.getSizeBytes();
+
+        assertThat(store.getIfPresent(key("fov", "session-1", "v2", 1))).isNull();
+        byte[] loaded = store.get(key("fov", "session-1", "v2", 1), () -> tile("fov v2"));
+
+        assertThat(loaded).isEqualTo(tile("fov v2"));
+        assertThat(store.getIfPresent(key("fov", "session-1", "v2", 1))).isEqualTo(tile("fov v2"));
+        assertThat(store.getIfPresent(key("fov", "session-1", "v1", 1))).isNull();
+        assertThat(store.getIfPresent(key("fov", "session-1", "v2", 2))).isNull();
+        assertThat(store.getSizeBytes()).isLessThan(sizeV1);
+    }
+
+    @Test
+    void fullSessionCompactsSupersededTiles() {
+        int sessionBytes = 4096;
+        DiskTileStore store = open(1 << 20, sessionBytes, 64);
+        byte[] payload = new byte[500];
+        for (int i = 0; i < 20; i++) {
+            payload[0] = (byte) i;
+            store.put(key("fov", "session-1", "v1", i % 2), payload.clone());
+        }
+
+        assertThat(store.getSizeBytes()).isLessThanOrEqualTo(sessionBytes);
+        payload[0] = 18;
+        assertThat(store.getIfPresent(key("fov", "session-1", "v1", 0))).isEqualTo(payload);
+        payload[0] = 19;
+        assertThat(store.getIfPresent(key("fov", "session-1", "v1", 1))).isEqualTo(payload);
+    }
+
+    @Test
+    void storeOverBudgetEvictsLeastRecentlyUsedSession() throws InterruptedException {
+        DiskTileStore store = open(3000, 1 << 20, 64);
+        store.put(key("fov", "session-1", "v1", 1), new byte[1000]);
+        Thread.sleep(5);
+        store.put(key("fov", "session-2", "v1", 1), new byte[1000]);
+        Thread.sleep(5);
+        store.put(key("fov", "session-3", "v1", 1), new byte[1000]);
+
+        assertThat(store.getSizeBytes()).isLessThanOrEqualTo(3000);
+        assertThat(store.getIfPresent(key("fov", "session-1", "v1", 1))).isNull();
+        assertThat(store.getIfPresent(key("fov", "session-3", "v1", 1))).hasSize(1000);
+    }
+
+    @Test
+    void closedSessionFilesReopenOnDemand() {
+        DiskTileStore store = open(1 << 20, 1 << 20, 1);
+        store.put(key("fov", "session-1", "v1", 1), tile("first"));
+        store.put(key("fov", "session-2", "v1", 1), tile("second"));
+
+        // Only one file stays open, so each read reopens the other session
+        assertThat(store.getIfPresent(key("fov", "session-1", "v1", 1))).isEqualTo(tile("first"));
+        assertThat(store.getIfPresent(key("fov", "session-2", "v1", 1))).isEqualTo(tile("second"));
+        store.put(key("fov", "session-1", "v1", 2), tile("third"));
+        assertThat(store.getIfPresent(key("fov", "session-1", "v1", 2))).isEqualTo(tile("third"));
+    }
+
+    private DiskTileStore open(long maxBytes, long maxSessionBytes, int maxOpenSessions) {
+        DiskTileStore store = new DiskTileStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        ReflectionTestUtils.setField(store, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(store, "maxSessionBytes", maxSessionBytes);
+        ReflectionTestUtils.setField(store, "compactionRatio", 0.5);
+        ReflectionTestUtils.setField(store, "maxOpenSessions", maxOpenSessions);
+        store.open();
+        opened.add(store);
+        return store;
+    }
+
+    private static TileKey key(String layer, String surveySessionId, String contentVersion, int x) {
+        return new TileKey(layer, surveySessionId, contentVersion, 16, x, 25427);
+    }
+
+    private static byte[] tile(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,237 @@
+package com.surveys.service;
+
+import com.surveys.config.LayerDefinition;
+import com.surveys.geo.GeometryParts;
+import com.surveys.geo.GeometryWriters;
+import com.surveys.geo.MvtDecoder;
+import com.surveys.geo.TileProjection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Decodes tiles of the in-process engine and compares them with what the SQL path
+ * ({@link TileQueryBuilder}, {@code ST_AsMVTGeom} and {@code ST_AsMVT}) returns for the same rows.
+ * Features are placed on tile 0/0/0 at whole tile pixels, so the expected command streams can be
+ * worked out by hand from the MVT specification; clipped rings are compared as vertex cycles,
+ * since where a clipped ring starts is up to the clipping algorithm rather than the format.
+ */
+class LayerGeometriesTest {
+
+    private static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+    private static final LayerGeometries.TileGeneralization GENERALIZATION =
+        new LayerGeometries.TileGeneralization(0, 1.0, 5, 64);
+
+    @Test
+    void multiPointIsOneFeature() {
+        LayerGeometries geometries = build(GeometryWriters.Type.POINT,
+            new GeometryParts(new double[][]{mercator(5, 7), mercator(3, 2)}, new boolean[2]));
+
+        MvtDecoder.Layer layer = tile(GeometryWriters.Type.POINT, LayerDefinition.Generalization.NONE, geometries);
+
+        assertThat(layer.name()).isEqualTo("test_layer");
+        assertThat(layer.features()).hasSize(1);
+        assertThat(layer.features().get(0).type()).isEqualTo(1);
+        assertThat(layer.features().get(0).geometry()).containsExactly(17, 10, 14, 3, 9);
+    }
+
+    @Test
+    void multiLineStringKeepsItsParts() {
+        LayerGeometries geometries = build(GeometryWriters.Type.LINESTRING,
+            new GeometryParts(new double[][]{mercator(2, 2, 2, 10, 10, 10), mercator(1, 1, 3, 5)}, new boolean[2]));
+
+        MvtDecoder.Feature feature = feature(tile(GeometryWriters.Type.LINESTRING, LayerDefinition.Generalization.NONE, geometries));
+
+        assertThat(feature.type()).isEqualTo(2);
+        assertThat(feature.geometry()).containsExactly(9, 4, 4, 18, 0, 16, 16, 0, 9, 17, 17, 10, 4, 8);
+    }
+
+    @Test
+    void multiPolygonKeepsItsHoles() {
+        // Closed rings with OGC orientation in EPSG:3857 (exterior counter-clockwise, y up)
+        LayerGeometries geometries = build(GeometryWriters.Type.POLYGON, new GeometryParts(new double[][]{
+            mercator(0, 0, 0, 10, 10, 10, 10, 0, 0, 0),
+            mercator(11, 11, 11, 20, 20, 20, 20, 11, 11, 11),
+            mercator(13, 13, 17, 13, 17, 17, 13, 17, 13, 13)
+        }, new boolean[]{false, false, true}));
+
+        MvtDecoder.Feature feature = feature(tile(GeometryWriters.Type.POLYGON, LayerDefinition.Generalization.NONE, geometries));
+
+        assertThat(feature.type()).isEqualTo(3);
+        assertThat(feature.geometry()).containsExactly(
+            9, 0, 0, 26, 20, 0, 0, 20, 19, 0, 15,
+            9, 22, 2, 26, 18, 0, 0, 18, 17, 0, 15,
+            9, 4, 13, 26, 0, 8, 8, 0, 0, 7, 15);
+    }
+
+    @Test
+    void lineIsClippedAtTheBuffer() {
+        // Leaves the buffered tile at x = extent + buffer and comes back
+        LayerGeometries geometries = build(GeometryWriters.Type.LINESTRING,
+            GeometryParts.single(mercator(100, 100, 5000, 100, 5000, 300, 100, 300)));
+
+        MvtDecoder.Feature feature = feature(tile(GeometryWriters.Type.LINESTRING, LayerDefinition.Generalization.NONE, geometries));
+
+        assertThat(feature.geometry()).containsExactly(9, 200, 200, 10, 8120, 0, 9, 0, 400, 10, 8119, 0);
+        assertThat(MvtDecoder.paths(feature.geometry())).containsExactly(
+            new int[]{100, 100, 4160, 100},
+            new int[]{4160, 300, 100, 300});
+    }
+
+    @Test
+    void polygonIsClippedAtTheBuffer() {
+        LayerGeometries geometries = build(GeometryWriters.Type.POLYGON, new GeometryParts(new double[][]{
+            mercator(-200, 100, -200, 400, 300, 400, 300, 100, -200, 100),
+            mercator(100, 200, 200, 200, 200, 300, 100, 300, 100, 200)
+        }, new boolean[]{false, true}));
+
+        MvtDecoder.Feature feature = feature(tile(GeometryWriters.Type.POLYGON, LayerDefinition.Generalization.NONE, geometries));
+
+        List<int[]> rings = MvtDecoder.paths(feature.geometry());
+        assertThat(rings).hasSize(2);
+        assertThat(cycle(rings.get(0))).isEqualTo(cycle(new int[]{-64, 100, 300, 100, 300, 400, -64, 400}));
+        assertThat(cycle(rings.get(1))).isEqualTo(cycle(new int[]{100, 200, 100, 300, 200, 300, 200, 200}));
+        assertThat(signedArea(rings.get(0))).isPositive();
+        assertThat(signedArea(rings.get(1))).isNegative();
+    }
+
+    @Test
+    void featuresOutsideTheBufferAreLeftOut() {
+        LayerGeometries geometries = build(GeometryWriters.Type.POINT,
+            GeometryParts.single(mercator(-30, 50)),
+            GeometryParts.single(mercator(-100, 50)),
+            GeometryParts.single(mercator(4150, 4150)));
+
+        MvtDecoder.Layer layer = tile(GeometryWriters.Type.POINT, LayerDefinition.Generalization.NONE, geometries);
+
+        assertThat(layer.features()).extracting(MvtDecoder.Feature::geometry)
+            .containsExactly(new int[]{9, 59, 100}, new int[]{9, 8300, 8300});
+    }
+
+    @Test
+    void pointsAreClusteredByGridCell() {
+        // Cells are 64 pixels, snapped from the EPSG:3857 origin at pixel 2048 like ST_SnapToGrid
+        LayerDefinition definition = definition(GeometryWriters.Type.POINT, LayerDefinition.Generalization.CLUSTER);
+        LayerGeometries.Builder builder = LayerGeometries.builder(GeometryWriters.Type.POINT, definition.getAttributes());
+        builder.accept(GeometryParts.single(mercator(2040, 2040)), new Object[]{"b", 3.0});
+        builder.accept(GeometryParts.single(mercator(2056, 2056)), new Object[]{"c", 1.5});
+        builder.accept(GeometryParts.single(mercator(2100, 2040)), new Object[]{"a", null});
+
+        MvtDecoder.Layer layer = MvtDecoder.decodeLayer(builder.build().encodeTile(definition, GENERALIZATION, 0, 0, 0));
+
+        assertThat(layer.keys()).containsExactly("label", "speed", "count");
+        List<MvtDecoder.Feature> clusters = layer.features().stream()
+            .sorted(Comparator.comparingInt(feature -> feature.geometry()[1]))
+            .toList();
+        assertThat(clusters).hasSize(2);
+        // At the mean of the centroids, with the minimum of each attribute and the feature count
+        assertThat(clusters.get(0).geometry()).containsExactly(9, 4096, 4096);
+        assertThat(layer.attributes(clusters.get(0))).isEqualTo(Map.of(
+            "label", new MvtDecoder.Value(MvtDecoder.VALUE_STRING, "b"),
+            "speed", new MvtDecoder.Value(MvtDecoder.VALUE_DOUBLE, 1.5),
+            "count", new MvtDecoder.Value(MvtDecoder.VALUE_UINT, 2L)));
+        assertThat(clusters.get(1).geometry()).containsExactly(9, 4200, 4080);
+        assertThat(layer.attributes(clusters.get(1))).isEqualTo(Map.of(
+            "label", new MvtDecoder.Value(MvtDecoder.VALUE_STRING, "a"),
+            "count", new MvtDecoder.Value(MvtDecoder.VALUE_UINT, 1L)));
+    }
+
+    @Test
+    void clusteringStopsAtTheClusterZoom() {
+        LayerDefinition definition = definition(GeometryWriters.Type.POINT, LayerDefinition.Generalization.CLUSTER);
+        LayerGeometries.Builder builder = LayerGeometries.builder(GeometryWriters.Type.POINT, definition.getAttributes());
+        builder.accept(GeometryParts.single(mercator(2050, 2050)), new Object[]{"b", 3.0});
+        builder.accept(GeometryParts.single(mercator(2056, 2056)), new Object[]{"c", 1.5});
+        LayerGeometries geometries = builder.build();
+        assertThat(MvtDecoder.decodeLayer(geometries.encodeTile(definition, GENERALIZATION, 0, 0, 0)).features()).hasSize(1);
+
+        // Tile 5/16/16 holds pixels 2048..2176 of tile 0/0/0, 32 times larger
+        MvtDecoder.Layer layer = MvtDecoder.decodeLayer(geometries.encodeTile(definition, GENERALIZATION, 5, 16, 16));
+
+        assertThat(layer.keys()).containsExactly("label", "speed");
+        assertThat(layer.features()).extracting(MvtDecoder.Feature::geometry)
+            .containsExactly(new int[]{9, 128, 128}, new int[]{9, 512, 512});
+    }
+
+    private static LayerGeometries build(GeometryWriters.Type type, GeometryParts... features) {
+        LayerGeometries.Builder builder = LayerGeometries.builder(type, List.of("label", "speed"));
+        for (GeometryParts feature : features) {
+            builder.accept(feature, new Object[]{"session-1", null});
+        }
+        return builder.build();
+    }
+
+    private static MvtDecoder.Layer tile(GeometryWriters.Type type, LayerDefinition.Generalization generalization,
+                                         LayerGeometries geometries) {
+        return MvtDecoder.decodeLayer(geometries.encodeTile(definition(type, generalization), GENERALIZATION, 0, 0, 0));
+    }
+
+    private static MvtDecoder.Feature feature(MvtDecoder.Layer layer) {
+        assertThat(layer.features()).hasSize(1);
+        assertThat(layer.attributes(layer.features().get(0)))
+            .containsExactly(Map.entry("label", new MvtDecoder.Value(MvtDecoder.VALUE_STRING, "session-1")));
+        return layer.features().get(0);
+    }
+
+    private static LayerDefinition definition(GeometryWriters.Type type, LayerDefinition.Generalization generalization) {
+        LayerDefinition definition = new LayerDefinition();
+        definition.setName("test");
+        definition.setMvtLayerName("test_layer");
+        definition.setGeometryType(type);
+        definition.setGeneralization(generalization);
+        definition.setAttributes(List.of("label", "speed"));
+        definition.setExtent(EXTENT);
+        definition.setBuffer(BUFFER);
+        return definition;
+    }
+
+    /**
+     * @param pixels Coordinates in pixels of tile 0/0/0, as {@code x0, y0, x1, y1, ...}
+     * @return The coordinates in EPSG:3857 meters
+     */
+    private static double[] mercator(double... pixels) {
+        double pixelSize = 2 * TileProjection.MERCATOR_HALF_WORLD / EXTENT;
+        double[] meters = new double[pixels.length];
+        for (int i = 0; i < pixels.length; i += 2) {
+            meters[i] = -TileProjection.MERCATOR_HALF_WORLD + pixels[i] * pixelSize;
+            meters[i + 1] = TileProjection.MERCATOR_HALF_WORLD - pixels[i + 1] * pixelSize;
+        }
+        return meters;
+    }
+
+    /**
+     * @return The ring's vertices starting from its smallest one, so rings compare independent of
+     *         their start
+     */
+    private static List<Integer> cycle(int[] ring) {
+        int count = ring.length / 2;
+        int start = 0;
+        for (int i = 1; i < count; i++) {
+            if (ring[2 * i] < ring[2 * start] || ring[2 * i] == ring[2 * start] && ring[2 * i + 1] < ring[2 * start + 1]) {
+                start = i;
+            }
+        }
+        Integer[] rotated = new Integer[ring.length];
+        for (int i = 0; i < count; i++) {
+            rotated[2 * i] = ring[2 * ((start + i) % count)];
+            rotated[2 * i + 1] = ring[2 * ((start + i) % count) + 1];
+        }
+        return Arrays.asList(rotated);
+    }
+
+    private static long signedArea(int[] ring) {
+        long area = 0;
+        int count = ring.length / 2;
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1) % count;
+            area += (long) ring[2 * i] * ring[2 * j + 1] - (long) ring[2 * j] * ring[2 * i + 1];
+        }
+        return area;
+    }
+}
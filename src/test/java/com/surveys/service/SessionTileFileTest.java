@@ -0,0 +1,240 @@
+package com.surveys.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionTileFileTest {
+
+    private static final SessionTileFile.Slot FOV = new SessionTileFile.Slot("fov", 16, 10570, 25427);
+    private static final SessionTileFile.Slot LISA = new SessionTileFile.Slot("lisa", 16, 10570, 25427);
+    private static final SessionTileFile.Slot BREADCRUMB = new SessionTileFile.Slot("breadcrumb", 14, 2642, 6356);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong storeBytes = new AtomicLong();
+    private final List<SessionTileFile> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeFiles() throws IOException {
+        for (SessionTileFile file : opened) {
+            file.close();
+        }
+    }
+
+    @Test
+    void readsAppendedTilesAfterReopen() throws IOException {
+        SessionTileFile file = open();
+        file.append(FOV, payload("fov"), "v1");
+        file.append(LISA, new byte[0], "v1");
+        file.close();
+
+        SessionTileFile reopened = open();
+        assertThat(reopened.read(FOV, "v1")).isEqualTo(payload("fov"));
+        assertThat(reopened.read(LISA, "v1")).isEmpty();
+        assertThat(reopened.read(BREADCRUMB, "v1")).isNull();
+        assertThat(reopened.size()).isEqualTo(Files.size(dataPath()));
+    }
+
+    @Test
+    void tornTailIsTruncatedOnReopen() throws IOException {
+        SessionTileFile file = open();
+        file.append(FOV, payload("fov"), "v1");
+        file.close(); // snapshots the index
+        SessionTileFile crashed = open();
+        crashed.append(LISA, payload("lisa"), "v1"); // after the snapshot's watermark
+        long intactSize = crashed.size();
+
+        // A crash mid-write leaves a record header announcing more bytes than were written
+        try (var channel = Files.newByteChannel(dataPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(15).putInt(500).putInt(0x12345678).put("partial".getBytes(StandardCharsets.UTF_8)).flip());
+        }
+        assertThat(Files.size(dataPath())).isGreaterThan(intactSize);
+
+        SessionTileFile recovered = new SessionTileFile(dataPath(), indexPath(), new AtomicLong());
+        opened.add(recovered);
+        assertThat(recovered.read(FOV, "v1")).isEqualTo(payload("fov"));
+        assertThat(recovered.read(LISA, "v1")).isEqualTo(payload("lisa"));
+        assertThat(Files.size(dataPath())).isEqualTo(intactSize);
+        assertThat(recovered.size()).isEqualTo(intactSize);
+
+        // Appends continue after the intact records
+        recovered.append(BREADCRUMB, payload("breadcrumb"), "v1");
+        recovered.close();
+        SessionTileFile reopened = open();
+        assertThat(reopened.read(LISA, "v1")).isEqualTo(payload("lisa"));
+        assertThat(reopened.read(BREADCRUMB, "v1")).isEqualTo(payload("breadcrumb"));
+    }
+
+    @Test
+    void recordWithBadChecksumEndsTheFile() throws IOException {
+        SessionTileFile file = open();
+        file.append(FOV, payload("fov"), "v1");
+        long firstRecordEnd = file.size();
+        file.append(LISA, payload("lisa"), "v1");
+        file.append(BREADCRUMB, payload("breadcrumb"), "v1");
+        file.close();
+        Files.delete(indexPath());
+
+        // Flip a payload byte of the second record
+        flipByte(dataPath(), firstRecordEnd + 20);
+
+        SessionTileFile recovered = open();
+        assertThat(recovered.read(FOV, "v1")).isEqualTo(payload("fov"));
+        assertThat(recovered.read(LISA, "v1")).isNull();
+        assertThat(recovered.read(BREADCRUMB, "v1")).isNull();
+        assertThat(recovered.size()).isEqualTo(firstRecordEnd);
+    }
+
+    @Test
+    void indexSnapshotWithBadChecksumFallsBackToScan() throws IOException {
+        SessionTileFile file = open();
+        file.append(FOV, payload("fov"), "v1");
+        file.append(FOV, payload("fov, regenerated"), "v1");
+        file.append(LISA, payload("lisa"), "v1");
+        long deadBytes = file.deadBytes();
+        file.close();
+
+        flipByte(indexPath(), Files.size(indexPath()) / 2);
+
+        SessionTileFile recovered = open();
+        assertThat(recovered.read(FOV, "v1")).isEqualTo(payload("fov, regenerated"));
+        assertThat(recovered.read(LISA, "v1")).isEqualTo(payload("lisa"));
+        assertThat(recovered.deadBytes()).isEqualTo(deadBytes);
+        // Every record was scanned rather than taken from the snapshot
+        assertThat(recovered.unindexedRecords()).isEqualTo(3);
+    }
+
+    @Test
+    void indexSnapshotIsUsedWhenIntact() throws IOException {
+        SessionTileFile file = open();
+        file.append(FOV, payload("fov"), "v1");
+        file.append(LISA, payload("lisa"), "v1");
+        file.close();
+
+        SessionTileFile reopened = open();
+        assertThat(reopened.read(FOV, "v1")).isEqualTo(payload("fov"));
+        assertThat(reopened.unindexedRecords()).isZero();
+    }
+
+    @Test
+    void otherContentVersionResetsFile() throws IOException {
+        SessionTileFile file = open();
+        file.append(FOV, payload("fov v1"), "v1");
+        file.append(LISA, payload("lisa v1"), "v1");
+        file.close();
+
+        SessionTileFile reopened = open();
+        assertThat(reopened.read(FOV, "v2")).isNull();
+        assertThat(reopened.hasContentVersion("v1")).isTrue();
+
+        int appended = reopened.append(FOV, payload("fov v2"), "v2");
+        assertThat(reopened.hasContentVersion("v2")).isTrue();
+        assertThat(reopened.size()).isEqualTo(40 + appended);
+        assertThat(reopened.read(FOV, "v2")).isEqualTo(payload("fov v2"));
+        assertThat(reopened.read(LISA, "v2")).isNull();
+        assertThat(reopened.read(FOV, "v1")).isNull();
+        reopened.close();
+
+        // The new version is what a restart finds
+        SessionTileFile restarted = open();
+        assertThat(restarted.read(FOV, "v2")).isEqualTo(payload("fov v2"));
+        assertThat(restarted.read(FOV, "v1")).isNull();
+        assertThat(restarted.read(LISA, "v2")).isNull();
+    }
+
+    @Test
+    void compactionKeepsLiveEntries() throws IOException {
+        SessionTileFile file = open();
+        int superseded = file.append(FOV, payload("fov, first"), "v1");
+        superseded += file.append(LISA, payload("lisa, first"), "v1");
+        file.append(FOV, payload("fov, second"), "v1");
+        file.append(LISA, payload("lisa, second"), "v1");
+        file.append(BREADCRUMB, new byte[0], "v1");
+        long sizeBefore = file.size();
+        assertThat(file.deadBytes()).isEqualTo(superseded);
+
+        long reclaimed = file.compact();
+
+        assertThat(reclaimed).isEqualTo(superseded);
+        assertThat(file.size()).isEqualTo(sizeBefore - superseded).isEqualTo(Files.size(dataPath()));
+        assertThat(file.deadBytes()).isZero();
+        assertThat(file.read(FOV, "v1")).isEqualTo(payload("fov, second"));
+        assertThat(file.read(LISA, "v1")).isEqualTo(payload("lisa, second"));
+        assertThat(file.read(BREADCRUMB, "v1")).isEmpty();
+        assertThat(storeBytes.get()).isEqualTo(file.size());
+
+        // Appends and restarts see the compacted file
+        file.append(FOV, payload("fov, third"), "v1");
+        file.close();
+        SessionTileFile reopened = open();
+        assertThat(reopened.read(FOV, "v1")).isEqualTo(payload("fov, third"));
+        assertThat(reopened.read(LISA, "v1")).isEqualTo(payload("lisa, second"));
+        assertThat(reopened.read(BREADCRUMB, "v1")).isEmpty();
+    }
+
+    @Test
+    void fileOfUnknownFormatIsDiscarded() throws IOException {
+        Files.write(dataPath(), "not a tile file, but long enough to hold a header".getBytes(StandardCharsets.UTF_8));
+
+        SessionTileFile file = open();
+        assertThat(file.read(FOV, "v1")).isNull();
+        assertThat(file.size()).isEqualTo(40);
+        file.append(FOV, payload("fov"), "v1");
+        assertThat(file.read(FOV, "v1")).isEqualTo(payload("fov"));
+    }
+
+    @Test
+    void deletedFileStaysEmpty() throws IOException {
+        SessionTileFile file = open();
+        file.append(FOV, payload("fov"), "v1");
+        file.close();
+
+        file.delete();
+
+        assertThat(Files.exists(dataPath())).isFalse();
+        assertThat(Files.exists(indexPath())).isFalse();
+        assertThat(file.read(FOV, "v1")).isNull();
+        assertThat(file.append(FOV, payload("fov"), "v1")).isZero();
+        assertThat(storeBytes.get()).isZero();
+    }
+
+    private SessionTileFile open() throws IOException {
+        // Each instance counts the file once in the store total, as the store keeps one per session
+        storeBytes.set(0);
+        SessionTileFile file = new SessionTileFile(dataPath(), indexPath(), storeBytes);
+        opened.add(file);
+        return file;
+    }
+
+    private Path dataPath() {
+        return directory.resolve("session.tiles");
+    }
+
+    private Path indexPath() {
+        return directory.resolve("session.idx");
+    }
+
+    private static byte[] payload(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void flipByte(Path path, long offset) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[(int) offset] ^= (byte) 0xFF;
+        Files.write(path, bytes);
+    }
+}
@@ -0,0 +1,132 @@
+package com.surveys.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamPipelineTest {
+
+    @Test
+    void handsBatchesOverInOrderUntilComplete() throws Exception {
+        StreamPipeline<Integer> pipeline = new StreamPipeline<>(100);
+
+        assertThat(pipeline.put(batch(3, "3"))).isTrue();
+        assertThat(pipeline.put(batch(2, "5"))).isTrue();
+        pipeline.complete();
+
+        assertThat(pipeline.take().lastKey()).isEqualTo("3");
+        assertThat(pipeline.isFinished()).isFalse();
+        assertThat(pipeline.take().lastKey()).isEqualTo("5");
+        assertThat(pipeline.take()).isNull();
+        assertThat(pipeline.isFinished()).isTrue();
+    }
+
+    @Test
+    void readerBlocksOnceRowBudgetIsQueued() throws Exception {
+        StreamPipeline<Integer> pipeline = new StreamPipeline<>(10);
+        assertThat(pipeline.put(batch(6, "6"))).isTrue();
+
+        CompletableFuture<Boolean> second = putAsync(pipeline, batch(6, "12"));
+        Thread.sleep(300);
+        assertThat(second).isNotDone();
+
+        assertThat(pipeline.take().lastKey()).isEqualTo("6");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(pipeline.take().lastKey()).isEqualTo("12");
+    }
+
+    @Test
+    void budgetHoldsWhateverTheBatchSize() throws Exception {
+        StreamPipeline<Integer> pipeline = new StreamPipeline<>(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(pipeline.put(batch(1, Integer.toString(i)))).isTrue();
+        }
+
+        CompletableFuture<Boolean> eleventh = putAsync(pipeline, batch(1, "10"));
+        Thread.sleep(300);
+        assertThat(eleventh).isNotDone();
+
+        pipeline.take();
+        assertThat(eleventh.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void batchLargerThanBudgetIsQueuedAlone() throws Exception {
+        StreamPipeline<Integer> pipeline = new StreamPipeline<>(10);
+        assertThat(pipeline.put(batch(25, "25"))).isTrue();
+
+        CompletableFuture<Boolean> next = putAsync(pipeline, batch(1, "26"));
+        Thread.sleep(300);
+        assertThat(next).isNotDone();
+
+        assertThat(pipeline.take().rows()).hasSize(25);
+        assertThat(next.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void cancelReleasesBlockedReader() throws Exception {
+        StreamPipeline<Integer> pipeline = new StreamPipeline<>(5);
+        assertThat(pipeline.put(batch(5, "5"))).isTrue();
+        CompletableFuture<Boolean> blocked = putAsync(pipeline, batch(5, "10"));
+        Thread.sleep(200);
+
+        pipeline.cancel();
+
+        assertThat(blocked.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(pipeline.isCancelled()).isTrue();
+        assertThat(pipeline.put(batch(1, "11"))).isFalse();
+        assertThat(pipeline.poll()).isNull();
+    }
+
+    @Test
+    void readerFailureIsRethrownToWriter() throws Exception {
+        StreamPipeline<Integer> pipeline = new StreamPipeline<>(10);
+        pipeline.put(batch(1, "1"));
+        pipeline.fail(new IllegalStateException("cursor closed"));
+
+        assertThat(pipeline.take().lastKey()).isEqualTo("1");
+        assertThatThrownBy(pipeline::take)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("cursor closed");
+    }
+
+    @Test
+    void readyIsReleasedForEveryBatchAndEndMarker() throws Exception {
+        Semaphore ready = new Semaphore(0);
+        StreamPipeline<Integer> pipeline = new StreamPipeline<>(10, ready);
+
+        pipeline.put(batch(2, "2"));
+        pipeline.put(batch(2, "4"));
+        pipeline.complete();
+
+        assertThat(ready.availablePermits()).isEqualTo(3);
+        assertThat(pipeline.poll().lastKey()).isEqualTo("2");
+        assertThat(pipeline.poll().lastKey()).isEqualTo("4");
+        assertThat(pipeline.poll()).isNull();
+        assertThat(pipeline.isFinished()).isTrue();
+    }
+
+    private static StreamPipeline.Batch<Integer> batch(int rows, String lastKey) {
+        return new StreamPipeline.Batch<>("session", List.copyOf(Collections.nCopies(rows, 0)), lastKey);
+    }
+
+    private static CompletableFuture<Boolean> putAsync(StreamPipeline<Integer> pipeline,
+                                                       StreamPipeline.Batch<Integer> batch) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                result.complete(pipeline.put(batch));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+}